@@ -1,27 +1,111 @@
 package com.eazybyts.backend.auth;
 
+import com.eazybyts.backend.user.UserChangedEvent;
 import com.eazybyts.backend.user.UserEntity;
 import com.eazybyts.backend.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads principals for the JWT filter, the STOMP CONNECT interceptor and login.
+ * Lookups are cached (auth.user-cache.*) so a reconnect storm costs one users query per user,
+ * not one per connection. Entries are dropped on UserChangedEvent and after the TTL.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository users;
+    private final Timer load;
+
+    @Value("${auth.user-cache.max-entries:10000}")
+    private int maxEntries;
+    @Value("${auth.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Immutable snapshot; a fresh UserDetails is built per call because Spring Security
+    // erases credentials on the principal it is handed after login
+    private record CachedUser(Long id, String username, String password, long expiresAtMillis) {}
+
+    private final ConcurrentHashMap<String, CachedUser> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
 
-    public CustomUserDetailsService(UserRepository users) {
+    public CustomUserDetailsService(UserRepository users, MeterRegistry meterRegistry) {
         this.users = users;
+        // hit/miss counts are published from the Stats getters, this times the database path
+        this.load = Timer.builder("auth.user.load")
+                .description("Principal lookups that missed the cache")
+                .register(meterRegistry);
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserEntity user = users.findByUsername(username)
+        return toUserDetails(lookup(username));
+    }
+
+    /** The user's id, from the same cache (presence, which only sees the principal name, needs it). */
+    public Long findUserId(String username) throws UsernameNotFoundException {
+        return lookup(username).id();
+    }
+
+    private CachedUser lookup(String username) {
+        long now = System.currentTimeMillis();
+        CachedUser cached = cache.get(username);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        UserEntity user = load.record(() -> users.findByUsername(username))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
+        CachedUser fresh = new CachedUser(user.getId(), user.getUsername(), user.getPassword(),
+                now + ttlSeconds * 1000);
+        if (maxEntries > 0) {
+            if (cache.size() >= maxEntries) {
+                cache.values().removeIf(c -> c.expiresAtMillis() <= now);
+                if (cache.size() >= maxEntries) cache.clear();
+            }
+            cache.put(username, fresh);
+        }
+        return fresh;
+    }
+
+    private static UserDetails toUserDetails(CachedUser u) {
         return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUsername())
-                .password(user.getPassword())
+                .withUsername(u.username())
+                .password(u.password())
                 .authorities("ROLE_USER")
                 .build();
     }
+
+    // Password, roles or fcmToken changed (or the user was deleted): forget every copy of that user.
+    // Only after commit: the JPA callbacks fire at flush, and evicting then would let a concurrent lookup
+    // re-cache the old committed row for a whole TTL. Outside a transaction it runs right away.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.username() != null) cache.remove(event.username());
+        if (event.userId() != null) cache.values().removeIf(c -> event.userId().equals(c.id()));
+        invalidations.increment();
+    }
+
+    // ---------- Stats ----------
+    public long getCacheHits() { return hits.sum(); }
+    public long getCacheMisses() { return misses.sum(); }
+    public long getCacheInvalidations() { return invalidations.sum(); }
+    public int getCacheSize() { return cache.size(); }
+
+    public double getCacheHitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
 }
@@ -3,10 +3,17 @@ package com.eazybyts.backend.auth;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import static io.jsonwebtoken.SignatureAlgorithm.HS256;
 
 @Service
@@ -15,10 +22,40 @@ public class JwtService {
     private String secret;
     @Value("${jwt.expiration}")
     private long expirationMillis;
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    @Value("${jwt.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
 
-    private Key getSigningKey() {
-        // Use the secret to generate a signing key
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Built once: the key and parser are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verified;
+
+    // signature checks only (cache hits are counted by VerifiedTokenCache); the global registry is a no-op
+    // until one is added, which keeps `new JwtService()` in benchmarks free of metrics setup
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+    private Timer verifyValid;
+    private Timer verifyInvalid;
+
+    @Autowired(required = false)
+    void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        // HS256 keys shorter than 256 bits are refused by jjwt; say which property to fix instead of WeakKeyException
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("app.jwt.secret (jwt.secret) must be at least 32 bytes for HS256, got "
+                    + keyBytes.length);
+        }
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verified = new VerifiedTokenCache(cacheMaxEntries, cacheTtlSeconds * 1000);
+        verifyValid = Timer.builder("auth.jwt.verify").tag("outcome", "valid").register(meterRegistry);
+        verifyInvalid = Timer.builder("auth.jwt.verify").tag("outcome", "invalid").register(meterRegistry);
     }
 
     public String generateToken(String username) {
@@ -28,26 +65,40 @@ public class JwtService {
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expiry)
-                .signWith(getSigningKey(), HS256)
+                .signWith(signingKey, HS256)
                 .compact();
     }
 
+    /**
+     * Subject of a valid token, or null if the token is invalid or expired.
+     * Tokens verified recently are answered from the cache without re-checking the signature.
+     */
     public String extractUsername(String token) {
+        if (token == null || token.isBlank()) return null;
+        long now = System.currentTimeMillis();
+        VerifiedTokenCache.Entry hit = verified.get(token, now);
+        if (hit != null) {
+            return hit.subject();
+        }
+        long start = System.nanoTime();
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (JwtException e) {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            verifyValid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // tokens without exp are still accepted, but only cached for the TTL
+            long exp = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+            verified.put(token, claims.getSubject(), exp, now);
+            return claims.getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
             // Token invalid or expired
+            verifyInvalid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             return null;
         }
     }
 
     public boolean validateToken(String token, org.springframework.security.core.userdetails.UserDetails userDetails) {
-        String username = extractUsername(token);
+        String username = extractUsername(token); // cache hit right after the caller's extractUsername
         return (username != null && username.equals(userDetails.getUsername()));
     }
+
+    public VerifiedTokenCache getVerifiedTokenCache() { return verified; }
 }
@@ -0,0 +1,85 @@
+package com.eazybyts.backend.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers tokens whose signature and expiry were already checked.
+ * - Keyed by SHA-256 of the token, so raw bearer tokens are never kept in memory
+ * - An entry lives for at most ttlMillis and never past the token's own exp
+ * - Size-bounded: when full, expired entries are purged first, then an arbitrary slice is dropped
+ */
+public class VerifiedTokenCache {
+
+    /** What we learned from a successful verification. */
+    public record Entry(String subject, long expiresAtMillis) {}
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Entry get(String token, long nowMillis) {
+        String key = digest(token);
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (e.expiresAtMillis() <= nowMillis) {
+            entries.remove(key, e);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e;
+    }
+
+    public void put(String token, String subject, long tokenExpMillis, long nowMillis) {
+        if (maxEntries <= 0) return;
+        long until = Math.min(tokenExpMillis, nowMillis + ttlMillis);
+        if (until <= nowMillis) return;
+        if (entries.size() >= maxEntries) {
+            makeRoom(nowMillis);
+        }
+        entries.put(digest(token), new Entry(subject, until));
+    }
+
+    private void makeRoom(long nowMillis) {
+        entries.values().removeIf(e -> e.expiresAtMillis() <= nowMillis);
+        // still full: drop ~10% so the next few puts don't each pay for a scan
+        int toDrop = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public void clear() { entries.clear(); }
+
+    public int size() { return entries.size(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    private static String digest(String token) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
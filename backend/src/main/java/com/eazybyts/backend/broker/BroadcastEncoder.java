@@ -0,0 +1,68 @@
+package com.eazybyts.backend.broker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Serializes a broadcast payload exactly once per FrameFormat and attaches the shared STOMP frame parts,
+ * so fan-out hands the same byte[] to every subscriber. Send the result with SimpMessagingTemplate.send.
+ */
+@Component
+public class BroadcastEncoder {
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+
+    public BroadcastEncoder(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        // same modules and features as the JSON mapper, CBOR on the wire
+        this.cborMapper = new CBORMapper().registerModules(ObjectMapper.findModules());
+    }
+
+    public ObjectMapper getJsonMapper() { return jsonMapper; }
+    public ObjectMapper getCborMapper() { return cborMapper; }
+
+    public Message<byte[]> encode(String destination, Object payload) {
+        return message(destination, new BroadcastFrame(destination, format -> serialize(destination, payload, format)));
+    }
+
+    /** Same as encode for a payload that is already JSON (e.g. relayed from another node); other formats are transcoded. */
+    public Message<byte[]> encodeJson(String destination, byte[] json) {
+        return message(destination, new BroadcastFrame(destination,
+                format -> format == FrameFormat.JSON ? json : serialize(destination, readTree(destination, json), format)));
+    }
+
+    private Message<byte[]> message(String destination, BroadcastFrame frame) {
+        BroadcastFrame.Encoded json = frame.encoded(FrameFormat.JSON);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(json.contentType());
+        accessor.setHeader(BroadcastFrame.HEADER, frame);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json.payload(), accessor.getMessageHeaders());
+    }
+
+    private JsonNode readTree(String destination, byte[] json) {
+        try {
+            return jsonMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Relayed broadcast for " + destination + " is not JSON", e);
+        }
+    }
+
+    private byte[] serialize(String destination, Object payload, FrameFormat format) {
+        try {
+            return (format == FrameFormat.CBOR ? cborMapper : jsonMapper).writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize broadcast for " + destination, e);
+        }
+    }
+}
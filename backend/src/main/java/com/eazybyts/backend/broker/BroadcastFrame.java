@@ -0,0 +1,85 @@
+package com.eazybyts.backend.broker;
+
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * The parts of a STOMP MESSAGE frame that are identical for every subscriber of a broadcast,
+ * carried along in the BroadcastFrame.HEADER header.
+ * - the JSON encoding is made when the message is published; other FrameFormats are made on first use
+ *   and then shared by every session that negotiated them
+ * - SharedFrameStompEncoder splices the pre-encoded prefix and body around the per-subscriber headers
+ */
+public final class BroadcastFrame {
+    public static final String HEADER = "chatBroadcastFrame";
+
+    /** One format's body plus its MESSAGE command, destination, content-type and content-length lines. */
+    record Encoded(byte[] payload, byte[] prefix, MimeType contentType) {}
+
+    private final String destination;
+    private final Function<FrameFormat, byte[]> serializer;
+    private final AtomicReferenceArray<Encoded> encoded = new AtomicReferenceArray<>(FrameFormat.values().length);
+
+    BroadcastFrame(String destination, Function<FrameFormat, byte[]> serializer) {
+        this.destination = destination;
+        this.serializer = serializer;
+    }
+
+    String getDestination() { return destination; }
+
+    /** Encoded form for a format; concurrent first calls may both encode, the first result is kept. */
+    Encoded encoded(FrameFormat format) {
+        Encoded e = encoded.get(format.ordinal());
+        if (e == null) {
+            byte[] payload = serializer.apply(format);
+            encoded.compareAndSet(format.ordinal(), null, new Encoded(payload,
+                    prefix(destination, format.getMimeType(), payload.length), format.getMimeType()));
+            e = encoded.get(format.ordinal());
+        }
+        return e;
+    }
+
+    /** The encoding whose body is this exact array, or null. */
+    Encoded forPayload(byte[] payload) {
+        for (int i = 0; i < encoded.length(); i++) {
+            Encoded e = encoded.get(i);
+            if (e != null && e.payload() == payload) return e;
+        }
+        return null;
+    }
+
+    private static byte[] prefix(String destination, MimeType contentType, int contentLength) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        line(out, "MESSAGE");
+        line(out, "destination:" + escape(destination));
+        line(out, "content-type:" + escape(contentType.toString()));
+        line(out, "content-length:" + contentLength);
+        return out.toByteArray();
+    }
+
+    private static void line(ByteArrayOutputStream out, String s) {
+        out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    /** STOMP 1.2 header escaping. */
+    static String escape(String s) {
+        if (s.indexOf('\\') < 0 && s.indexOf(':') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ':' -> sb.append("\\c");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
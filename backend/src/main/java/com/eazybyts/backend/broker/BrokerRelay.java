@@ -0,0 +1,19 @@
+package com.eazybyts.backend.broker;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Optional hook StripedBrokerMessageHandler calls for subscription changes and publications,
+ * e.g. to mirror them to other nodes (see ClusterRelay). Called on the thread handling the frame, so keep it short.
+ */
+public interface BrokerRelay {
+
+    void subscribed(String sessionId, String subscriptionId, String destination);
+
+    void unsubscribed(String sessionId, String subscriptionId);
+
+    void disconnected(String sessionId);
+
+    /** A MESSAGE about to be fanned out locally. */
+    void published(Message<?> message);
+}
@@ -0,0 +1,48 @@
+package com.eazybyts.backend.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.io.IOException;
+
+/**
+ * application/cbor payloads for @MessageMapping arguments (SEND frames with content-type:application/cbor)
+ * and for SimpMessagingTemplate sends that ask for CBOR explicitly.
+ * Strict content-type matching: it sits ahead of the JSON converter, and frames or sends without a
+ * content-type (what the web client publishes) must fall through to JSON.
+ */
+public class CborMessageConverter extends AbstractMessageConverter {
+    private final ObjectMapper cborMapper;
+
+    public CborMessageConverter(ObjectMapper cborMapper) {
+        super(FrameFormat.CBOR.getMimeType());
+        this.cborMapper = cborMapper;
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        try {
+            return cborMapper.readValue((byte[]) message.getPayload(), targetClass);
+        } catch (IOException e) {
+            throw new MessageConversionException(message, "Invalid CBOR payload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        try {
+            return cborMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not write CBOR: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.eazybyts.backend.broker;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Extension;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Handshake for /ws with control over permessage-deflate (chat.ws.deflate.*).
+ * Tomcat does the compression itself whenever the extension is negotiated; this decides whether it
+ * is accepted, and can ask for server_no_context_takeover, which trades some ratio for not keeping
+ * a 32 KB sliding window per connection.
+ */
+public class DeflateHandshakeHandler extends DefaultHandshakeHandler {
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    private final boolean enabled;
+    private final boolean noContextTakeover;
+
+    public DeflateHandshakeHandler(boolean enabled, boolean noContextTakeover) {
+        super(new SelectedExtensionsUpgradeStrategy());
+        this.enabled = enabled;
+        this.noContextTakeover = noContextTakeover;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+            List<WebSocketExtension> requestedExtensions, List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> result = new ArrayList<>(
+                super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions));
+        result.removeIf(ext -> PERMESSAGE_DEFLATE.equals(ext.getName()));
+        if (!enabled) return result;
+        // Tomcat always implements permessage-deflate but does not list it among the container's
+        // installed extensions, so Spring never reports it as supported: take the client's first offer
+        requestedExtensions.stream()
+                .filter(ext -> PERMESSAGE_DEFLATE.equals(ext.getName()))
+                .findFirst()
+                .ifPresent(ext -> {
+                    if (noContextTakeover && !ext.getParameters().containsKey("server_no_context_takeover")) {
+                        Map<String, String> params = new LinkedHashMap<>(ext.getParameters());
+                        params.put("server_no_context_takeover", "");
+                        ext = new WebSocketExtension(ext.getName(), params);
+                    }
+                    result.add(ext);
+                });
+        return result;
+    }
+
+    /**
+     * Tomcat negotiates extensions from the request header again and ignores the ones Spring selected,
+     * so show it a request whose header lists exactly the selected extensions.
+     */
+    private static final class SelectedExtensionsUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+        @Override
+        protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+            String selected = endpointConfig.getExtensions().stream()
+                    .map(SelectedExtensionsUpgradeStrategy::render)
+                    .collect(Collectors.joining(", "));
+            HttpServletRequest wrapped = new HttpServletRequestWrapper(request) {
+                @Override
+                public String getHeader(String name) {
+                    return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? (selected.isEmpty() ? null : selected) : super.getHeader(name);
+                }
+
+                @Override
+                public Enumeration<String> getHeaders(String name) {
+                    if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) return super.getHeaders(name);
+                    return selected.isEmpty() ? Collections.emptyEnumeration() : Collections.enumeration(List.of(selected));
+                }
+            };
+            super.upgradeHttpToWebSocket(wrapped, response, endpointConfig, pathParams);
+        }
+
+        private static String render(Extension ext) {
+            StringBuilder sb = new StringBuilder(ext.getName());
+            for (Extension.Parameter p : ext.getParameters()) {
+                sb.append("; ").append(p.getName());
+                if (p.getValue() != null && !p.getValue().isEmpty()) sb.append('=').append(p.getValue());
+            }
+            return sb.toString();
+        }
+    }
+}
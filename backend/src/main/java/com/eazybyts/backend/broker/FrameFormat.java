@@ -0,0 +1,39 @@
+package com.eazybyts.backend.broker;
+
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+/**
+ * Payload encodings a STOMP session can receive. Chosen once per connection from the
+ * CONNECT frame's accept header (e.g. "accept:application/cbor, application/json"); JSON by default.
+ */
+public enum FrameFormat {
+    JSON(MimeTypeUtils.APPLICATION_JSON),
+    CBOR(new MimeType("application", "cbor"));
+
+    private final MimeType mimeType;
+
+    FrameFormat(MimeType mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public MimeType getMimeType() { return mimeType; }
+
+    /** First supported type in the client's list wins; anything unparseable or unknown means JSON. */
+    public static FrameFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+        try {
+            List<MimeType> types = MimeTypeUtils.parseMimeTypes(accept);
+            for (MimeType type : types) {
+                for (FrameFormat f : values()) {
+                    if (f.mimeType.equalsTypeAndSubtype(type)) return f;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the default
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,156 @@
+package com.eazybyts.backend.broker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.session.AbstractSockJsSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-connection payload encoding (chat.frames.cbor-enabled).
+ * - inbound: a CONNECT with "accept:application/cbor" switches the session to CBOR; DISCONNECT forgets it
+ * - outbound: MESSAGE frames for CBOR sessions get the broadcast's shared CBOR body, or are transcoded from JSON
+ * - transport: CBOR frames go out as binary WebSocket messages; SockJS sessions cannot carry binary and stay on JSON
+ * Register the same instance on the inbound and outbound channels and as a WebSocket handler decorator.
+ */
+@Component
+public class FrameFormatNegotiator implements ChannelInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(FrameFormatNegotiator.class);
+
+    @Value("${chat.frames.cbor-enabled:true}")
+    private boolean cborEnabled;
+
+    private final BroadcastEncoder encoder;
+    private final Set<String> binaryCapable = ConcurrentHashMap.newKeySet();
+    private final Map<String, FrameFormat> formats = new ConcurrentHashMap<>();
+
+    public FrameFormatNegotiator(BroadcastEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    public FrameFormat formatOf(String sessionId) {
+        return sessionId != null ? formats.getOrDefault(sessionId, FrameFormat.JSON) : FrameFormat.JSON;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (type == null || sessionId == null) return message;
+        switch (type) {
+            case CONNECT -> negotiate(message, sessionId);
+            case DISCONNECT -> formats.remove(sessionId);
+            case MESSAGE -> {
+                if (formatOf(sessionId) == FrameFormat.CBOR) return toCbor(message);
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    private void negotiate(Message<?> connect, String sessionId) {
+        if (!cborEnabled || !binaryCapable.contains(sessionId)) return;
+        NativeMessageHeaderAccessor accessor = NativeMessageHeaderAccessor.getAccessor(connect, NativeMessageHeaderAccessor.class);
+        String accept = accessor != null ? accessor.getFirstNativeHeader("accept") : null;
+        FrameFormat format = FrameFormat.negotiate(accept);
+        if (format != FrameFormat.JSON) formats.put(sessionId, format);
+    }
+
+    private Message<?> toCbor(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload) || payload.length == 0) return message;
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        MimeType contentType = accessor.getContentType();
+        byte[] cbor;
+        if (message.getHeaders().get(BroadcastFrame.HEADER) instanceof BroadcastFrame frame) {
+            cbor = frame.encoded(FrameFormat.CBOR).payload();
+        } else if (contentType != null && FrameFormat.JSON.getMimeType().equalsTypeAndSubtype(contentType)) {
+            try {
+                JsonNode tree = encoder.getJsonMapper().readTree(payload);
+                cbor = encoder.getCborMapper().writeValueAsBytes(tree);
+            } catch (IOException e) {
+                log.debug("Sending JSON as is, could not transcode to CBOR", e);
+                return message;
+            }
+        } else {
+            return message; // already binary, or not ours to touch
+        }
+        accessor.setContentType(FrameFormat.CBOR.getMimeType());
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    /** Wraps /ws's handler so this class learns each session's transport and can send binary frames. */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (!(session instanceof AbstractSockJsSession)) binaryCapable.add(session.getId());
+                super.afterConnectionEstablished(new BinaryWhenCbor(session));
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                super.handleMessage(new BinaryWhenCbor(session), message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status) throws Exception {
+                try {
+                    super.afterConnectionClosed(new BinaryWhenCbor(session), status);
+                } finally {
+                    binaryCapable.remove(session.getId());
+                    formats.remove(session.getId());
+                }
+            }
+        };
+    }
+
+    /**
+     * StompSubProtocolHandler sends every non octet-stream frame as text. TextMessage keeps the
+     * original bytes, so a CBOR session's frames are re-wrapped as binary without loss.
+     */
+    private final class BinaryWhenCbor extends WebSocketSessionDecorator {
+        BinaryWhenCbor(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text && formats.get(getId()) == FrameFormat.CBOR) {
+                message = new BinaryMessage(text.asBytes());
+            }
+            super.sendMessage(message);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof WebSocketSession s && getId().equals(s.getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return getId().hashCode();
+        }
+    }
+}
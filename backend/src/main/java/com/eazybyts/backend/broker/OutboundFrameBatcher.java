@@ -0,0 +1,286 @@
+package com.eazybyts.backend.broker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Last stop before the socket for every /ws session.
+ * - batching (chat.ws.batching.enabled): STOMP frames for one session are packed into a single
+ *   WebSocket message until linger-ms passes or max-bytes is reached; STOMP clients split on the NUL terminator
+ * - counts frames and writes per session, so frames-per-write shows how well batching packs
+ * - for sessions that negotiated permessage-deflate, estimates the compression ratio by deflating every
+ *   Nth write (chat.ws.deflate.ratio-sample-every) the way the extension does; Tomcat does not expose its own counts
+ */
+@Component
+public class OutboundFrameBatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboundFrameBatcher.class);
+
+    @Value("${chat.ws.batching.enabled:false}")
+    private boolean batching;
+    @Value("${chat.ws.batching.linger-ms:10}")
+    private long lingerMs;
+    @Value("${chat.ws.batching.max-bytes:16384}")
+    private int maxBytes;
+    @Value("${chat.ws.deflate.ratio-sample-every:8}")
+    private int ratioSampleEvery;
+
+    private final Map<String, BatchingSession> sessions = new ConcurrentHashMap<>();
+    private final LongAdder totalFrames = new LongAdder();
+    private final LongAdder totalWrites = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-batch-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdownNow();
+    }
+
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BatchingSession wrapped = new BatchingSession(session);
+                sessions.put(session.getId(), wrapped);
+                super.afterConnectionEstablished(wrapped);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                // replies written straight from inbound handling (e.g. ERROR frames) go through the same buffer
+                BatchingSession wrapped = sessions.get(session.getId());
+                super.handleMessage(wrapped != null ? wrapped : session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, status);
+                } finally {
+                    BatchingSession wrapped = sessions.remove(session.getId());
+                    if (wrapped != null) wrapped.stats.close();
+                }
+            }
+        };
+    }
+
+    /** Per-session counters; the estimate fields only move for permessage-deflate sessions. */
+    public static final class SessionStats {
+        private final String sessionId;
+        private final Deflater deflater; // null unless the session negotiated permessage-deflate
+        private final boolean noContextTakeover;
+        private long frames;
+        private long writes;
+        private long bytes;
+        private long sampledBytes;
+        private long sampledCompressed;
+
+        SessionStats(String sessionId, WebSocketExtension deflate) {
+            this.sessionId = sessionId;
+            this.deflater = deflate != null ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+            this.noContextTakeover = deflate != null && deflate.getParameters().containsKey("server_no_context_takeover");
+        }
+
+        synchronized void record(int frameCount, byte[] payload, int sampleEvery) {
+            boolean sample = deflater != null && sampleEvery > 0 && writes % sampleEvery == 0;
+            frames += frameCount;
+            writes++;
+            bytes += payload.length;
+            if (sample) {
+                sampledBytes += payload.length;
+                sampledCompressed += deflatedSize(payload);
+            }
+        }
+
+        private int deflatedSize(byte[] payload) {
+            if (noContextTakeover) deflater.reset();
+            deflater.setInput(payload);
+            byte[] buf = new byte[Math.max(64, payload.length / 2)];
+            int size = 0;
+            int n;
+            while ((n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH)) > 0) {
+                size += n;
+                if (n < buf.length) break;
+            }
+            return Math.max(0, size - 4); // the extension strips the 00 00 FF FF flush marker
+        }
+
+        synchronized void close() {
+            if (deflater != null) deflater.end();
+        }
+
+        public String getSessionId() { return sessionId; }
+        public synchronized long getFrames() { return frames; }
+        public synchronized long getWrites() { return writes; }
+        public synchronized long getBytes() { return bytes; }
+        public boolean isDeflate() { return deflater != null; }
+        public synchronized double getFramesPerWrite() { return writes == 0 ? 0 : (double) frames / writes; }
+        /** Compressed / uncompressed over sampled writes; 1.0 when not compressed or nothing sampled yet. */
+        public synchronized double getCompressionRatio() {
+            return sampledBytes == 0 ? 1.0 : (double) sampledCompressed / sampledBytes;
+        }
+    }
+
+    private final class BatchingSession extends WebSocketSessionDecorator {
+        final SessionStats stats;
+        private final Object lock = new Object();
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream(1024);
+        private boolean pendingBinary;
+        private int pendingFrames;
+        private boolean flushScheduled;
+
+        BatchingSession(WebSocketSession session) {
+            super(session);
+            WebSocketExtension deflate = session.getExtensions().stream()
+                    .filter(e -> DeflateHandshakeHandler.PERMESSAGE_DEFLATE.equals(e.getName()))
+                    .findFirst().orElse(null);
+            this.stats = new SessionStats(session.getId(), deflate);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            boolean binary = message instanceof BinaryMessage;
+            if (!(message instanceof TextMessage || binary) || !message.isLast()) {
+                synchronized (lock) {
+                    flushLocked();
+                    super.sendMessage(message);
+                }
+                return;
+            }
+            byte[] bytes = binary ? toArray(((BinaryMessage) message).getPayload()) : ((TextMessage) message).asBytes();
+            synchronized (lock) {
+                if (!batching) {
+                    write(binary, bytes, 1);
+                    return;
+                }
+                if (pendingFrames > 0 && pendingBinary != binary) flushLocked();
+                pending.write(bytes, 0, bytes.length);
+                pendingBinary = binary;
+                pendingFrames++;
+                if (pending.size() >= maxBytes) {
+                    flushLocked();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    flusher.schedule(this::scheduledFlush, lingerMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void scheduledFlush() {
+            synchronized (lock) {
+                flushScheduled = false;
+                if (!isOpen()) return;
+                try {
+                    flushLocked();
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Batched write to session {} failed, closing it", getId(), e);
+                    try {
+                        close(CloseStatus.SESSION_NOT_RELIABLE);
+                    } catch (IOException ignored) {
+                        // already broken
+                    }
+                }
+            }
+        }
+
+        private void flushLocked() throws IOException {
+            if (pendingFrames == 0) return;
+            byte[] batch = pending.toByteArray();
+            int frames = pendingFrames;
+            pending.reset();
+            pendingFrames = 0;
+            write(pendingBinary, batch, frames);
+        }
+
+        private void write(boolean binary, byte[] bytes, int frames) throws IOException {
+            stats.record(frames, bytes, ratioSampleEvery);
+            totalFrames.add(frames);
+            totalWrites.increment();
+            super.sendMessage(binary ? new BinaryMessage(bytes) : new TextMessage(bytes));
+        }
+
+        @Override
+        public void close(CloseStatus status) throws IOException {
+            // an ERROR frame is usually queued right before the server closes the session
+            synchronized (lock) {
+                if (isOpen()) {
+                    try {
+                        flushLocked();
+                    } catch (IOException e) {
+                        log.debug("Final flush to session {} failed", getId(), e);
+                    }
+                }
+            }
+            super.close(status);
+        }
+
+        @Override
+        public void close() throws IOException {
+            close(CloseStatus.NORMAL);
+        }
+
+        private byte[] toArray(ByteBuffer buffer) {
+            ByteBuffer b = buffer.duplicate();
+            byte[] out = new byte[b.remaining()];
+            b.get(out);
+            return out;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof WebSocketSession s && getId().equals(s.getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return getId().hashCode();
+        }
+    }
+
+    // ---------- Stats ----------
+    public boolean isBatching() { return batching; }
+    public long getTotalFrames() { return totalFrames.sum(); }
+    public long getTotalWrites() { return totalWrites.sum(); }
+    public double getFramesPerWrite() {
+        long writes = totalWrites.sum();
+        return writes == 0 ? 0 : (double) totalFrames.sum() / writes;
+    }
+    public List<SessionStats> getSessionStats() {
+        List<SessionStats> out = new ArrayList<>(sessions.size());
+        for (BatchingSession s : sessions.values()) out.add(s.stats);
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+package com.eazybyts.backend.broker;
+
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StompEncoder for the outbound side of /ws.
+ * MESSAGE frames carrying a BroadcastFrame are assembled by copying its pre-encoded prefix and body
+ * and encoding only the headers that differ per subscriber; everything else goes through StompEncoder.
+ */
+public class SharedFrameStompEncoder extends StompEncoder {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        Object frameHeader = headers.get(BroadcastFrame.HEADER);
+        BroadcastFrame.Encoded shared =
+                frameHeader instanceof BroadcastFrame frame ? frame.forPayload(payload) : null;
+        if (shared == null) {
+            return super.encode(headers, payload);
+        }
+        Map<String, List<String>> nativeHeaders =
+                (Map<String, List<String>>) headers.get(StompHeaderAccessor.NATIVE_HEADERS);
+        if (nativeHeaders == null || !isSameDestination(nativeHeaders, (BroadcastFrame) frameHeader)) {
+            // e.g. a user destination rewritten on the way out: the shared prefix no longer applies
+            return super.encode(headers, payload);
+        }
+
+        StringBuilder own = new StringBuilder(64);
+        for (Map.Entry<String, List<String>> e : nativeHeaders.entrySet()) {
+            String name = e.getKey();
+            if (name.equals(StompHeaderAccessor.STOMP_DESTINATION_HEADER)
+                    || name.equals(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER)
+                    || name.equals(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER)) {
+                continue;
+            }
+            for (String value : e.getValue()) {
+                own.append(BroadcastFrame.escape(name)).append(':').append(BroadcastFrame.escape(value)).append('\n');
+            }
+        }
+        byte[] ownBytes = own.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] prefix = shared.prefix();
+
+        byte[] out = new byte[prefix.length + ownBytes.length + 1 + payload.length + 1];
+        System.arraycopy(prefix, 0, out, 0, prefix.length);
+        System.arraycopy(ownBytes, 0, out, prefix.length, ownBytes.length);
+        int pos = prefix.length + ownBytes.length;
+        out[pos++] = '\n';
+        System.arraycopy(payload, 0, out, pos, payload.length);
+        out[out.length - 1] = 0;
+        return out;
+    }
+
+    private static boolean isSameDestination(Map<String, List<String>> nativeHeaders, BroadcastFrame frame) {
+        List<String> destination = nativeHeaders.get(StompHeaderAccessor.STOMP_DESTINATION_HEADER);
+        return destination != null && destination.size() == 1 && frame.getDestination().equals(destination.get(0));
+    }
+}
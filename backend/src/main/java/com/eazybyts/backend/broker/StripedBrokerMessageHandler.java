@@ -0,0 +1,255 @@
+package com.eazybyts.backend.broker;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process STOMP broker that replaces SimpleBroker's single registry and caller-thread fan-out.
+ * - Destinations are hashed onto N lanes; each lane owns the subscriptions for its destinations
+ *   and one worker thread that does the fan-out, so different rooms fan out in parallel
+ * - One thread per lane + per-session ordered outbound channels = a room's messages reach each
+ *   subscriber in publish order
+ * - Lane queues are bounded; a full lane blocks the publisher (backpressure instead of dropping)
+ * - Pattern subscriptions (/topic/room.*) can't be placed on one lane and live in a shared registry
+ * - An optional BrokerRelay sees every subscription change and publication (multi-node fan-out)
+ */
+public class StripedBrokerMessageHandler extends AbstractBrokerMessageHandler {
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+    private final Lane[] lanes;
+    private final DefaultSubscriptionRegistry patternSubscriptions = new DefaultSubscriptionRegistry();
+    private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private DistributionSummary fanOutSize;
+    private long clientHeartbeatMs;
+    private BrokerRelay relay;
+
+    private record SessionInfo(Principal user, MessageChannel outbound) {}
+
+    public StripedBrokerMessageHandler(SubscribableChannel clientInboundChannel, MessageChannel clientOutboundChannel,
+                                       SubscribableChannel brokerChannel, Collection<String> destinationPrefixes,
+                                       int laneCount, int laneQueueCapacity) {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, destinationPrefixes);
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, laneQueueCapacity);
+        }
+    }
+
+    /** Records the number of subscribers each published message reached as chat.broker.fanout. */
+    public void setMeterRegistry(MeterRegistry registry) {
+        this.fanOutSize = DistributionSummary.builder("chat.broker.fanout")
+                .description("Subscribers reached per published message")
+                .baseUnit("subscribers")
+                .register(registry);
+    }
+
+    /**
+     * Heart-beat interval asked of clients in CONNECTED (0 = none). The broker sends none itself and does not
+     * enforce it; PresenceRegistry expires sessions that go quiet for too long.
+     */
+    public void setClientHeartbeatMs(long clientHeartbeatMs) {
+        this.clientHeartbeatMs = Math.max(0, clientHeartbeatMs);
+    }
+
+    public void setRelay(BrokerRelay relay) {
+        this.relay = relay;
+    }
+
+    @Override
+    protected void startInternal() {
+        publishBrokerAvailableEvent();
+    }
+
+    @Override
+    protected void stopInternal() {
+        for (Lane lane : lanes) lane.executor.shutdown();
+        for (Lane lane : lanes) {
+            try {
+                lane.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+
+        if (!checkDestinationPrefix(destination)) {
+            return;
+        }
+        if (SimpMessageType.MESSAGE.equals(type)) {
+            published.increment();
+            if (relay != null) relay.published(message);
+            laneFor(destination).publish(message);
+        } else if (SimpMessageType.SUBSCRIBE.equals(type)) {
+            if (destination != null && isPattern(destination)) {
+                patternSubscriptions.registerSubscription(message);
+            } else {
+                laneFor(destination).subscriptions.registerSubscription(message);
+            }
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+            if (relay != null && sessionId != null && subscriptionId != null && destination != null) {
+                relay.subscribed(sessionId, subscriptionId, destination);
+            }
+        } else if (SimpMessageType.UNSUBSCRIBE.equals(type)) {
+            // UNSUBSCRIBE carries only the subscription id, not the destination
+            patternSubscriptions.unregisterSubscription(message);
+            for (Lane lane : lanes) lane.subscriptions.unregisterSubscription(message);
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+            if (relay != null && sessionId != null && subscriptionId != null) {
+                relay.unsubscribed(sessionId, subscriptionId);
+            }
+        } else if (SimpMessageType.CONNECT.equals(type)) {
+            if (sessionId != null) handleConnect(sessionId, message);
+        } else if (SimpMessageType.DISCONNECT.equals(type)) {
+            if (sessionId != null) handleDisconnect(sessionId, message);
+        }
+    }
+
+    private void handleConnect(String sessionId, Message<?> connect) {
+        Principal user = SimpMessageHeaderAccessor.getUser(connect.getHeaders());
+        sessions.put(sessionId, new SessionInfo(user, getClientOutboundChannelForSession(sessionId)));
+
+        SimpMessageHeaderAccessor ack = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        ack.setSessionId(sessionId);
+        if (user != null) ack.setUser(user);
+        ack.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER, connect);
+        ack.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] {0, clientHeartbeatMs});
+        getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, ack.getMessageHeaders()));
+    }
+
+    private void handleDisconnect(String sessionId, Message<?> disconnect) {
+        SessionInfo info = sessions.remove(sessionId);
+        patternSubscriptions.unregisterAllSubscriptions(sessionId);
+        for (Lane lane : lanes) lane.subscriptions.unregisterAllSubscriptions(sessionId);
+        if (relay != null) relay.disconnected(sessionId);
+
+        SimpMessageHeaderAccessor ack = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT_ACK);
+        ack.setSessionId(sessionId);
+        Principal user = info != null ? info.user() : SimpMessageHeaderAccessor.getUser(disconnect.getHeaders());
+        if (user != null) ack.setUser(user);
+        ack.setHeader(SimpMessageHeaderAccessor.DISCONNECT_MESSAGE_HEADER, disconnect);
+        getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, ack.getMessageHeaders()));
+    }
+
+    private Lane laneFor(String destination) {
+        int h = destination != null ? destination.hashCode() : 0;
+        return lanes[Math.floorMod(h ^ (h >>> 16), lanes.length)];
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0 || destination.indexOf('?') >= 0;
+    }
+
+    /** Runs on the destination's lane thread. */
+    private void fanOut(Lane lane, Message<?> message) {
+        MultiValueMap<String, String> targets = lane.subscriptions.findSubscriptions(message);
+        MultiValueMap<String, String> patternTargets = patternSubscriptions.findSubscriptions(message);
+        int reached = send(message, targets) + send(message, patternTargets);
+        if (fanOutSize != null) fanOutSize.record(reached);
+    }
+
+    private int send(Message<?> message, MultiValueMap<String, String> targets) {
+        if (targets.isEmpty()) return 0;
+        int sent = 0;
+        Object payload = message.getPayload();
+        for (Map.Entry<String, List<String>> e : targets.entrySet()) {
+            String sessionId = e.getKey();
+            SessionInfo info = sessions.get(sessionId);
+            MessageChannel out = info != null ? info.outbound() : getClientOutboundChannel();
+            for (String subscriptionId : e.getValue()) {
+                try {
+                    out.send(forSubscriber(message, payload, sessionId, subscriptionId));
+                    delivered.increment();
+                    sent++;
+                } catch (RuntimeException ex) {
+                    logger.error("Failed to deliver to session " + sessionId, ex);
+                }
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Per-subscriber copy of a published message. Only the headers are new: the payload (and a
+     * BroadcastFrame header, if present) is the same instance for every subscriber.
+     */
+    public static Message<?> forSubscriber(Message<?> message, Object payload, String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.copyHeadersIfAbsent(message.getHeaders());
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    // ---------- Stats ----------
+    public int getLaneCount() { return lanes.length; }
+    public long getPublished() { return published.sum(); }
+    public long getDelivered() { return delivered.sum(); }
+    public int getSessionCount() { return sessions.size(); }
+
+    public int getQueuedMessages() {
+        int n = 0;
+        for (Lane lane : lanes) n += lane.executor.getQueue().size();
+        return n;
+    }
+
+    private final class Lane {
+        final DefaultSubscriptionRegistry subscriptions = new DefaultSubscriptionRegistry();
+        final ThreadPoolExecutor executor;
+
+        Lane(int index, int queueCapacity) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, "broker-lane-" + index);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (task, pool) -> {
+                        // full lane: wait for room rather than drop or run out of order
+                        if (pool.isShutdown()) throw new RejectedExecutionException("Broker is stopping");
+                        try {
+                            pool.getQueue().put(task);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for broker lane", ie);
+                        }
+                    });
+        }
+
+        void publish(Message<?> message) {
+            executor.execute(() -> fanOut(this, message));
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.eazybyts.backend.chat;
 
 import com.eazybyts.backend.user.UserEntity;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import java.time.Instant;
 import java.util.List;
 
 public class ChatMessage {
+    // Snowflake ids exceed 2^53, so send them as strings to keep JS clients exact
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private Long roomId;        // for room messages
     private Long senderId;
@@ -5,10 +5,11 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "direct_messages")
+@Table(name = "direct_messages",
+       indexes = @Index(name = "idx_dm_conversation_key_id", columnList = "conversation_key, id"))
 public class DirectMessageEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -23,6 +24,21 @@ public class DirectMessageEntity {
     @Column(nullable = false)
     private Instant timestamp = Instant.now();
 
+    // "lowId:highId" — same value for both directions, so one index range covers a conversation
+    @Column(name = "conversation_key", length = 41)
+    private String conversationKey;
+
+    public static String conversationKey(long userA, long userB) {
+        return Math.min(userA, userB) + ":" + Math.max(userA, userB);
+    }
+
+    @PrePersist
+    void assignConversationKey() {
+        if (conversationKey == null && sender != null && receiver != null) {
+            conversationKey = conversationKey(sender.getId(), receiver.getId());
+        }
+    }
+
     public Long getId() { return id; }
 
     public UserEntity getSender() { return sender; }
@@ -40,4 +56,6 @@ public class DirectMessageEntity {
 
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public String getConversationKey() { return conversationKey; }
 }
@@ -1,5 +1,45 @@
 package com.eazybyts.backend.chat;
 
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
 
-public interface DirectMessageRepository extends JpaRepository<DirectMessageEntity, Long> {}
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface DirectMessageRepository extends JpaRepository<DirectMessageEntity, Long> {
+    // ✅ Keyset conversation reads, all served by idx_dm_conversation_key_id (conversation_key, id)
+
+    List<DirectMessageEntity> findByConversationKeyOrderByIdDesc(String conversationKey, Pageable page);
+
+    List<DirectMessageEntity> findByConversationKeyAndIdLessThanOrderByIdDesc(String conversationKey, Long before, Pageable page);
+
+    List<DirectMessageEntity> findByConversationKeyAndIdGreaterThanOrderByIdAsc(String conversationKey, Long after, Pageable page);
+
+    // unread baseline for one direction of a conversation, see UnreadCounters.markDirectRead
+    long countByConversationKeyAndSender_IdAndIdGreaterThanAndIdLessThanEqual(String conversationKey, Long senderId,
+                                                                             Long after, Long upTo);
+
+    // search index rebuild: every DM after the id as DTOs; consume inside a transaction and close
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.eazybyts.backend.chat.ChatMessage(d.id, null, d.sender.id, d.receiver.id, d.content, d.timestamp)"
+            + " from DirectMessageEntity d where d.id > :after order by d.id")
+    Stream<ChatMessage> streamAllAfter(@Param("after") Long after);
+
+    // tiering: rows of an id range that now live in a history segment
+    @Modifying
+    @Query("delete from DirectMessageEntity d where d.id > :low and d.id <= :high")
+    int deleteIdRange(@Param("low") Long low, @Param("high") Long high);
+
+    // Rows written before conversation_key existed; run once at startup
+    @Modifying
+    @Query(value = "UPDATE direct_messages SET conversation_key = " +
+            "CONCAT(LEAST(sender_id, receiver_id), ':', GREATEST(sender_id, receiver_id)) " +
+            "WHERE conversation_key IS NULL", nativeQuery = true)
+    int backfillConversationKeys();
+}
@@ -1,10 +1,18 @@
 package com.eazybyts.backend.chat;
 
+import com.eazybyts.backend.metrics.ChatMetrics;
+import com.eazybyts.backend.search.MessageSearchIndex;
+import com.eazybyts.backend.tiering.ColdHistoryStore;
 import com.eazybyts.backend.user.UserEntity;
 import com.eazybyts.backend.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -12,26 +20,72 @@ public class DirectMessageService {
     private final DirectMessageRepository dmRepo;
     private final UserRepository userRepo;
     private final NotificationService notificationService;
+    private final ChatMetrics metrics;
+    private final UnreadCounters unread;
+    private final MessageSearchIndex searchIndex;
+    private final ColdHistoryStore history;
+
+    @Value("${chat.history.default-limit:50}")
+    private int defaultLimit;
+    @Value("${chat.history.max-limit:200}")
+    private int maxLimit;
 
     public DirectMessageService(DirectMessageRepository dmRepo,
                                 UserRepository userRepo,
-                                NotificationService notificationService) {
+                                NotificationService notificationService,
+                                ChatMetrics metrics,
+                                UnreadCounters unread,
+                                MessageSearchIndex searchIndex,
+                                ColdHistoryStore history) {
         this.dmRepo = dmRepo;
         this.userRepo = userRepo;
         this.notificationService = notificationService;
+        this.metrics = metrics;
+        this.unread = unread;
+        this.searchIndex = searchIndex;
+        this.history = history;
     }
 
-    // ✅ Matches DirectMessagesController.getConversation(senderId, receiverId)
-    public List<DirectMessageEntity> getConversation(String userAId, String userBId) {
-        long a = Long.parseLong(userAId);
-        long b = Long.parseLong(userBId);
-        // naive filter to avoid extra repo method right now
-        return dmRepo.findAll().stream()
-                .filter(dm ->
-                        (dm.getSender().getId() == a && dm.getRecipient().getId() == b) ||
-                        (dm.getSender().getId() == b && dm.getRecipient().getId() == a)
-                )
-                .toList();
+    /**
+     * Keyset-paginated conversation between two users, either direction.
+     * Same cursor semantics as MessageService.getMessagesForRoom; only this conversation's
+     * rows are touched via the (conversation_key, id) index, plus archived ones the same way as rooms.
+     */
+    @Transactional(readOnly = true)
+    public MessagePage getConversation(String userAId, String userBId, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        String key = DirectMessageEntity.conversationKey(Long.parseLong(userAId), Long.parseLong(userBId));
+        int size = (limit == null || limit <= 0) ? defaultLimit : Math.min(limit, maxLimit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        String stream = ColdHistoryStore.conversationStream(key);
+
+        List<ChatMessage> rows;
+        if (after != null) {
+            rows = new ArrayList<>(history.after(stream, after, size + 1));
+            if (rows.size() <= size) {
+                long from = rows.isEmpty() ? after : rows.get(rows.size() - 1).getId();
+                rows.addAll(ChatMessage.fromDirectMessages(dmRepo.findByConversationKeyAndIdGreaterThanOrderByIdAsc(
+                        key, from, PageRequest.of(0, size + 1 - rows.size()))));
+            }
+        } else {
+            rows = new ArrayList<>(ChatMessage.fromDirectMessages(before != null
+                    ? dmRepo.findByConversationKeyAndIdLessThanOrderByIdDesc(key, before, page)
+                    : dmRepo.findByConversationKeyOrderByIdDesc(key, page)));
+            if (rows.size() <= size) {
+                long from = !rows.isEmpty() ? rows.get(rows.size() - 1).getId() : before != null ? before : Long.MAX_VALUE;
+                rows.addAll(history.before(stream, from, size + 1 - rows.size()));
+            }
+        }
+        return MessagePage.fromRows(rows, size, after != null, m -> m);
+    }
+
+    // Give rows stored before conversation_key existed a key so the indexed path finds them
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillConversationKeys() {
+        dmRepo.backfillConversationKeys();
     }
 
     // ✅ Matches DirectMessagesController.saveDirectMessage(senderId, receiverId, content)
@@ -43,6 +97,7 @@ public class DirectMessageService {
     // already used elsewhere
     @Transactional
     public DirectMessageEntity save(String senderId, String recipientId, String content) {
+        metrics.dmSaveStarted();
         Long sId = Long.parseLong(senderId);
         Long rId = Long.parseLong(recipientId);
 
@@ -57,6 +112,8 @@ public class DirectMessageService {
         dm.setContent(content);
 
         DirectMessageEntity saved = dmRepo.save(dm);
+        unread.directMessageSaved(sId, rId, saved.getId());
+        searchIndex.messageSaved(ChatMessage.from(saved));
 
         if (receiver.getFcmToken() != null && !receiver.getFcmToken().isBlank()) {
             String title = "New message from " + sender.getUsername();
@@ -1,30 +1,39 @@
 package com.eazybyts.backend.chat;
 
+import com.eazybyts.backend.ratelimit.FloodControl;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+
+import java.security.Principal;
 
 @RestController
 @RequestMapping("/api/dm")
 public class DirectMessagesController {
 
     private final DirectMessageService directMessageService;
+    private final FloodControl floodControl;
 
-    public DirectMessagesController(DirectMessageService directMessageService) {
+    public DirectMessagesController(DirectMessageService directMessageService, FloodControl floodControl) {
         this.directMessageService = directMessageService;
+        this.floodControl = floodControl;
     }
 
-    // GET /api/dm/conversation?userA=1&userB=2
+    // GET /api/dm/conversation?userA=1&userB=2&before=123&limit=50  (or ?after=123)
     @GetMapping("/conversation")
-    public List<ChatMessage> conversation(@RequestParam String userA,
-                                          @RequestParam String userB) {
-        return ChatMessage.fromDirectMessages(directMessageService.getConversation(userA, userB));
+    public MessagePage conversation(@RequestParam String userA,
+                                    @RequestParam String userB,
+                                    @RequestParam(required = false) Long before,
+                                    @RequestParam(required = false) Long after,
+                                    @RequestParam(required = false) Integer limit) {
+        return directMessageService.getConversation(userA, userB, before, after, limit);
     }
 
     // POST /api/dm/send?senderId=1&receiverId=2&content=hi
     @PostMapping("/send")
     public ChatMessage send(@RequestParam String senderId,
                             @RequestParam String receiverId,
-                            @RequestParam String content) {
+                            @RequestParam String content,
+                            Principal principal) {
+        floodControl.check(FloodControl.Budget.DIRECT, principal, senderId);
         DirectMessageEntity saved = directMessageService.saveDirectMessage(senderId, receiverId, content);
         return ChatMessage.from(saved);
     }
@@ -3,12 +3,14 @@ package com.eazybyts.backend.chat;
 import com.eazybyts.backend.user.UserEntity;
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages",
+       indexes = @Index(name = "idx_messages_room_id_id", columnList = "room_id, id"))
 public class MessageEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -20,8 +22,9 @@ public class MessageEntity {
     @Column(nullable = false, length = 4000)
     private String content;
 
+    // micros = what the DB keeps, so cached copies match rows read back later
     @Column(nullable = false)
-    private Instant timestamp = Instant.now();
+    private Instant timestamp = Instant.now().truncatedTo(ChronoUnit.MICROS);
 
     public MessageEntity() {}
 
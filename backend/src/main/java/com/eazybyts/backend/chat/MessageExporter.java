@@ -0,0 +1,112 @@
+package com.eazybyts.backend.chat;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams a room's whole history (or everything after a cursor) without holding it in memory.
+ * - Rows come from a forward-only cursor (MessageRepository.streamRoomAfter) inside a read-only transaction
+ *   and are written one at a time, so heap use does not depend on the room size
+ * - NDJSON: one ChatMessage per line; SSE: one "message" event per row, its id being the message id,
+ *   so a reconnecting EventSource resumes from Last-Event-ID
+ * - Archived rows (ColdHistoryStore) come first, decoded block by block, then the table's rows after the last
+ *   archived one, so rows that are briefly in both tiers during archiving are written once
+ * - The response is flushed every FLUSH_EVERY rows; once the client is gone that flush fails, the stream
+ *   and its statement are closed and the transaction rolls back
+ */
+@Service
+public class MessageExporter {
+    static final int FLUSH_EVERY = 256;
+
+    private final MessageRepository messageRepo;
+    private final RoomRepository roomRepo;
+    private final ColdHistoryStore history;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectWriter rowWriter;
+
+    public MessageExporter(MessageRepository messageRepo, RoomRepository roomRepo, ColdHistoryStore history,
+                           PlatformTransactionManager txManager, ObjectMapper mapper) {
+        this.messageRepo = messageRepo;
+        this.roomRepo = roomRepo;
+        this.history = history;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        // we flush in batches, not after every row
+        this.rowWriter = mapper.writerFor(ChatMessage.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public StreamingResponseBody ndjson(Long roomId, Long after) { return export(roomId, after, false); }
+
+    public StreamingResponseBody sse(Long roomId, Long after) { return export(roomId, after, true); }
+
+    // checked before the body is returned, so an unknown room still gets a normal error response
+    private StreamingResponseBody export(Long roomId, Long after, boolean sse) {
+        if (!roomRepo.existsById(roomId)) {
+            throw new IllegalArgumentException("Room not found: " + roomId);
+        }
+        long from = after != null ? after : Long.MIN_VALUE;
+        return out -> {
+            // while the archiver is between registering a segment and deleting its rows, they are in both tiers:
+            // the table part starts after the last archived row written, like the paged readers
+            long[] lastArchived = {from};
+            Iterator<ChatMessage> archived = history.iterateAfter(ColdHistoryStore.roomStream(roomId), from);
+            writeRows(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return archived.hasNext();
+                }
+
+                @Override
+                public ChatMessage next() {
+                    ChatMessage m = archived.next();
+                    lastArchived[0] = m.getId();
+                    return m;
+                }
+            }, out, sse);
+            try {
+                readOnlyTx.executeWithoutResult(status -> {
+                    try (Stream<ChatMessage> rows = messageRepo.streamRoomAfter(roomId, lastArchived[0])) {
+                        writeRows(rows.iterator(), out, sse);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /** Writes rows as NDJSON lines or SSE events; returns how many were written. */
+    int writeRows(Iterator<ChatMessage> rows, OutputStream out, boolean sse) throws IOException {
+        JsonGenerator gen = rowWriter.getFactory().createGenerator(out);
+        gen.setRootValueSeparator(null);
+        int written = 0;
+        while (rows.hasNext()) {
+            ChatMessage row = rows.next();
+            if (sse) {
+                gen.writeRaw("id: " + row.getId() + "\ndata: ");
+            }
+            rowWriter.writeValue(gen, row);
+            gen.writeRaw(sse ? "\n\n" : "\n");
+            if (++written % FLUSH_EVERY == 0) {
+                gen.flush();
+            }
+        }
+        gen.flush();
+        return written;
+    }
+}
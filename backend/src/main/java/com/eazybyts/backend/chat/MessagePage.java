@@ -0,0 +1,48 @@
+package com.eazybyts.backend.chat;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One window of room history, always in ascending id order.
+ * nextCursor is the id to pass as the next before/after value, or null when the window reached the end.
+ */
+public class MessagePage {
+    private final List<ChatMessage> messages;
+    @JsonSerialize(using = ToStringSerializer.class)
+    private final Long nextCursor;
+
+    public MessagePage(List<ChatMessage> messages, Long nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from a keyset query that fetched size + 1 rows.
+     * ascending = rows came back oldest first (an "after" read); otherwise they are reversed here.
+     */
+    public static <T> MessagePage fromRows(List<T> rows, int size, boolean ascending, Function<T, ChatMessage> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<ChatMessage> window = new ArrayList<>(Math.min(rows.size(), size));
+        for (int i = 0; i < rows.size() && i < size; i++) {
+            window.add(mapper.apply(rows.get(i)));
+        }
+        // last row of the window in query order is the edge we continue from
+        Long nextCursor = hasMore ? window.get(window.size() - 1).getId() : null;
+        if (!ascending) {
+            Collections.reverse(window);
+        }
+        return new MessagePage(window, nextCursor);
+    }
+
+    public List<ChatMessage> getMessages() { return messages; }
+
+    public Long getNextCursor() { return nextCursor; }
+
+    public boolean isHasMore() { return nextCursor != null; }
+}
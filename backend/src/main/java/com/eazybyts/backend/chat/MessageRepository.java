@@ -1,9 +1,46 @@
 package com.eazybyts.backend.chat;
 
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<MessageEntity, Long> {
-    // ✅ Used by MessageService.getMessagesForRoom
-    List<MessageEntity> findByRoom_Id(Long roomId);
+    // ✅ Keyset history reads, all served by idx_messages_room_id_id (room_id, id)
+
+    // newest page of a room
+    List<MessageEntity> findByRoom_IdOrderByIdDesc(Long roomId, Pageable page);
+
+    // scrolling back: messages older than the cursor, newest first
+    List<MessageEntity> findByRoom_IdAndIdLessThanOrderByIdDesc(Long roomId, Long before, Pageable page);
+
+    // catching up: messages newer than the cursor, oldest first
+    List<MessageEntity> findByRoom_IdAndIdGreaterThanOrderByIdAsc(Long roomId, Long after, Pageable page);
+
+    // unread baseline when a read marker is set behind the newest message (index range, not the whole room)
+    long countByRoom_IdAndIdGreaterThanAndIdLessThanEqual(Long roomId, Long after, Long upTo);
+
+    // export: every message after the cursor, oldest first, as DTOs (nothing enters the persistence context).
+    // Must be consumed inside a transaction and closed; the driver hands rows over 500 at a time.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.eazybyts.backend.chat.ChatMessage(m.id, m.room.id, m.sender.id, null, m.content, m.timestamp)"
+            + " from MessageEntity m where m.room.id = :roomId and m.id > :after order by m.id")
+    Stream<ChatMessage> streamRoomAfter(@Param("roomId") Long roomId, @Param("after") Long after);
+
+    // search index rebuild: every room message after the id, as DTOs, same streaming rules as above
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.eazybyts.backend.chat.ChatMessage(m.id, m.room.id, m.sender.id, null, m.content, m.timestamp)"
+            + " from MessageEntity m where m.id > :after order by m.id")
+    Stream<ChatMessage> streamAllAfter(@Param("after") Long after);
+
+    // tiering: rows of an id range that now live in a history segment (one bulk statement)
+    @Modifying
+    @Query("delete from MessageEntity m where m.id > :low and m.id <= :high")
+    int deleteIdRange(@Param("low") Long low, @Param("high") Long high);
 }
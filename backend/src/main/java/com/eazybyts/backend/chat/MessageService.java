@@ -1,50 +1,166 @@
 package com.eazybyts.backend.chat;
 
+import com.eazybyts.backend.journal.MessageJournal;
+import com.eazybyts.backend.metrics.ChatMetrics;
+import com.eazybyts.backend.search.MessageSearchIndex;
+import com.eazybyts.backend.tiering.ColdHistoryStore;
 import com.eazybyts.backend.user.UserEntity;
 import com.eazybyts.backend.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MessageService {
     private final MessageRepository messageRepo;
     private final RoomRepository roomRepo;
     private final UserRepository userRepo;
+    private final RecentMessageCache recentCache;
+    private final MessageWriteBehind writeBehind;
+    private final MessageJournal journal;
+    private final TransactionTemplate tx;
+    private final ChatMetrics metrics;
+    private final UnreadCounters unread;
+    private final MessageSearchIndex searchIndex;
+    private final ColdHistoryStore history;
 
-    public MessageService(MessageRepository messageRepo, RoomRepository roomRepo, UserRepository userRepo) {
+    // Rooms and users are never deleted, so a positive lookup can be remembered for the write-behind / journal paths
+    private final Set<Long> knownRooms = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Long> senderIds = new ConcurrentHashMap<>();
+
+    @Value("${chat.history.default-limit:50}")
+    private int defaultLimit;
+    @Value("${chat.history.max-limit:200}")
+    private int maxLimit;
+
+    public MessageService(MessageRepository messageRepo, RoomRepository roomRepo, UserRepository userRepo,
+                          RecentMessageCache recentCache, MessageWriteBehind writeBehind, MessageJournal journal,
+                          PlatformTransactionManager txManager, ChatMetrics metrics, UnreadCounters unread,
+                          MessageSearchIndex searchIndex, ColdHistoryStore history) {
         this.messageRepo = messageRepo;
         this.roomRepo = roomRepo;
         this.userRepo = userRepo;
+        this.recentCache = recentCache;
+        this.writeBehind = writeBehind;
+        this.journal = journal;
+        this.tx = new TransactionTemplate(txManager);
+        this.metrics = metrics;
+        this.unread = unread;
+        this.searchIndex = searchIndex;
+        this.history = history;
     }
 
-    // ✅ Matches controller signature
-    public List<MessageEntity> getMessagesForRoom(Long roomId) {
-        return messageRepo.findByRoom_Id(roomId);
+    /**
+     * Keyset-paginated room history.
+     * - before: messages older than this id (scroll back)
+     * - after:  messages newer than this id (catch up)
+     * - neither: the newest page
+     * Fetches limit + 1 rows so we know whether another page exists without a COUNT.
+     * Windows already held by RecentMessageCache are answered without touching the database,
+     * which is why this method deliberately opens no transaction of its own.
+     * Archived messages (ColdHistoryStore) are older than every row in the table: a window that runs
+     * past the oldest row is topped up from the archive, and catching up starts there.
+     */
+    public MessagePage getMessagesForRoom(Long roomId, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        int size = clampLimit(limit);
+        MessagePage cached = recentCache.read(roomId, before, after, size);
+        if (cached != null) {
+            return cached;
+        }
+
+        PageRequest page = PageRequest.of(0, size + 1);
+        String stream = ColdHistoryStore.roomStream(roomId);
+
+        List<ChatMessage> rows;
+        if (after != null) {
+            rows = new ArrayList<>(history.after(stream, after, size + 1));
+            if (rows.size() <= size) {
+                long from = rows.isEmpty() ? after : rows.get(rows.size() - 1).getId();
+                rows.addAll(ChatMessage.fromMessages(messageRepo.findByRoom_IdAndIdGreaterThanOrderByIdAsc(
+                        roomId, from, PageRequest.of(0, size + 1 - rows.size()))));
+            }
+        } else {
+            rows = new ArrayList<>(ChatMessage.fromMessages(before != null
+                    ? messageRepo.findByRoom_IdAndIdLessThanOrderByIdDesc(roomId, before, page)
+                    : messageRepo.findByRoom_IdOrderByIdDesc(roomId, page)));
+            if (rows.size() <= size) {
+                long from = !rows.isEmpty() ? rows.get(rows.size() - 1).getId() : before != null ? before : Long.MAX_VALUE;
+                rows.addAll(history.before(stream, from, size + 1 - rows.size()));
+            }
+            if (before == null) {
+                // newest page is the contiguous tail of the room: seed the cache with it
+                recentCache.seed(roomId, rows, rows.size() <= size);
+            }
+        }
+        return MessagePage.fromRows(rows, size, after != null, m -> m);
     }
 
-    // ✅ Wrapper that matches controller; delegates to saveToRoom
-    @Transactional
-    public MessageEntity saveMessage(Long roomId, String senderId, String content) {
-        return saveToRoom(String.valueOf(roomId), senderId, content);
+    private int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) return defaultLimit;
+        return Math.min(limit, maxLimit);
+    }
+
+    /**
+     * Entry point for the send paths (STOMP and REST).
+     * With write-behind enabled the message is validated, given an id and queued, and is returned
+     * before it reaches the database; with the journal enabled it is returned once it is fsynced to the
+     * journal, before it reaches the table; otherwise it is saved in its own transaction.
+     * sender may be a user id or a username (STOMP passes the authenticated name).
+     */
+    public ChatMessage postToRoom(String roomId, String sender, String content) {
+        if (!writeBehind.isEnabled() && !journal.isEnabled()) {
+            MessageEntity saved = tx.execute(status -> saveToRoom(roomId, sender, content));
+            return ChatMessage.from(saved);
+        }
+        Long rId = Long.parseLong(roomId);
+        if (!knownRooms.contains(rId)) {
+            if (!roomRepo.existsById(rId)) {
+                throw new IllegalArgumentException("Room not found: " + roomId);
+            }
+            knownRooms.add(rId);
+        }
+        Long sId = senderIds.get(sender);
+        if (sId == null) {
+            sId = resolveSender(sender).getId();
+            senderIds.put(sender, sId);
+        }
+        return journal.isEnabled() ? journal.append(rId, sId, content) : writeBehind.submit(rId, sId, content);
     }
 
-    // Already used by another controller: keep it
     @Transactional
     public MessageEntity saveToRoom(String roomId, String senderId, String content) {
+        metrics.roomSaveStarted();
         Long rId = Long.parseLong(roomId);
-        Long sId = Long.parseLong(senderId);
 
         RoomEntity room = roomRepo.findById(rId)
                 .orElseThrow(() -> new IllegalArgumentException("Room not found: " + roomId));
-        UserEntity sender = userRepo.findById(sId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + senderId));
+        UserEntity sender = resolveSender(senderId);
 
         MessageEntity m = new MessageEntity();
         m.setRoom(room);
         m.setSender(sender);
         m.setContent(content);
-        return messageRepo.save(m);
+        MessageEntity saved = messageRepo.save(m);
+        recentCache.append(ChatMessage.from(saved));
+        unread.roomMessageSaved(rId, saved.getId());
+        searchIndex.messageSaved(ChatMessage.from(saved));
+        return saved;
+    }
+
+    private UserEntity resolveSender(String sender) {
+        boolean numeric = !sender.isEmpty() && sender.chars().allMatch(Character::isDigit);
+        return (numeric ? userRepo.findById(Long.parseLong(sender)) : userRepo.findByUsername(sender))
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + sender));
     }
 }
@@ -0,0 +1,195 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.search.MessageSearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional write-behind persistence for room messages (chat.write-behind.enabled).
+ * - submit() assigns the id and timestamp, enqueues, and returns immediately so the caller can broadcast
+ * - one background thread drains the queue into multi-row JDBC batch inserts
+ *   (up to batch-size rows, waiting at most linger-ms for a batch to fill)
+ * - the queue is bounded: a full queue blocks the sender for offer-timeout-ms, then rejects
+ * - remaining messages are flushed on shutdown
+ * - queued messages were already broadcast, so a failing insert is retried with backoff while running (the
+ *   queue fills up and submit() pushes back); at shutdown after MAX_ATTEMPTS, or right after an interrupt,
+ *   the batch gets one last synchronous attempt and is then dropped and counted in failed
+ */
+@Component
+public class MessageWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (id, room_id, sender_id, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Value("${chat.write-behind.enabled:false}")
+    private boolean enabled;
+    @Value("${chat.write-behind.batch-size:500}")
+    private int batchSize;
+    @Value("${chat.write-behind.linger-ms:5}")
+    private long lingerMs;
+    @Value("${chat.write-behind.queue-capacity:50000}")
+    private int queueCapacity;
+    @Value("${chat.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final RecentMessageCache recentCache;
+    private final SnowflakeIdGenerator ids;
+    private final UnreadCounters unread;
+    private final MessageSearchIndex searchIndex;
+
+    private BlockingQueue<ChatMessage> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public MessageWriteBehind(JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                              RecentMessageCache recentCache, SnowflakeIdGenerator ids, UnreadCounters unread,
+                              MessageSearchIndex searchIndex) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.recentCache = recentCache;
+        this.ids = ids;
+        this.unread = unread;
+        this.searchIndex = searchIndex;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        worker = new Thread(this::drainLoop, "message-write-behind");
+        worker.setDaemon(false);
+        worker.start();
+    }
+
+    /** Flush everything still queued before the DataSource goes away. */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (worker == null) return;
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            failed.add(queue.size());
+            log.error("Write-behind shutdown left {} messages unpersisted", queue.size());
+        }
+    }
+
+    /**
+     * Accept an already validated message.
+     * @throws IllegalStateException when the queue stays full for offer-timeout-ms (backpressure)
+     */
+    public ChatMessage submit(Long roomId, Long senderId, String content) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind is not running");
+        }
+        ChatMessage m = new ChatMessage(ids.nextId(), roomId, senderId, null, content,
+                Instant.now().truncatedTo(ChronoUnit.MICROS));
+        try {
+            if (queue.offer(m, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return m;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new IllegalStateException("Message queue is full, try again");
+    }
+
+    private void drainLoop() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) break;
+                    ChatMessage next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // keep draining; stop() ends the loop via the running flag
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ChatMessage> batch) {
+        boolean interrupted = false;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, m) -> {
+                    ps.setLong(1, m.getId());
+                    ps.setLong(2, m.getRoomId());
+                    ps.setLong(3, m.getSenderId());
+                    ps.setString(4, m.getContent());
+                    ps.setTimestamp(5, Timestamp.from(m.getTimestamp()));
+                }));
+                break;
+            } catch (DataAccessException e) {
+                if (interrupted || (!running && attempt >= MAX_ATTEMPTS)) {
+                    failed.add(batch.size());
+                    log.error("Dropping {} broadcast messages after {} failed batch inserts", batch.size(), attempt, e);
+                    return;
+                }
+                if (attempt == 1 || attempt % 100 == 0) {
+                    log.error("Inserting {} messages failed (attempt {}); retrying", batch.size(), attempt, e);
+                }
+                try {
+                    Thread.sleep(Math.min(50L * attempt, 5000));
+                } catch (InterruptedException ie) {
+                    interrupted = true; // no more waiting, but the batch still gets its last attempt
+                }
+            }
+        }
+        persisted.add(batch.size());
+        batches.increment();
+        // history readers only see a message once it is durable, same as the synchronous path
+        batch.forEach(recentCache::append);
+        batch.forEach(m -> unread.roomMessageSaved(m.getRoomId(), m.getId()));
+        batch.forEach(searchIndex::messageSaved);
+    }
+
+    // ---------- Stats ----------
+    public int getQueueDepth() { return queue != null ? queue.size() : 0; }
+    public long getPersisted() { return persisted.sum(); }
+    public long getBatches() { return batches.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public long getFailed() { return failed.sum(); }
+}
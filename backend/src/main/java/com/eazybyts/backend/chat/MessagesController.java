@@ -1,30 +1,60 @@
 package com.eazybyts.backend.chat;
 
+import com.eazybyts.backend.ratelimit.FloodControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.security.Principal;
 
 @RestController
 @RequestMapping("/api/messages")
 public class MessagesController {
 
     private final MessageService messageService;
+    private final MessageExporter exporter;
+    private final FloodControl floodControl;
 
-    public MessagesController(MessageService messageService) {
+    public MessagesController(MessageService messageService, MessageExporter exporter, FloodControl floodControl) {
         this.messageService = messageService;
+        this.exporter = exporter;
+        this.floodControl = floodControl;
     }
 
-    // GET /api/messages/room/{roomId}
+    // GET /api/messages/room/{roomId}?before=123&limit=50  (or ?after=123 to catch up)
     @GetMapping("/room/{roomId}")
-    public List<ChatMessage> getMessagesForRoom(@PathVariable Long roomId) {
-        return ChatMessage.fromMessages(messageService.getMessagesForRoom(roomId));
+    public MessagePage getMessagesForRoom(@PathVariable Long roomId,
+                                          @RequestParam(required = false) Long before,
+                                          @RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit) {
+        return messageService.getMessagesForRoom(roomId, before, after, limit);
+    }
+
+    // GET /api/messages/room/{roomId}/export?after=123  → whole history, oldest first, one JSON object per line
+    @GetMapping(value = "/room/{roomId}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRoomNdjson(@PathVariable Long roomId,
+                                                                  @RequestParam(required = false) Long after) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(exporter.ndjson(roomId, after));
+    }
+
+    // same with Accept: text/event-stream; a Last-Event-ID header resumes like ?after
+    @GetMapping(value = "/room/{roomId}/export", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRoomSse(
+            @PathVariable Long roomId,
+            @RequestParam(required = false) Long after,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(exporter.sse(roomId, lastEventId != null ? lastEventId : after));
     }
 
     // POST /api/messages/room/{roomId}
     @PostMapping("/room/{roomId}")
     public ChatMessage sendToRoom(@PathVariable Long roomId,
                                   @RequestParam String senderId,
-                                  @RequestParam String content) {
-        MessageEntity saved = messageService.saveMessage(roomId, senderId, content);
-        return ChatMessage.from(saved);
+                                  @RequestParam String content,
+                                  Principal principal) {
+        floodControl.check(FloodControl.Budget.CHAT, principal, senderId);
+        return messageService.postToRoom(String.valueOf(roomId), senderId, content);
     }
 }
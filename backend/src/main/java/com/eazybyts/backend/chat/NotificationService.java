@@ -1,11 +1,32 @@
 package com.eazybyts.backend.chat;
 
+import com.eazybyts.backend.notification.NotificationDispatcher;
+import com.eazybyts.backend.notification.PushNotification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class NotificationService {
+    private final NotificationDispatcher dispatcher;
+
+    public NotificationService(NotificationDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    // Never sends inline: inside a transaction the push is queued after commit (nothing for a rolled-back DM),
+    // otherwise right away. Delivery, batching and retries happen on the dispatcher's threads.
     public void sendToToken(String fcmToken, String title, String body) {
-        // TODO: integrate Firebase later; keeping no-op for now so build succeeds
-        // log.debug("Would send FCM to {}: {} - {}", fcmToken, title, body);
+        PushNotification push = new PushNotification(fcmToken, title, body);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.enqueue(push);
+                }
+            });
+        } else {
+            dispatcher.enqueue(push);
+        }
     }
 }
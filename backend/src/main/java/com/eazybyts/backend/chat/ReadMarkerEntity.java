@@ -0,0 +1,64 @@
+package com.eazybyts.backend.chat;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Checkpoint of one user's read position in a room (kind ROOM, target = room id)
+ * or in a DM conversation (kind DM, target = the peer's user id).
+ * Written in batches by UnreadCounters; the live copy is in memory.
+ */
+@Entity
+@Table(name = "read_markers")
+@IdClass(ReadMarkerEntity.Key.class)
+public class ReadMarkerEntity {
+    public static final String ROOM = "ROOM";
+    public static final String DM = "DM";
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(length = 4)
+    private String kind;
+
+    @Id
+    @Column(name = "target_id")
+    private Long targetId;
+
+    // newest message id the user has read
+    @Column(name = "last_read_id", nullable = false)
+    private long lastReadId;
+
+    // how many of the target's messages were at or before lastReadId when it was set
+    @Column(name = "read_count", nullable = false)
+    private long readCount;
+
+    public ReadMarkerEntity() {}
+
+    public Long getUserId() { return userId; }
+    public String getKind() { return kind; }
+    public Long getTargetId() { return targetId; }
+    public long getLastReadId() { return lastReadId; }
+    public long getReadCount() { return readCount; }
+
+    public static class Key implements Serializable {
+        private Long userId;
+        private String kind;
+        private Long targetId;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(userId, k.userId) && Objects.equals(kind, k.kind)
+                    && Objects.equals(targetId, k.targetId);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(userId, kind, targetId); }
+    }
+}
@@ -0,0 +1,10 @@
+package com.eazybyts.backend.chat;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReadMarkerRepository extends JpaRepository<ReadMarkerEntity, ReadMarkerEntity.Key> {
+    // a user's markers, loaded once when UnreadCounters first needs them
+    List<ReadMarkerEntity> findByUserId(Long userId);
+}
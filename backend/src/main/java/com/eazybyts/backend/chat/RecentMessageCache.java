@@ -0,0 +1,223 @@
+package com.eazybyts.backend.chat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the most recent ChatMessages per room.
+ * - Each room keeps a ring buffer sorted by id that covers every message with id >= its floor
+ * - saveToRoom writes through after commit; a miss on the newest page seeds the buffer from the DB
+ * - Total size is held under a global byte budget by evicting least recently used rooms
+ */
+@Component
+public class RecentMessageCache {
+
+    @Value("${chat.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${chat.cache.room-capacity:500}")
+    private int roomCapacity;
+    @Value("${chat.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // access-ordered: iteration starts at the coldest room
+    private final LinkedHashMap<Long, RoomBuffer> rooms = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Serve a history window from memory, or null if the buffer cannot prove it has every row
+     * the same keyset query would return.
+     */
+    public MessagePage read(Long roomId, Long before, Long after, int size) {
+        if (!enabled) return null;
+        RoomBuffer buf;
+        synchronized (rooms) {
+            buf = rooms.get(roomId);
+        }
+        MessagePage page = buf != null ? buf.window(before, after, size) : null;
+        if (page != null) hits.increment(); else misses.increment();
+        return page;
+    }
+
+    /** Seed a room from a newest-page DB read (rows in any order, complete = no older rows exist). */
+    public void seed(Long roomId, List<ChatMessage> rows, boolean complete) {
+        if (!enabled || rows.isEmpty()) return;
+        RoomBuffer buf = bufferFor(roomId);
+        long delta = buf.merge(rows, complete);
+        account(delta, roomId);
+    }
+
+    /** Write-through for a newly saved message; deferred until commit when a transaction is active. */
+    public void append(ChatMessage m) {
+        if (!enabled || m.getRoomId() == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appendNow(m);
+                }
+            });
+        } else {
+            appendNow(m);
+        }
+    }
+
+    private void appendNow(ChatMessage m) {
+        RoomBuffer buf = bufferFor(m.getRoomId());
+        account(buf.add(m), m.getRoomId());
+    }
+
+    public void evict(Long roomId) {
+        RoomBuffer buf;
+        synchronized (rooms) {
+            buf = rooms.remove(roomId);
+        }
+        if (buf != null) bytes.addAndGet(-buf.detach());
+    }
+
+    private RoomBuffer bufferFor(Long roomId) {
+        synchronized (rooms) {
+            return rooms.computeIfAbsent(roomId, id -> new RoomBuffer(roomCapacity));
+        }
+    }
+
+    private void account(long delta, Long touchedRoom) {
+        if (bytes.addAndGet(delta) <= maxBytes) return;
+        synchronized (rooms) {
+            Iterator<Map.Entry<Long, RoomBuffer>> it = rooms.entrySet().iterator();
+            while (bytes.get() > maxBytes && it.hasNext()) {
+                Map.Entry<Long, RoomBuffer> e = it.next();
+                if (e.getKey().equals(touchedRoom) && rooms.size() > 1) continue;
+                it.remove();
+                bytes.addAndGet(-e.getValue().detach());
+                evictions.increment();
+            }
+        }
+    }
+
+    // ---------- Stats ----------
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getBytes() { return bytes.get(); }
+    public int getRoomCount() { synchronized (rooms) { return rooms.size(); } }
+
+    static long estimateBytes(ChatMessage m) {
+        // object headers + boxed fields + Instant, plus UTF-16 content
+        int len = m.getContent() != null ? m.getContent().length() : 0;
+        return 120L + 2L * len;
+    }
+
+    /**
+     * Fixed-capacity ring of messages sorted by id.
+     * Invariant: every message of the room with id >= floor() is present; complete means nothing older exists.
+     */
+    static final class RoomBuffer {
+        private final ChatMessage[] ring;
+        private int head;   // index of the oldest element
+        private int size;
+        private boolean complete;
+        private long bytes;
+        private long lost;  // rows dropped or refused for lack of space; coverage below the floor is gone
+        private boolean detached; // evicted from the map; late writers must not count against the budget
+
+        RoomBuffer(int capacity) {
+            this.ring = new ChatMessage[Math.max(1, capacity)];
+        }
+
+        private ChatMessage at(int i) { return ring[(head + i) % ring.length]; }
+
+        synchronized long detach() {
+            detached = true;
+            return bytes;
+        }
+
+        /** Insert keeping id order; returns the byte delta. */
+        synchronized long add(ChatMessage m) {
+            long before = bytes;
+            insert(m);
+            return bytes - before;
+        }
+
+        synchronized long merge(List<ChatMessage> rows, boolean rowsComplete) {
+            long before = bytes;
+            long lostBefore = lost;
+            for (ChatMessage m : rows) insert(m);
+            // a complete seed proves nothing older exists, unless the ring had to give some of it up
+            if (rowsComplete && lost == lostBefore) complete = true;
+            return bytes - before;
+        }
+
+        private void insert(ChatMessage m) {
+            if (detached) return;
+            long id = m.getId();
+            // position = number of elements with smaller id (scan from the tail, the common case is append)
+            int pos = size;
+            while (pos > 0 && at(pos - 1).getId() >= id) {
+                if (at(pos - 1).getId() == id) return; // already cached
+                pos--;
+            }
+            if (size == ring.length) {
+                if (pos == 0) { // older than everything we cover
+                    lost++;
+                    complete = false;
+                    return;
+                }
+                dropOldest();
+                pos--;
+            }
+            // shift [pos, size) one slot towards the tail
+            for (int i = size; i > pos; i--) {
+                ring[(head + i) % ring.length] = at(i - 1);
+            }
+            ring[(head + pos) % ring.length] = m;
+            size++;
+            bytes += estimateBytes(m);
+        }
+
+        private void dropOldest() {
+            bytes -= estimateBytes(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            lost++;
+            complete = false;
+        }
+
+        synchronized MessagePage window(Long before, Long after, int limit) {
+            if (size == 0) return null;
+            long floor = at(0).getId();
+            List<ChatMessage> rows = new ArrayList<>(Math.min(limit + 1, size));
+            if (after != null) {
+                // ids in (after, floor) might be missing unless we know nothing older exists
+                if (!complete && after < floor - 1) return null;
+                for (int i = 0; i < size && rows.size() <= limit; i++) {
+                    ChatMessage m = at(i);
+                    if (m.getId() > after) rows.add(m);
+                }
+                return MessagePage.fromRows(rows, limit, true, x -> x);
+            }
+            for (int i = size - 1; i >= 0 && rows.size() <= limit; i--) {
+                ChatMessage m = at(i);
+                if (before == null || m.getId() < before) rows.add(m);
+            }
+            // not enough rows above the floor to fill the page: only the DB knows what is older
+            if (rows.size() <= limit && !complete) return null;
+            return MessagePage.fromRows(rows, limit, false, x -> x);
+        }
+    }
+}
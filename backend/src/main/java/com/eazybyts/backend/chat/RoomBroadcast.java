@@ -0,0 +1,13 @@
+package com.eazybyts.backend.chat;
+
+/**
+ * Wire format on /topic/room.{roomId}: flat, immutable, no entity references.
+ * id is a string because Snowflake ids exceed 2^53 (see ChatMessage).
+ */
+public record RoomBroadcast(String id, String room, String sender, Long senderId, String content, String createdAt) {
+
+    public static RoomBroadcast of(ChatMessage m, String room, String senderName) {
+        return new RoomBroadcast(String.valueOf(m.getId()), room, senderName, m.getSenderId(), m.getContent(),
+                m.getTimestamp().toString());
+    }
+}
@@ -0,0 +1,63 @@
+package com.eazybyts.backend.chat;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered 64-bit ids, Snowflake layout:
+ *   [1 unused][41 bits ms since 2024-01-01][10 bits node][12 bits sequence]
+ * - Lock-free: (millis, sequence) live in one AtomicLong advanced by CAS
+ * - More than 4096 ids in one ms, or a clock that steps back, just carries into the next
+ *   logical ms, so ids never repeat or go backwards on a node
+ * - One instance per node id (forNode), shared by Hibernate and the write-behind path
+ */
+public final class SnowflakeIdGenerator {
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private static final ConcurrentHashMap<Long, SnowflakeIdGenerator> NODES = new ConcurrentHashMap<>();
+
+    private final long nodeBits;
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    private SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    public static SnowflakeIdGenerator forNode(long nodeId) {
+        return NODES.computeIfAbsent(nodeId, SnowflakeIdGenerator::new);
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1;
+            if (state.compareAndSet(prev, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getNodeId() { return nodeBits >>> SEQUENCE_BITS; }
+
+    /** Creation time encoded in an id (logical ms, so it can run slightly ahead under bursts). */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS);
+    }
+
+    /** Smallest id any node could have produced at or after the given instant; handy as a keyset cursor. */
+    public static long firstIdAt(Instant instant) {
+        return Math.max(0, instant.toEpochMilli() - EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+    }
+}
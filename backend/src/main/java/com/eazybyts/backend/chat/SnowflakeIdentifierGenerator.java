@@ -0,0 +1,31 @@
+package com.eazybyts.backend.chat;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+/**
+ * Hibernate side of @SnowflakeId. The node id comes from the Hibernate setting chat.ids.node-id,
+ * which application.yml forwards from the Spring property of the same name.
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+    public static final String NODE_ID_SETTING = "chat.ids.node-id";
+
+    private final SnowflakeIdGenerator ids;
+
+    public SnowflakeIdentifierGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object nodeId = context.getServiceRegistry()
+                .getService(ConfigurationService.class)
+                .getSettings()
+                .get(NODE_ID_SETTING);
+        this.ids = SnowflakeIdGenerator.forNode(nodeId != null ? Long.parseLong(nodeId.toString().trim()) : 0L);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return ids.nextId();
+    }
+}
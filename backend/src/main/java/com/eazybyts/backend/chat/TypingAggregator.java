@@ -0,0 +1,124 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces typing events into per-room snapshots.
+ * - typing()/stopped() only touch in-memory state; nothing is sent from the caller's thread
+ * - every chat.typing.interval-ms a tick expires stale typists and, for rooms whose set changed,
+ *   sends one TypingNotification to /topic/typing.{room}
+ * So a room sees at most one typing frame per interval however many keystroke events arrive.
+ */
+@Component
+public class TypingAggregator {
+    private static final Logger log = LoggerFactory.getLogger(TypingAggregator.class);
+
+    @Value("${chat.typing.interval-ms:500}")
+    private long intervalMs;
+    @Value("${chat.typing.expiry-ms:3000}")
+    private long expiryMs;
+
+    private final SimpMessagingTemplate broker;
+    private final BroadcastEncoder encoder;
+    private final ConcurrentHashMap<Long, RoomTyping> rooms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    private final LongAdder eventsIn = new LongAdder();
+    private final LongAdder snapshotsOut = new LongAdder();
+
+    private static final class RoomTyping {
+        // username → expiry (epoch ms)
+        final ConcurrentHashMap<String, Long> typists = new ConcurrentHashMap<>();
+        volatile boolean dirty;
+        List<String> lastSent = List.of(); // only touched by the ticker thread
+    }
+
+    public TypingAggregator(SimpMessagingTemplate broker, BroadcastEncoder encoder) {
+        this.broker = broker;
+        this.encoder = encoder;
+    }
+
+    @PostConstruct
+    void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "typing-aggregator");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    public void typing(Long roomId, String username) {
+        eventsIn.increment();
+        RoomTyping room = rooms.computeIfAbsent(roomId, id -> new RoomTyping());
+        if (room.typists.put(username, System.currentTimeMillis() + expiryMs) == null) {
+            room.dirty = true;
+        }
+    }
+
+    public void stopped(Long roomId, String username) {
+        eventsIn.increment();
+        RoomTyping room = rooms.get(roomId);
+        if (room != null && room.typists.remove(username) != null) {
+            room.dirty = true;
+        }
+    }
+
+    void tick() {
+        long now = System.currentTimeMillis();
+        for (var entry : rooms.entrySet()) {
+            try {
+                flushRoom(entry.getKey(), entry.getValue(), now);
+            } catch (RuntimeException e) {
+                log.warn("Typing snapshot for room {} failed", entry.getKey(), e);
+            }
+        }
+    }
+
+    private void flushRoom(Long roomId, RoomTyping room, long now) {
+        if (room.typists.values().removeIf(expiry -> expiry <= now)) {
+            room.dirty = true;
+        }
+        if (room.dirty) {
+            room.dirty = false;
+            List<String> users = new ArrayList<>(room.typists.keySet());
+            Collections.sort(users);
+            if (!users.equals(room.lastSent)) {
+                room.lastSent = List.copyOf(users);
+                String destination = "/topic/typing." + roomId;
+                broker.send(destination, encoder.encode(destination, new TypingNotification(roomId, room.lastSent)));
+                snapshotsOut.increment();
+            }
+        }
+        if (room.typists.isEmpty() && room.lastSent.isEmpty()) {
+            // idle room: drop it unless a typing() call re-populated it meanwhile
+            rooms.computeIfPresent(roomId, (id, r) -> r.typists.isEmpty() && !r.dirty ? null : r);
+        }
+    }
+
+    // ---------- Stats ----------
+    public long getEventsIn() { return eventsIn.sum(); }
+    public long getSnapshotsOut() { return snapshotsOut.sum(); }
+    public int getActiveRooms() { return rooms.size(); }
+}
@@ -1,16 +1,25 @@
 // src/main/java/com/eazybyts/backend/chat/TypingNotification.java
 package com.eazybyts.backend.chat;
 
+import java.util.List;
+
+/**
+ * Wire format on /topic/typing.{roomId}: the full set of users typing in a room right now.
+ * Sent by TypingAggregator only when the set changes; an empty list means nobody is typing.
+ */
 public class TypingNotification {
-    private String username;   // user who is typing
-    private Long roomId;       // if typing in a room
-    private String targetUser; // if typing in a direct chat
+    private Long roomId;
+    private List<String> users;
 
     public TypingNotification() {}
-    public TypingNotification(String username, Long roomId, String targetUser) {
-        this.username = username;
+    public TypingNotification(Long roomId, List<String> users) {
         this.roomId = roomId;
-        this.targetUser = targetUser;
+        this.users = users;
     }
-    // Getters and setters...
+
+    public Long getRoomId() { return roomId; }
+    public void setRoomId(Long roomId) { this.roomId = roomId; }
+
+    public List<String> getUsers() { return users; }
+    public void setUsers(List<String> users) { this.users = users; }
 }
@@ -0,0 +1,14 @@
+package com.eazybyts.backend.chat;
+
+import java.util.Map;
+
+/** Unread counts keyed by room id and by DM peer id; targets with nothing unread are left out. */
+public record UnreadBadges(Map<Long, Long> rooms, Map<Long, Long> directMessages, long total) {
+
+    public static UnreadBadges of(Map<Long, Long> rooms, Map<Long, Long> directMessages) {
+        long total = 0;
+        for (long n : rooms.values()) total += n;
+        for (long n : directMessages.values()) total += n;
+        return new UnreadBadges(rooms, directMessages, total);
+    }
+}
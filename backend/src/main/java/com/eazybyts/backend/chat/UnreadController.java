@@ -0,0 +1,38 @@
+package com.eazybyts.backend.chat;
+
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/unread")
+public class UnreadController {
+
+    private final UnreadCounters unread;
+
+    public UnreadController(UnreadCounters unread) {
+        this.unread = unread;
+    }
+
+    // GET /api/unread?userId=1  → {"rooms":{"3":12},"directMessages":{"2":1},"total":13}
+    @GetMapping
+    public UnreadBadges badges(@RequestParam Long userId) {
+        return unread.badges(userId);
+    }
+
+    // POST /api/unread/room/{roomId}/read?userId=1&lastReadId=123  (no lastReadId = all read)
+    @PostMapping("/room/{roomId}/read")
+    public UnreadBadges markRoomRead(@PathVariable Long roomId,
+                                     @RequestParam Long userId,
+                                     @RequestParam(required = false) Long lastReadId) {
+        unread.markRoomRead(userId, roomId, lastReadId);
+        return unread.badges(userId);
+    }
+
+    // POST /api/unread/dm/{peerId}/read?userId=1&lastReadId=123
+    @PostMapping("/dm/{peerId}/read")
+    public UnreadBadges markDirectRead(@PathVariable Long peerId,
+                                       @RequestParam Long userId,
+                                       @RequestParam(required = false) Long lastReadId) {
+        unread.markDirectRead(userId, peerId, lastReadId);
+        return unread.badges(userId);
+    }
+}
@@ -0,0 +1,281 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unread badges without counting rows on read.
+ * - Every room and every DM direction (sender → recipient) has an in-memory message counter, bumped when a
+ *   message commits; the counters are seeded once at startup with one grouped count per table
+ * - A read marker remembers how many of the target's messages the user had read (readCount), so
+ *   unread = counter - readCount, an O(1) subtraction per room / peer
+ * - Archived messages (ColdHistoryStore) count too: seeded from the archive's totals, and included in range counts
+ * - Setting a marker behind the newest message costs one indexed range count; at the newest message, none
+ * - Markers live in memory (loaded per user on first use) and are checkpointed to read_markers every
+ *   chat.unread.checkpoint-ms in one JDBC batch, and on shutdown
+ */
+@Component
+public class UnreadCounters {
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounters.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE read_markers SET last_read_id = ?, read_count = ? WHERE user_id = ? AND kind = ? AND target_id = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO read_markers (last_read_id, read_count, user_id, kind, target_id) VALUES (?, ?, ?, ?, ?)";
+
+    @Value("${chat.unread.checkpoint-ms:5000}")
+    private long checkpointMs;
+
+    private final MessageRepository messageRepo;
+    private final DirectMessageRepository dmRepo;
+    private final ReadMarkerRepository markerRepo;
+    private final ColdHistoryStore history;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private final ConcurrentHashMap<Long, Counter> rooms = new ConcurrentHashMap<>();
+    // recipient → sender → messages sent to the recipient
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Counter>> inboxes = new ConcurrentHashMap<>();
+    // user → that user's markers
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<MarkerKey, Marker>> markers = new ConcurrentHashMap<>();
+    private final Set<MarkerKey> dirty = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService checkpointer;
+
+    private final LongAdder checkpoints = new LongAdder();
+    private final LongAdder markersWritten = new LongAdder();
+    private final LongAdder baselineCounts = new LongAdder();
+
+    record MarkerKey(long userId, String kind, long targetId) {}
+
+    record Marker(long lastReadId, long readCount) {}
+
+    record Totals(long count, long latestId) {}
+
+    // count and latestId change together: a marker taken between two separate updates would count a
+    // message above its lastReadId as read
+    static final class Counter {
+        private final AtomicReference<Totals> totals = new AtomicReference<>(new Totals(0, Long.MIN_VALUE));
+
+        void add(long messages, long newestId) {
+            totals.updateAndGet(t -> new Totals(t.count() + messages, Math.max(t.latestId(), newestId)));
+        }
+
+        Totals snapshot() { return totals.get(); }
+    }
+
+    // messages of one target with an id in (after, upTo]
+    @FunctionalInterface
+    interface RangeCount {
+        long count(long after, long upTo);
+    }
+
+    public UnreadCounters(MessageRepository messageRepo, DirectMessageRepository dmRepo,
+                          ReadMarkerRepository markerRepo, ColdHistoryStore history, JdbcTemplate jdbc,
+                          PlatformTransactionManager txManager) {
+        this.messageRepo = messageRepo;
+        this.dmRepo = dmRepo;
+        this.markerRepo = markerRepo;
+        this.history = history;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    // the repositories above already made JPA create the tables, so the seed queries can run here
+    @PostConstruct
+    void start() {
+        jdbc.query("SELECT room_id, COUNT(*), MAX(id) FROM messages GROUP BY room_id",
+                rs -> { room(rs.getLong(1)).add(rs.getLong(2), rs.getLong(3)); });
+        jdbc.query("SELECT receiver_id, sender_id, COUNT(*), MAX(id) FROM direct_messages GROUP BY receiver_id, sender_id",
+                rs -> { inbox(rs.getLong(1), rs.getLong(2)).add(rs.getLong(3), rs.getLong(4)); });
+        for (ColdHistoryStore.ArchivedTotals t : history.totals()) {
+            Counter counter = t.roomId() != null ? room(t.roomId()) : inbox(t.recipientId(), t.senderId());
+            counter.add(t.count(), t.maxId());
+        }
+        log.info("Unread counters seeded for {} rooms and {} DM inboxes", rooms.size(), inboxes.size());
+
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "unread-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, checkpointMs, checkpointMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        checkpointer.shutdownNow();
+        checkpoint();
+    }
+
+    // ---------- Message events ----------
+
+    /** A room message was saved; counted once its transaction commits (at once outside a transaction). */
+    public void roomMessageSaved(long roomId, long messageId) {
+        afterCommit(() -> room(roomId).add(1, messageId));
+    }
+
+    /** A direct message was saved; counted for the recipient once its transaction commits. */
+    public void directMessageSaved(long senderId, long recipientId, long messageId) {
+        afterCommit(() -> inbox(recipientId, senderId).add(1, messageId));
+    }
+
+    private static void afterCommit(Runnable count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count.run();
+            }
+        });
+    }
+
+    // ---------- Read markers ----------
+
+    /** lastReadId null = everything read. Markers only move forward; an older id is ignored. */
+    public void markRoomRead(long userId, long roomId, Long lastReadId) {
+        Counter counter = rooms.get(roomId);
+        if (counter == null) return; // nothing posted yet, nothing unread
+        mark(new MarkerKey(userId, ReadMarkerEntity.ROOM, roomId), counter, lastReadId,
+                (after, upTo) -> messageRepo.countByRoom_IdAndIdGreaterThanAndIdLessThanEqual(roomId, after, upTo)
+                        + history.countAfter(ColdHistoryStore.roomStream(roomId), after, null));
+    }
+
+    /** Marks the messages peerId sent to userId as read, up to lastReadId (null = all). */
+    public void markDirectRead(long userId, long peerId, Long lastReadId) {
+        Map<Long, Counter> inbox = inboxes.get(userId);
+        Counter counter = inbox != null ? inbox.get(peerId) : null;
+        if (counter == null) return;
+        String conversation = DirectMessageEntity.conversationKey(userId, peerId);
+        mark(new MarkerKey(userId, ReadMarkerEntity.DM, peerId), counter, lastReadId,
+                (after, upTo) -> dmRepo.countByConversationKeyAndSender_IdAndIdGreaterThanAndIdLessThanEqual(
+                                conversation, peerId, after, upTo)
+                        + history.countAfter(ColdHistoryStore.conversationStream(conversation), after, peerId));
+    }
+
+    private void mark(MarkerKey key, Counter counter, Long lastReadId, RangeCount countNewer) {
+        Totals totals = counter.snapshot();
+        long latest = totals.latestId();
+        Marker marker;
+        if (lastReadId == null || lastReadId >= latest) {
+            marker = new Marker(lastReadId != null ? lastReadId : latest, totals.count());
+        } else {
+            Marker current = markersOf(key.userId()).get(key);
+            if (current != null && current.lastReadId() >= lastReadId) return;
+            baselineCounts.increment();
+            // bounded by the snapshot's newest id: rows committed since are not in totals.count() either
+            long newer = countNewer.count(lastReadId, latest);
+            marker = new Marker(lastReadId, Math.max(0, totals.count() - newer));
+        }
+        Marker kept = markersOf(key.userId()).merge(key, marker,
+                (old, fresh) -> fresh.lastReadId() > old.lastReadId() ? fresh : old);
+        if (kept == marker) {
+            dirty.add(key);
+        }
+    }
+
+    /** Unread message counts for every room and DM peer with anything unread; ids as keys. */
+    public UnreadBadges badges(long userId) {
+        Map<MarkerKey, Marker> mine = markersOf(userId);
+        Map<Long, Long> roomBadges = new TreeMap<>();
+        rooms.forEach((roomId, counter) ->
+                putUnread(roomBadges, roomId, counter, mine.get(new MarkerKey(userId, ReadMarkerEntity.ROOM, roomId))));
+        Map<Long, Long> dmBadges = new TreeMap<>();
+        Map<Long, Counter> inbox = inboxes.get(userId);
+        if (inbox != null) {
+            inbox.forEach((peerId, counter) ->
+                    putUnread(dmBadges, peerId, counter, mine.get(new MarkerKey(userId, ReadMarkerEntity.DM, peerId))));
+        }
+        return UnreadBadges.of(roomBadges, dmBadges);
+    }
+
+    private static void putUnread(Map<Long, Long> badges, Long target, Counter counter, Marker marker) {
+        long unread = counter.snapshot().count() - (marker != null ? marker.readCount() : 0);
+        if (unread > 0) badges.put(target, unread);
+    }
+
+    private Counter room(long roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new Counter());
+    }
+
+    private Counter inbox(long recipientId, long senderId) {
+        return inboxes.computeIfAbsent(recipientId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(senderId, id -> new Counter());
+    }
+
+    // loaded outside the map so a slow query does not block other users' lookups
+    private ConcurrentHashMap<MarkerKey, Marker> markersOf(long userId) {
+        ConcurrentHashMap<MarkerKey, Marker> mine = markers.get(userId);
+        if (mine != null) return mine;
+        ConcurrentHashMap<MarkerKey, Marker> loaded = new ConcurrentHashMap<>();
+        for (ReadMarkerEntity e : markerRepo.findByUserId(userId)) {
+            loaded.put(new MarkerKey(userId, e.getKind(), e.getTargetId()), new Marker(e.getLastReadId(), e.getReadCount()));
+        }
+        mine = markers.putIfAbsent(userId, loaded);
+        return mine != null ? mine : loaded;
+    }
+
+    // ---------- Checkpoint ----------
+
+    /** Writes every marker changed since the last checkpoint in one batch; failed keys are retried next time. */
+    void checkpoint() {
+        if (dirty.isEmpty()) return;
+        List<MarkerKey> keys = new ArrayList<>();
+        for (Iterator<MarkerKey> it = dirty.iterator(); it.hasNext(); ) {
+            keys.add(it.next());
+            it.remove();
+        }
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (MarkerKey k : keys) {
+            Marker m = markers.get(k.userId()).get(k);
+            rows.add(new Object[] {m.lastReadId(), m.readCount(), k.userId(), k.kind(), k.targetId()});
+        }
+        try {
+            tx.executeWithoutResult(status -> {
+                int[] updated = jdbc.batchUpdate(UPDATE_SQL, rows);
+                List<Object[]> missing = new ArrayList<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) missing.add(rows.get(i));
+                }
+                if (!missing.isEmpty()) jdbc.batchUpdate(INSERT_SQL, missing);
+            });
+            checkpoints.increment();
+            markersWritten.add(rows.size());
+        } catch (DataAccessException e) {
+            dirty.addAll(keys);
+            log.warn("Read marker checkpoint of {} markers failed, will retry", keys.size(), e);
+        }
+    }
+
+    // ---------- Stats ----------
+    public int getDirtyMarkers() { return dirty.size(); }
+    public long getCheckpoints() { return checkpoints.sum(); }
+    public long getMarkersWritten() { return markersWritten.sum(); }
+    public long getBaselineCounts() { return baselineCounts.sum(); }
+}
@@ -0,0 +1,26 @@
+package com.eazybyts.backend.cluster;
+
+/**
+ * Carries broker publications between backend nodes. ClusterRelay is the only caller; TcpClusterBus is
+ * the built-in implementation, and any other transport can be plugged in as a ClusterBus bean.
+ * - addInterest/removeInterest: this node gained its first / lost its last subscriber for a destination
+ *   (exact, or a pattern such as /topic/room.*); implementations pass it on to the other nodes
+ * - publish: send to every other node that declared an interest matching the destination, and to no one else
+ */
+public interface ClusterBus {
+
+    /** Received publications go to the listener from now on. */
+    void start(Listener listener);
+
+    void stop();
+
+    void addInterest(String destination);
+
+    void removeInterest(String destination);
+
+    void publish(String destination, String contentType, byte[] payload);
+
+    interface Listener {
+        void onPublish(String destination, String contentType, byte[] payload);
+    }
+}
@@ -0,0 +1,40 @@
+package com.eazybyts.backend.cluster;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+
+import java.util.List;
+
+/**
+ * chat.cluster.enabled=true: relays chat.cluster.destinations between nodes (striped broker only, see BrokerConfig).
+ * The bus is TcpClusterBus unless the application defines its own ClusterBus bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(ClusterBus.class)
+    public TcpClusterBus tcpClusterBus(@Value("${chat.cluster.bind-address:}") String bindAddress,
+                                       @Value("${chat.cluster.port:7600}") int port,
+                                       @Value("${chat.cluster.peers:}") List<String> peers,
+                                       @Value("${chat.cluster.secret:}") String secret,
+                                       @Value("${chat.cluster.reconnect-ms:1000}") long reconnectMs,
+                                       @Value("${chat.cluster.queue-capacity:10000}") int queueCapacity) {
+        return new TcpClusterBus(bindAddress, port, peers, secret, reconnectMs, queueCapacity);
+    }
+
+    @Bean
+    public ClusterRelay clusterRelay(ClusterBus bus,
+                                     @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                     BroadcastEncoder encoder,
+                                     @Value("${chat.cluster.destinations:/topic/room.*,/topic/typing.*}") List<String> destinations) {
+        return new ClusterRelay(bus, brokerChannel, encoder, destinations);
+    }
+}
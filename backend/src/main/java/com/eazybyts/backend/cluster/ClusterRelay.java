@@ -0,0 +1,151 @@
+package com.eazybyts.backend.cluster;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.broker.BrokerRelay;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes the relayed destinations (chat.cluster.destinations, /topic/room.* and /topic/typing.* by default)
+ * behave as if every node shared one broker.
+ * - Counts this node's subscriptions per relayed destination: the first subscriber declares interest on the
+ *   ClusterBus and the last one to leave withdraws it, so other nodes only send what someone here listens to
+ * - Local publications to a relayed destination are handed to the bus as JSON bytes
+ * - Publications from other nodes are re-published to the local broker with REMOTE_HEADER set, which keeps
+ *   them from being relayed again; JSON arrives as a shared BroadcastFrame like a local broadcast
+ * Destinations outside the list (/topic/presence, /user/queue/...) stay local to the node.
+ */
+public class ClusterRelay implements BrokerRelay {
+    private static final Logger log = LoggerFactory.getLogger(ClusterRelay.class);
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    static final String REMOTE_HEADER = "chatClusterRemote";
+
+    private final ClusterBus bus;
+    private final MessageChannel brokerChannel;
+    private final BroadcastEncoder encoder;
+    private final List<String> destinations;
+
+    // guarded by this: session → subscription id → destination, and local subscribers per destination
+    private final Map<String, Map<String, String>> subscriptions = new HashMap<>();
+    private final Map<String, Integer> subscribers = new HashMap<>();
+
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    public ClusterRelay(ClusterBus bus, MessageChannel brokerChannel, BroadcastEncoder encoder, List<String> destinations) {
+        this.bus = bus;
+        this.brokerChannel = brokerChannel;
+        this.encoder = encoder;
+        this.destinations = List.copyOf(destinations);
+    }
+
+    @PostConstruct
+    void start() {
+        bus.start(this::deliver);
+    }
+
+    @PreDestroy
+    void stop() {
+        bus.stop();
+    }
+
+    // ---------- Local subscriptions ----------
+
+    @Override
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        if (!relayed(destination)) return;
+        synchronized (this) {
+            String previous = subscriptions.computeIfAbsent(sessionId, id -> new HashMap<>()).put(subscriptionId, destination);
+            if (previous != null) release(previous);
+            acquire(destination);
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> session = subscriptions.get(sessionId);
+        if (session == null) return;
+        String destination = session.remove(subscriptionId);
+        if (session.isEmpty()) subscriptions.remove(sessionId);
+        if (destination != null) release(destination);
+    }
+
+    @Override
+    public synchronized void disconnected(String sessionId) {
+        Map<String, String> session = subscriptions.remove(sessionId);
+        if (session != null) session.values().forEach(this::release);
+    }
+
+    private void acquire(String destination) {
+        if (subscribers.merge(destination, 1, Integer::sum) == 1) bus.addInterest(destination);
+    }
+
+    private void release(String destination) {
+        if (subscribers.computeIfPresent(destination, (d, n) -> n > 1 ? n - 1 : null) == null) {
+            bus.removeInterest(destination);
+        }
+    }
+
+    // ---------- Publications ----------
+
+    @Override
+    public void published(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        if (headers.containsKey(REMOTE_HEADER)) return;
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !relayed(destination) || !(message.getPayload() instanceof byte[] payload)) return;
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        bus.publish(destination, contentType != null ? contentType.toString() : "", payload);
+        relayed.increment();
+    }
+
+    private void deliver(String destination, String contentType, byte[] payload) {
+        if (!relayed(destination)) {
+            log.warn("Ignoring relayed message for non-relayed destination {}", destination);
+            return;
+        }
+        MimeType type = contentType.isEmpty() ? MimeTypeUtils.APPLICATION_JSON : MimeTypeUtils.parseMimeType(contentType);
+        Message<byte[]> message;
+        if (MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(type)) {
+            message = encoder.encodeJson(destination, payload);
+            MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class).setHeader(REMOTE_HEADER, true);
+        } else {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            accessor.setContentType(type);
+            accessor.setHeader(REMOTE_HEADER, true);
+            message = MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+        }
+        brokerChannel.send(message);
+        delivered.increment();
+    }
+
+    private boolean relayed(String destination) {
+        for (String pattern : destinations) {
+            if (pattern.equals(destination) || MATCHER.match(pattern, destination)) return true;
+        }
+        return false;
+    }
+
+    // ---------- Stats ----------
+    public long getRelayed() { return relayed.sum(); }
+    public long getDelivered() { return delivered.sum(); }
+    public synchronized int getInterestCount() { return subscribers.size(); }
+}
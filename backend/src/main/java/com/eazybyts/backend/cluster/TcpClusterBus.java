@@ -0,0 +1,391 @@
+package com.eazybyts.backend.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Peer-to-peer ClusterBus over plain TCP, no broker in between (chat.cluster.*).
+ * - Every node listens on chat.cluster.port and dials every address in chat.cluster.peers (its own address
+ *   may be listed too and is skipped, so all nodes can share one peer list)
+ * - On a dialed link the dialer sends publications and the other side sends its interest: a full snapshot
+ *   when the link comes up, then each change. Each pair of nodes therefore has two links, one per direction.
+ * - Publications only go to peers whose interest matches; each link has a writer thread and a queue of
+ *   chat.cluster.queue-capacity publications, beyond which they are dropped (a slow node never stalls the broker)
+ * - Lost links are redialed every chat.cluster.reconnect-ms; interest learned over a lost link is forgotten
+ * - With chat.cluster.secret set, a dialer that does not present it is disconnected
+ */
+public class TcpClusterBus implements ClusterBus {
+    private static final Logger log = LoggerFactory.getLogger(TcpClusterBus.class);
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    private static final int MAGIC = 0x43484231; // "CHB1"
+    private static final byte INTEREST_ADD = 1;
+    private static final byte INTEREST_REMOVE = 2;
+    private static final byte PUBLISH = 3;
+    private static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+
+    private final String bindAddress;
+    private final int port;
+    private final String secret;
+    private final long reconnectMs;
+    private final int queueCapacity;
+    private final List<Peer> peers = new ArrayList<>();
+
+    // guarded by this, together with the snapshot sent to each new accepted link
+    private final Set<String> localInterest = new HashSet<>();
+    private final List<Link> accepted = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private volatile ServerSocket server;
+    private volatile boolean running;
+    private Listener listener;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /** peers: "host:port" entries; bindAddress blank = all interfaces; port 0 = any free port (tests). */
+    public TcpClusterBus(String bindAddress, int port, List<String> peers, String secret,
+                         long reconnectMs, int queueCapacity) {
+        if (port < 0 || reconnectMs <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("chat.cluster.port, reconnect-ms and queue-capacity must be positive");
+        }
+        this.bindAddress = bindAddress == null ? "" : bindAddress.trim();
+        this.port = port;
+        this.secret = secret == null ? "" : secret;
+        this.reconnectMs = reconnectMs;
+        this.queueCapacity = queueCapacity;
+        for (String peer : peers) {
+            if (peer.isBlank()) continue;
+            int colon = peer.lastIndexOf(':');
+            if (colon <= 0) throw new IllegalArgumentException("Cluster peer must be host:port: " + peer);
+            InetSocketAddress address = InetSocketAddress.createUnresolved(peer.substring(0, colon).trim(),
+                    Integer.parseInt(peer.substring(colon + 1).trim()));
+            if (!isSelf(address)) this.peers.add(new Peer(address));
+        }
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        try {
+            ServerSocket socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            socket.bind(bindAddress.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+            server = socket;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for cluster peers on port " + port, e);
+        }
+        running = true;
+        daemon("cluster-accept", this::acceptLoop);
+        for (Peer peer : peers) daemon("cluster-dial-" + peer.name, () -> dialLoop(peer));
+        log.info("Cluster bus listening on {}, peers {}", server.getLocalSocketAddress(),
+                peers.stream().map(p -> p.name).toList());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly(server);
+        for (Link link : accepted) link.close();
+        for (Peer peer : peers) {
+            Link link = peer.link;
+            if (link != null) link.close();
+        }
+        threads.forEach(Thread::interrupt);
+    }
+
+    // ---------- Interest ----------
+
+    @Override
+    public synchronized void addInterest(String destination) {
+        if (!localInterest.add(destination)) return;
+        byte[] frame = interestFrame(INTEREST_ADD, destination);
+        for (Link link : accepted) link.offerControl(frame);
+    }
+
+    @Override
+    public synchronized void removeInterest(String destination) {
+        if (!localInterest.remove(destination)) return;
+        byte[] frame = interestFrame(INTEREST_REMOVE, destination);
+        for (Link link : accepted) link.offerControl(frame);
+    }
+
+    // ---------- Publish ----------
+
+    @Override
+    public void publish(String destination, String contentType, byte[] payload) {
+        byte[] frame = null;
+        for (Peer peer : peers) {
+            Link link = peer.link;
+            if (link == null || !peer.interestedIn(destination)) continue;
+            if (frame == null) frame = publishFrame(destination, contentType, payload);
+            if (link.offerPublication(frame)) {
+                sent.increment();
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    // ---------- Links ----------
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                daemon("cluster-in-" + socket.getRemoteSocketAddress(), () -> serve(socket));
+            } catch (IOException e) {
+                if (running) log.warn("Cluster accept failed", e);
+            }
+        }
+    }
+
+    // accepted link: read the dialer's publications, send it our interest
+    private void serve(Socket socket) {
+        Link link = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            if (in.readInt() != MAGIC || !secret.equals(in.readUTF())) {
+                log.warn("Cluster link from {} rejected: bad handshake or secret", socket.getRemoteSocketAddress());
+                return;
+            }
+            socket.setSoTimeout(0);
+            link = new Link(socket, Thread.currentThread().getName());
+            synchronized (this) {
+                for (String destination : localInterest) link.offerControl(interestFrame(INTEREST_ADD, destination));
+                accepted.add(link);
+            }
+            log.info("Cluster peer {} connected", socket.getRemoteSocketAddress());
+            while (running) {
+                if (in.readByte() != PUBLISH) throw new IOException("Unexpected cluster frame");
+                String destination = in.readUTF();
+                String contentType = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_PAYLOAD) throw new IOException("Bad cluster payload length " + length);
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                received.increment();
+                try {
+                    listener.onPublish(destination, contentType, payload);
+                } catch (RuntimeException e) {
+                    log.warn("Dropping relayed message for {}", destination, e);
+                }
+            }
+        } catch (IOException e) {
+            if (running && link != null) log.info("Cluster peer {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+        } finally {
+            if (link != null) {
+                accepted.remove(link);
+                link.close();
+            }
+        }
+    }
+
+    // dialed link: send publications, read the peer's interest
+    private void dialLoop(Peer peer) {
+        while (running) {
+            Link link = null;
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(peer.address.getHostString(), peer.address.getPort()), CONNECT_TIMEOUT_MS);
+                socket.setTcpNoDelay(true);
+                link = new Link(socket, "cluster-out-" + peer.name);
+                link.offerControl(helloFrame());
+                peer.link = link;
+                log.info("Cluster link to {} up", peer.name);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (running) {
+                    byte type = in.readByte();
+                    String destination = in.readUTF();
+                    Set<String> interest = MATCHER.isPattern(destination) ? peer.patterns : peer.exact;
+                    if (type == INTEREST_ADD) interest.add(destination);
+                    else if (type == INTEREST_REMOVE) interest.remove(destination);
+                    else throw new IOException("Unexpected cluster frame " + type);
+                }
+            } catch (IOException e) {
+                if (running && link != null) log.info("Cluster link to {} lost: {}", peer.name, e.toString());
+            } finally {
+                peer.link = null;
+                peer.exact.clear();
+                peer.patterns.clear();
+                if (link != null) link.close();
+            }
+            try {
+                Thread.sleep(reconnectMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void daemon(String name, Runnable task) {
+        Thread t = new Thread(() -> {
+            try {
+                task.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        }, name);
+        t.setDaemon(true);
+        threads.add(t);
+        t.start();
+    }
+
+    private boolean isSelf(InetSocketAddress address) {
+        if (address.getPort() != port) return false;
+        try {
+            InetAddress host = InetAddress.getByName(address.getHostString());
+            return host.isLoopbackAddress() || host.isAnyLocalAddress() || NetworkInterface.getByInetAddress(host) != null;
+        } catch (IOException e) {
+            return false; // unresolvable now; the dialer keeps retrying it
+        }
+    }
+
+    // ---------- Frames ----------
+
+    private byte[] helloFrame() {
+        return frame(out -> {
+            out.writeInt(MAGIC);
+            out.writeUTF(secret);
+        });
+    }
+
+    private static byte[] interestFrame(byte type, String destination) {
+        return frame(out -> {
+            out.writeByte(type);
+            out.writeUTF(destination);
+        });
+    }
+
+    private static byte[] publishFrame(String destination, String contentType, byte[] payload) {
+        return frame(out -> {
+            out.writeByte(PUBLISH);
+            out.writeUTF(destination);
+            out.writeUTF(contentType == null ? "" : contentType);
+            out.writeInt(payload.length);
+            out.write(payload);
+        });
+    }
+
+    private interface FrameWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] frame(FrameWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (Exception ignored) {
+            // closing anyway
+        }
+    }
+
+    // ---------- Stats ----------
+    public int getConnectedPeers() { return (int) peers.stream().filter(p -> p.link != null).count(); }
+    public int getAcceptedLinks() { return accepted.size(); }
+    public long getSent() { return sent.sum(); }
+    public long getReceived() { return received.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public int getLocalPort() { return server != null ? server.getLocalPort() : port; }
+
+    private static final class Peer {
+        final InetSocketAddress address;
+        final String name;
+        final Set<String> exact = ConcurrentHashMap.newKeySet();
+        final Set<String> patterns = ConcurrentHashMap.newKeySet();
+        volatile Link link;
+
+        Peer(InetSocketAddress address) {
+            this.address = address;
+            this.name = address.getHostString() + ":" + address.getPort();
+        }
+
+        boolean interestedIn(String destination) {
+            if (exact.contains(destination)) return true;
+            for (String pattern : patterns) {
+                if (MATCHER.match(pattern, destination)) return true;
+            }
+            return false;
+        }
+    }
+
+    /** One socket's outgoing side: frames are written in order by a dedicated thread. */
+    private final class Link {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        private final Thread writer;
+
+        Link(Socket socket, String name) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            this.writer = new Thread(this::drain, name + "-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        /** Interest changes and the handshake are never dropped. */
+        void offerControl(byte[] frame) {
+            queue.add(frame);
+        }
+
+        boolean offerPublication(byte[] frame) {
+            if (queue.size() >= queueCapacity) return false;
+            queue.add(frame);
+            return true;
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    out.write(queue.take());
+                    if (queue.isEmpty()) out.flush(); // one flush per burst
+                }
+            } catch (InterruptedException | IOException e) {
+                close(); // the reading side sees the closed socket and cleans up
+            }
+        }
+
+        void close() {
+            writer.interrupt();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+}
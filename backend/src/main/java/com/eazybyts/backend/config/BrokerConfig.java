@@ -0,0 +1,62 @@
+package com.eazybyts.backend.config;
+
+import com.eazybyts.backend.broker.StripedBrokerMessageHandler;
+import com.eazybyts.backend.cluster.ClusterRelay;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+
+import java.util.List;
+
+/**
+ * chat.broker.mode=striped (default): StripedBrokerMessageHandler serves /topic and /queue.
+ * Spring always creates a SimpleBrokerMessageHandler for those prefixes; in this mode it is
+ * kept from starting so it never subscribes to the channels. mode=simple restores SimpleBroker.
+ * With chat.cluster.enabled the handler reports to ClusterRelay, which needs this mode.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "striped", matchIfMissing = true)
+public class BrokerConfig {
+
+    @Bean
+    public StripedBrokerMessageHandler stripedBrokerMessageHandler(
+            @Qualifier("clientInboundChannel") SubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerChannel") SubscribableChannel brokerChannel,
+            @Value("${chat.broker.lanes:0}") int lanes,
+            @Value("${chat.broker.lane-queue-capacity:10000}") int laneQueueCapacity,
+            @Value("${chat.presence.heartbeat-ms:10000}") long clientHeartbeatMs,
+            MeterRegistry meterRegistry,
+            ObjectProvider<ClusterRelay> clusterRelay) {
+        int laneCount = lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+        StripedBrokerMessageHandler handler = new StripedBrokerMessageHandler(clientInboundChannel,
+                clientOutboundChannel, brokerChannel, List.of(WebSocketConfig.BROKER_PREFIXES),
+                laneCount, laneQueueCapacity);
+        handler.setPreservePublishOrder(true);
+        handler.setMeterRegistry(meterRegistry);
+        handler.setClientHeartbeatMs(clientHeartbeatMs);
+        handler.setRelay(clusterRelay.getIfAvailable());
+        return handler;
+    }
+
+    @Bean
+    public static BeanPostProcessor simpleBrokerDisabler() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler simple) {
+                    simple.setAutoStartup(false);
+                }
+                return bean;
+            }
+        };
+    }
+}
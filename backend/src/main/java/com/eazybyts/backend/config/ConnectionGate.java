@@ -0,0 +1,103 @@
+package com.eazybyts.backend.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many threads may hold or wait inside the connection pool at once.
+ * - A borrower takes a permit before asking the pool and gives it back when it closes the connection
+ * - With permits = pool size, the pool never has more callers than connections; everybody else parks on a
+ *   fair semaphore, which costs a virtual thread nothing, instead of piling into the pool's handoff queue
+ * - Waiting longer than acquireTimeoutMs fails like a pool timeout would (SQLTransientConnectionException)
+ */
+public class ConnectionGate extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long acquireTimeoutMs;
+
+    private final LongAdder timeouts = new LongAdder();
+
+    public ConnectionGate(DataSource target, int maxPermits, long acquireTimeoutMs) {
+        super(target);
+        if (maxPermits <= 0) {
+            throw new IllegalArgumentException("maxPermits must be > 0");
+        }
+        this.permits = new Semaphore(maxPermits, true);
+        this.maxPermits = maxPermits;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return gated(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return gated(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection permit", e);
+        }
+        timeouts.increment();
+        throw new SQLTransientConnectionException(
+                "No connection permit within " + acquireTimeoutMs + " ms (" + maxPermits + " in use)");
+    }
+
+    // Same connection, except close() also returns the permit (once, however often close is called)
+    private Connection gated(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ("equals".equals(name)) return proxy == args[0];
+                    if ("hashCode".equals(name)) return System.identityHashCode(proxy);
+                    if ("close".equals(name)) {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    // ---------- Stats ----------
+    public int getMaxPermits() { return maxPermits; }
+    public int getInUse() { return maxPermits - permits.availablePermits(); }
+    public int getWaiting() { return permits.getQueueLength(); }
+    public long getTimeouts() { return timeouts.sum(); }
+}
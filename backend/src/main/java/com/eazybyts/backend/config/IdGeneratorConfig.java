@@ -0,0 +1,20 @@
+package com.eazybyts.backend.config;
+
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes this node's message id generator to code that assigns ids outside Hibernate
+ * (write-behind). Same instance the @SnowflakeId entities use.
+ * chat.ids.node-id must be unique per running instance.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public SnowflakeIdGenerator messageIdGenerator(@Value("${chat.ids.node-id:0}") long nodeId) {
+        return SnowflakeIdGenerator.forNode(nodeId);
+    }
+}
@@ -0,0 +1,48 @@
+package com.eazybyts.backend.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * At most maxConcurrent @MessageMapping invocations run at once; the rest wait on a fair semaphore.
+ * The broker and user-destination handlers on the same channel are in-memory and not limited.
+ * The wait happens on the task's own (virtual) thread, never in the executor: with preserved receive
+ * order a finishing task submits the session's next message itself, so an executor-level limit
+ * (SimpleAsyncTaskExecutor.setConcurrencyLimit) can deadlock with every slot waiting for a slot.
+ */
+public class InboundConcurrencyLimiter implements ExecutorChannelInterceptor {
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    public InboundConcurrencyLimiter(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be > 0");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    // never returns null: a skipped message would also skip afterMessageHandled, which releases the
+    // session's next message when receive order is preserved
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (handler instanceof SimpAnnotationMethodMessageHandler) permits.acquireUninterruptibly();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                    Exception ex) {
+        if (handler instanceof SimpAnnotationMethodMessageHandler) permits.release();
+    }
+
+    // ---------- Stats ----------
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getInUse() { return maxConcurrent - permits.availablePermits(); }
+    public int getWaiting() { return permits.getQueueLength(); }
+}
@@ -1,6 +1,7 @@
 package com.eazybyts.backend.config;
 
 import com.eazybyts.backend.auth.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,12 +51,18 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // Allow preflight requests
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Async re-dispatch of a streamed response that was authorized on the way in (JWT is not re-read)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                // Error dispatch of a request that was authorized on the way in, so its status (e.g. 429) reaches the client
+                .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                 // Public endpoints (adjust paths to match your controllers)
                 .requestMatchers("/api/auth/**", "/auth/register", "/auth/login", "/api/health").permitAll()
                 // Allow websocket handshake endpoints
                 .requestMatchers("/ws/**", "/stomp/**").permitAll()
                 // H2 console for dev
                 .requestMatchers("/h2-console/**").permitAll()
+                // Prometheus scrape + liveness; /actuator/metrics stays behind auth
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 // everything else requires authentication
                 .anyRequest().authenticated()
             );
@@ -0,0 +1,76 @@
+package com.eazybyts.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * chat.threads.virtual.enabled=true: opt-in virtual-thread execution (needs a Java 21+ runtime;
+ * the code still compiles for release 17, Spring's virtual-thread executors are multi-release classes).
+ * - Tomcat request handling runs on virtual threads
+ * - The clientInbound channel (@MessageMapping handlers) runs on virtual threads, at most
+ *   chat.threads.virtual.inbound-concurrency handlers at once (0 = 4 x pool size), see InboundConcurrencyLimiter
+ * - The Hikari DataSource is wrapped in a ConnectionGate with one permit per pooled connection
+ *   (chat.threads.virtual.db-permits, 0 = maximum-pool-size), so thousands of cheap threads queue on a
+ *   fair semaphore instead of stampeding the pool and timing out inside it
+ * The clientOutbound channel and broker lanes keep their platform-thread pools: they do no blocking I/O.
+ * The inbound executor is deliberately not a bean: an extra Executor bean would count against Boot's
+ * applicationTaskExecutor condition (@ConditionalOnMissingBean(Executor)) and could be injected by type elsewhere.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    public VirtualThreadsConfig() {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("chat.threads.virtual.enabled=true needs Java 21 or newer, running "
+                    + Runtime.version() + "; unset it to keep the platform-thread pools");
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandler() {
+        return handler -> handler.setExecutor(new VirtualThreadTaskExecutor("http-vt-"));
+    }
+
+    /** Used with the limiter by WebSocketConfig.configureClientInboundChannel when the limiter bean exists. */
+    static SimpleAsyncTaskExecutor inboundChannelExecutor() {
+        // no concurrency limit here on purpose, see InboundConcurrencyLimiter
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("inbound-vt-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    @Bean
+    public InboundConcurrencyLimiter inboundConcurrencyLimiter(
+            @Value("${chat.threads.virtual.inbound-concurrency:0}") int inboundConcurrency,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        return new InboundConcurrencyLimiter(inboundConcurrency > 0 ? inboundConcurrency : 4 * poolSize);
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionGateInstaller(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) return bean;
+                int permits = env.getProperty("chat.threads.virtual.db-permits", Integer.class, 0);
+                // an unset maximum-pool-size reads -1 until the pool starts; Hikari then uses 10
+                if (permits <= 0) permits = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : 10;
+                log.info("Virtual threads on: {} gated to {} concurrent connection borrowers", beanName, permits);
+                return new ConnectionGate(hikari, permits, hikari.getConnectionTimeout());
+            }
+        };
+    }
+}
@@ -2,35 +2,82 @@ package com.eazybyts.backend.config;
 
 import com.eazybyts.backend.auth.CustomUserDetailsService;
 import com.eazybyts.backend.auth.JwtService;
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.broker.CborMessageConverter;
+import com.eazybyts.backend.broker.DeflateHandshakeHandler;
+import com.eazybyts.backend.broker.FrameFormatNegotiator;
+import com.eazybyts.backend.broker.OutboundFrameBatcher;
+import com.eazybyts.backend.broker.SharedFrameStompEncoder;
+import com.eazybyts.backend.presence.PresenceHeartbeatInterceptor;
+import com.eazybyts.backend.ratelimit.FloodControl;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.List;
 
 /**
  * ✅ WebSocket Configuration:
  *  - Registers the /ws endpoint (with SockJS fallback)
  *  - Authenticates CONNECT frames using JWT
  *  - Enables /topic (broadcast) and /queue (private) messaging
+ *    (striped in-process broker by default, see BrokerConfig)
+ *  - Sizes the inbound/outbound channel thread pools (chat.broker.inbound/outbound.*),
+ *    or runs inbound on virtual threads (chat.threads.virtual.*, see VirtualThreadsConfig)
+ *  - Encodes broadcast frames with SharedFrameStompEncoder (payload encoded once per broadcast)
+ *  - Lets each connection pick JSON (default) or CBOR payloads, see FrameFormatNegotiator
+ *  - permessage-deflate and outbound frame batching (chat.ws.*), see OutboundFrameBatcher
+ *  - Every inbound frame refreshes the sender's presence, see PresenceTracker
  *  - Restricts allowed origins for security
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String[] BROKER_PREFIXES = {"/topic", "/queue"};
+
     @Autowired private JwtService jwtService;
     @Autowired private CustomUserDetailsService userDetailsService;
+    @Autowired private FrameFormatNegotiator frameFormats;
+    @Autowired private BroadcastEncoder broadcastEncoder;
+    @Autowired private OutboundFrameBatcher frameBatcher;
+    @Autowired private PresenceHeartbeatInterceptor presenceHeartbeats;
+    @Autowired private FloodControl floodControl;
+    // only present with chat.threads.virtual.enabled=true, see VirtualThreadsConfig
+    @Autowired(required = false) private InboundConcurrencyLimiter inboundLimiter;
+
+    @Value("${chat.ws.deflate.enabled:true}") private boolean deflateEnabled;
+    @Value("${chat.ws.deflate.no-context-takeover:false}") private boolean deflateNoContextTakeover;
+
+    // 0 = keep Spring's default for that setting
+    @Value("${chat.broker.inbound.core-pool-size:0}") private int inboundCorePoolSize;
+    @Value("${chat.broker.inbound.max-pool-size:0}") private int inboundMaxPoolSize;
+    @Value("${chat.broker.inbound.queue-capacity:0}") private int inboundQueueCapacity;
+    @Value("${chat.broker.outbound.core-pool-size:0}") private int outboundCorePoolSize;
+    @Value("${chat.broker.outbound.max-pool-size:0}") private int outboundMaxPoolSize;
+    @Value("${chat.broker.outbound.queue-capacity:0}") private int outboundQueueCapacity;
 
     /**
      * Register the WebSocket handshake endpoint.
@@ -39,6 +86,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
+                .setHandshakeHandler(new DeflateHandshakeHandler(deflateEnabled, deflateNoContextTakeover))
                 // 👇 Allow these frontend origins (edit if you add another port)
                 .setAllowedOriginPatterns(
                         "http://localhost:5173",  // Vite dev server
@@ -47,16 +95,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         "http://localhost"        // fallback
                 )
                 .withSockJS();
+        // frames from one session are handled in arrival order, so a sender's messages keep their order
+        registry.setPreserveReceiveOrder(true);
     }
 
     /**
      * Configure message broker destinations.
      * /app → for application-level (controller) mapping.
-     * /topic, /queue → simple broker for pub/sub and private messaging.
+     * /topic, /queue → in-process broker for pub/sub and private messaging.
+     * Publish order is preserved per session so a room's messages arrive in order.
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        config.enableSimpleBroker(BROKER_PREFIXES);
+        config.setPreservePublishOrder(true);
         config.setUserDestinationPrefix("/user");
         config.setApplicationDestinationPrefixes("/app");
     }
@@ -67,12 +119,19 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (inboundLimiter != null) {
+            registration.executor(VirtualThreadsConfig.inboundChannelExecutor());
+            registration.interceptors(inboundLimiter);
+        } else {
+            sizePool(registration, inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+        }
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
-                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                // getAccessor returns the message's own (mutable) accessor, so setUser sticks to the session
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
 
-                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
                     String authHeader = accessor.getFirstNativeHeader("Authorization");
 
                     if (authHeader != null && authHeader.startsWith("Bearer ")) {
@@ -101,6 +160,50 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 }
                 return message;
             }
-        });
+        }, frameFormats, presenceHeartbeats, floodControl);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        sizePool(registration, outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+        registration.interceptors(frameFormats);
+    }
+
+    /** SEND frames may carry application/cbor; JSON and the other defaults stay registered. */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new CborMessageConverter(broadcastEncoder.getCborMapper()));
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // the batcher wraps the outermost session, so it sees frames after CBOR sessions switched to binary
+        registration.addDecoratorFactory(frameFormats::decorate);
+        registration.addDecoratorFactory(frameBatcher::decorate);
+    }
+
+    /**
+     * The STOMP handler is created inside Spring's endpoint registry with no encoder hook,
+     * so swap the encoder once all singletons exist and before any session connects.
+     */
+    @Bean
+    public SmartInitializingSingleton sharedFrameStompEncoderInstaller(
+            @Qualifier("subProtocolWebSocketHandler") WebSocketHandler webSocketHandler) {
+        return () -> {
+            if (webSocketHandler instanceof SubProtocolWebSocketHandler subProtocolHandler) {
+                subProtocolHandler.getProtocolHandlers().stream()
+                        .filter(StompSubProtocolHandler.class::isInstance)
+                        .forEach(h -> ((StompSubProtocolHandler) h).setEncoder(new SharedFrameStompEncoder()));
+            }
+        };
+    }
+
+    private static void sizePool(ChannelRegistration registration, int core, int max, int queue) {
+        if (core <= 0 && max <= 0 && queue <= 0) return;
+        var executor = registration.taskExecutor();
+        if (core > 0) executor.corePoolSize(core);
+        if (max > 0) executor.maxPoolSize(Math.max(max, core));
+        if (queue > 0) executor.queueCapacity(queue);
     }
 }
@@ -1,8 +1,14 @@
 package com.eazybyts.backend.controller;
 
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.chat.ChatMessage;
 import com.eazybyts.backend.chat.MessageService;
+import com.eazybyts.backend.chat.RoomBroadcast;
+import com.eazybyts.backend.chat.TypingAggregator;
+import com.eazybyts.backend.metrics.ChatMetrics;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -13,36 +19,46 @@ import java.util.Map;
 public class ChatController {
   private final SimpMessagingTemplate broker;
   private final MessageService messages;
+  private final TypingAggregator typing;
+  private final BroadcastEncoder encoder;
+  private final ChatMetrics metrics;
 
-  public ChatController(SimpMessagingTemplate broker, MessageService messages) {
-    this.broker = broker; this.messages = messages;
+  public ChatController(SimpMessagingTemplate broker, MessageService messages, TypingAggregator typing,
+                        BroadcastEncoder encoder, ChatMetrics metrics) {
+    this.broker = broker; this.messages = messages; this.typing = typing; this.encoder = encoder;
+    this.metrics = metrics;
   }
 
   @MessageMapping("/chat/{room}")
   public void handleChat(@DestinationVariable String room,
                          Map<String, Object> payload,
                          Authentication auth) {
-    String sender = (auth != null && auth.getName() != null) ? auth.getName() : "anonymous";
-    String content = String.valueOf(payload.get("content"));
-    var saved = messages.saveToRoom(room, sender, content);
+    metrics.chatHandle(room).record(() -> {
+      String sender = (auth != null && auth.getName() != null) ? auth.getName() : "anonymous";
+      String content = String.valueOf(payload.get("content"));
+      // write-behind mode returns as soon as the message is queued; broadcast does not wait for the DB
+      ChatMessage saved = messages.postToRoom(room, sender, content);
 
-    Map<String, Object> out = Map.of(
-      "id", saved.getId(),
-      "room", room,
-      "sender", saved.getSender(),
-      "content", saved.getContent(),
-      "createdAt", saved.getCreatedAt().toString()
-    );
-    broker.convertAndSend("/topic/room." + room, out);
-
-    
+      // JSON is encoded once here; every subscriber's frame reuses the same bytes
+      String destination = "/topic/room." + room;
+      broker.send(destination, encoder.encode(destination, RoomBroadcast.of(saved, room, sender)));
+    });
   }
- 
-@MessageMapping("/typing/{room}")
-public void typing(@DestinationVariable String room, Authentication auth) {
-  String user = (auth != null && auth.getName()!=null) ? auth.getName() : "someone";
-  // Broadcast "user is typing" to the room (clients can debounce)
-  broker.convertAndSend("/topic/typing." + room, Map.of("user", user));
-}
 
+  // Body is optional; {"typing": false} clears the user right away instead of waiting for expiry.
+  // The room gets a coalesced TypingNotification snapshot from TypingAggregator, not one frame per event.
+  @MessageMapping("/typing/{room}")
+  public void typing(@DestinationVariable String room,
+                     @Payload(required = false) Map<String, Object> payload,
+                     Authentication auth) {
+    metrics.typingHandle(room).record(() -> {
+      String user = (auth != null && auth.getName() != null) ? auth.getName() : "someone";
+      Long roomId = Long.valueOf(room);
+      if (payload != null && Boolean.FALSE.equals(payload.get("typing"))) {
+        typing.stopped(roomId, user);
+      } else {
+        typing.typing(roomId, user);
+      }
+    });
+  }
 }
@@ -3,24 +3,32 @@ package com.eazybyts.backend.controller;
 import com.eazybyts.backend.chat.ChatMessage;
 import com.eazybyts.backend.chat.DirectMessageEntity;
 import com.eazybyts.backend.chat.DirectMessageService;
+import com.eazybyts.backend.ratelimit.FloodControl;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+
 @RestController
 @RequestMapping("/api/private")
 public class PrivateChatController {
 
     private final DirectMessageService dms;
+    private final FloodControl floodControl;
 
-    public PrivateChatController(DirectMessageService dms) {
+    public PrivateChatController(DirectMessageService dms, FloodControl floodControl) {
         this.dms = dms;
+        this.floodControl = floodControl;
     }
 
     // POST /api/private/send?senderId=1&receiverId=2&content=hi
     @PostMapping("/send")
     public ChatMessage send(@RequestParam String senderId,
                             @RequestParam String receiverId,
-                            @RequestParam String content) {
+                            @RequestParam String content,
+                            Principal principal) {
 
+        // same budget as /api/dm/send: both endpoints send DMs
+        floodControl.check(FloodControl.Budget.DIRECT, principal, senderId);
         DirectMessageEntity saved = dms.saveDirectMessage(senderId, receiverId, content);
 
         // ✅ Map entity → DTO (uses timestamp internally)
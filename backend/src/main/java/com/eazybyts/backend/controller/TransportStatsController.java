@@ -0,0 +1,41 @@
+package com.eazybyts.backend.controller;
+
+import com.eazybyts.backend.broker.OutboundFrameBatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class TransportStatsController {
+  private final OutboundFrameBatcher batcher;
+
+  public TransportStatsController(OutboundFrameBatcher batcher) {
+    this.batcher = batcher;
+  }
+
+  // GET /api/stats/ws → frames-per-write overall and per session, plus estimated deflate ratio
+  @GetMapping("/api/stats/ws")
+  public Map<String, Object> websocketStats() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("batching", batcher.isBatching());
+    out.put("frames", batcher.getTotalFrames());
+    out.put("writes", batcher.getTotalWrites());
+    out.put("framesPerWrite", batcher.getFramesPerWrite());
+    List<Map<String, Object>> sessions = batcher.getSessionStats().stream().map(s -> {
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("sessionId", s.getSessionId());
+      m.put("frames", s.getFrames());
+      m.put("writes", s.getWrites());
+      m.put("bytes", s.getBytes());
+      m.put("framesPerWrite", s.getFramesPerWrite());
+      m.put("deflate", s.isDeflate());
+      m.put("compressionRatio", s.getCompressionRatio());
+      return m;
+    }).toList();
+    out.put("sessions", sessions);
+    return out;
+  }
+}
@@ -0,0 +1,289 @@
+package com.eazybyts.backend.journal;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.RecentMessageCache;
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import com.eazybyts.backend.chat.UnreadCounters;
+import com.eazybyts.backend.search.MessageSearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional journal persistence for room messages (chat.journal.enabled), an alternative to write-behind.
+ * - append() gives the message its id and timestamp, writes it to a SegmentedJournal in chat.journal.dir and
+ *   returns once a group-commit fsync covers it, so the message is durable before it is broadcast
+ * - A background indexer projects durable records into the messages table in batches of batch-size rows;
+ *   only then do history, unread counts and search see them (same as write-behind)
+ * - The projected position is checkpointed in the journal directory; at startup everything after it is
+ *   projected again before the application serves requests. Rows already in the table are skipped, so a
+ *   stale checkpoint only costs time
+ * - Segments wholly behind the checkpoint are deleted
+ * - A failing projection is retried with backoff until it succeeds, except at shutdown: then the indexer
+ *   stops and the unprojected records wait in the journal for the next start
+ * - If the indexer dies on an I/O error (unreadable journal, checkpoint write), append() fails from then on:
+ *   messages accepted after that would be durable but invisible until a restart
+ */
+@Component
+public class MessageJournal {
+    private static final Logger log = LoggerFactory.getLogger(MessageJournal.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (id, room_id, sender_id, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final String CHECKPOINT = "projected.checkpoint";
+    private static final int FIXED_BYTES = 8 + 8 + 8 + 8 + 4;
+
+    @Value("${chat.journal.enabled:false}")
+    private boolean enabled;
+    @Value("${chat.journal.dir:}")
+    private String dir;
+    @Value("${chat.journal.sync-interval-ms:2}")
+    private long syncIntervalMs;
+    @Value("${chat.journal.sync-bytes:1048576}")
+    private long syncBytes;
+    @Value("${chat.journal.segment-bytes:67108864}")
+    private long segmentBytes;
+    @Value("${chat.journal.batch-size:1000}")
+    private int batchSize;
+    @Value("${chat.journal.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+    @Value("${chat.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final RecentMessageCache recentCache;
+    private final SnowflakeIdGenerator ids;
+    private final UnreadCounters unread;
+    private final MessageSearchIndex searchIndex;
+
+    private SegmentedJournal journal;
+    private Path checkpointFile;
+    private volatile long projected;
+    private long replayUntil; // positions below this may already be in the table (startup replay)
+    private Thread indexer;
+    private volatile boolean running;
+    private volatile IOException indexerFailure;
+
+    private final LongAdder projectedRows = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder projectionRetries = new LongAdder();
+
+    public MessageJournal(JdbcTemplate jdbc, PlatformTransactionManager txManager, RecentMessageCache recentCache,
+                          SnowflakeIdGenerator ids, UnreadCounters unread, MessageSearchIndex searchIndex) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.recentCache = recentCache;
+        this.ids = ids;
+        this.unread = unread;
+        this.searchIndex = searchIndex;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    @PostConstruct
+    void start() throws IOException, InterruptedException {
+        if (!enabled) return;
+        if (writeBehindEnabled) {
+            throw new IllegalArgumentException("chat.journal and chat.write-behind cannot both be enabled");
+        }
+        if (dir == null || dir.isBlank()) {
+            throw new IllegalArgumentException("chat.journal.dir is required when chat.journal.enabled=true");
+        }
+        if (batchSize <= 0 || segmentBytes <= 0 || syncBytes <= 0 || syncIntervalMs < 0) {
+            throw new IllegalArgumentException("chat.journal sizes must be positive");
+        }
+        Path root = Path.of(dir);
+        checkpointFile = root.resolve(CHECKPOINT);
+        long checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+        journal = new SegmentedJournal(root, segmentBytes, TimeUnit.MILLISECONDS.toNanos(syncIntervalMs), syncBytes)
+                .open(checkpoint);
+        // only durable records are projected, so the repaired log should reach the checkpoint; if a cut went
+        // behind it anyway, new appends would start below it and must not be skipped
+        projected = Math.min(checkpoint, journal.getDurablePosition());
+        replayUntil = journal.getDurablePosition();
+
+        long started = System.nanoTime();
+        long before = projectedRows.sum();
+        try (SegmentedJournal.Reader reader = journal.reader(projected)) {
+            while (projectBatch(reader)) {
+                // replay everything the last run had not projected
+            }
+        }
+        if (projectedRows.sum() > before) {
+            log.info("Journal replay projected {} messages in {} ms", projectedRows.sum() - before,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+
+        running = true;
+        indexer = new Thread(this::indexLoop, "journal-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /** Projects what is still unprojected, then closes the journal. */
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (indexer == null) return;
+        running = false;
+        indexer.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+        if (projected < journal.getDurablePosition()) {
+            log.warn("Journal shutdown left {} bytes unprojected; they are replayed at the next start",
+                    journal.getDurablePosition() - projected);
+        }
+    }
+
+    /**
+     * Append an already validated message and wait for it to be durable.
+     * @throws IllegalStateException when the journal cannot write or sync it within commit-timeout-ms
+     */
+    public ChatMessage append(Long roomId, Long senderId, String content) {
+        if (!running) {
+            throw new IllegalStateException("Message journal is not running");
+        }
+        if (indexerFailure != null) {
+            rejected.increment();
+            throw new IllegalStateException("Message journal indexer failed, messages cannot be accepted",
+                    indexerFailure);
+        }
+        byte[] text = content.getBytes(StandardCharsets.UTF_8);
+        ChatMessage[] appended = new ChatMessage[1];
+        try {
+            long end = journal.append(FIXED_BYTES + text.length, buf -> {
+                // id and timestamp are taken under the journal lock, so log order is id order
+                ChatMessage m = new ChatMessage(ids.nextId(), roomId, senderId, null, content,
+                        Instant.now().truncatedTo(ChronoUnit.MICROS));
+                buf.putLong(m.getId()).putLong(roomId).putLong(senderId)
+                        .putLong(m.getTimestamp().getEpochSecond()).putInt(m.getTimestamp().getNano()).put(text);
+                appended[0] = m;
+            });
+            journal.awaitDurable(end, TimeUnit.MILLISECONDS.toNanos(commitTimeoutMs));
+            return appended[0];
+        } catch (IOException e) {
+            rejected.increment();
+            throw new IllegalStateException("Message could not be journaled, try again", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new IllegalStateException("Interrupted waiting for the journal", e);
+        }
+    }
+
+    private void indexLoop() {
+        try (SegmentedJournal.Reader reader = journal.reader(projected)) {
+            while (running || reader.position() < journal.getDurablePosition()) {
+                if (!projectBatch(reader)) {
+                    journal.awaitBeyond(reader.position(), TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            }
+        } catch (IOException e) {
+            indexerFailure = e;
+            log.error("Journal indexer stopped, rejecting appends; unprojected messages are replayed at the next start", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Projects up to batchSize durable records; false when there was nothing to project. */
+    private boolean projectBatch(SegmentedJournal.Reader reader) throws IOException, InterruptedException {
+        long from = reader.position();
+        List<ChatMessage> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        ByteBuffer record;
+        while (batch.size() < batchSize && (record = reader.next()) != null) {
+            batch.add(decode(record));
+        }
+        if (batch.isEmpty()) return false;
+
+        List<ChatMessage> rows = from < replayUntil ? withoutProjected(batch) : batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, m) -> {
+                    ps.setLong(1, m.getId());
+                    ps.setLong(2, m.getRoomId());
+                    ps.setLong(3, m.getSenderId());
+                    ps.setString(4, m.getContent());
+                    ps.setTimestamp(5, Timestamp.from(m.getTimestamp()));
+                }));
+                break;
+            } catch (DataAccessException e) {
+                // the records stay in the journal, so keep retrying rather than dropping them; at shutdown
+                // give up instead and leave them (and everything after) to the next startup replay
+                if (indexer != null && !running) {
+                    throw new IOException("Projection still failing at shutdown", e);
+                }
+                projectionRetries.increment();
+                if (attempt == 1 || attempt % 100 == 0) {
+                    log.error("Projecting {} journaled messages failed (attempt {}); retrying", rows.size(), attempt, e);
+                }
+                Thread.sleep(Math.min(50L * attempt, 5000));
+            }
+        }
+        projectedRows.add(rows.size());
+        rows.forEach(recentCache::append);
+        rows.forEach(m -> unread.roomMessageSaved(m.getRoomId(), m.getId()));
+        rows.forEach(searchIndex::messageSaved);
+
+        projected = reader.position();
+        writeCheckpoint(projected);
+        journal.deleteBefore(projected);
+        return true;
+    }
+
+    private List<ChatMessage> withoutProjected(List<ChatMessage> batch) {
+        Set<Long> present = new HashSet<>(jdbc.queryForList("SELECT id FROM messages WHERE id >= ? AND id <= ?",
+                Long.class, batch.get(0).getId(), batch.get(batch.size() - 1).getId()));
+        if (present.isEmpty()) return batch;
+        return batch.stream().filter(m -> !present.contains(m.getId())).toList();
+    }
+
+    // not synced: losing it only means replaying (and skipping) rows that are already in the table
+    private void writeCheckpoint(long position) throws IOException {
+        Path tmp = checkpointFile.resolveSibling(CHECKPOINT + ".tmp");
+        Files.writeString(tmp, Long.toString(position));
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ChatMessage decode(ByteBuffer record) {
+        long id = record.getLong();
+        long roomId = record.getLong();
+        long senderId = record.getLong();
+        Instant timestamp = Instant.ofEpochSecond(record.getLong(), record.getInt());
+        byte[] text = new byte[record.remaining()];
+        record.get(text);
+        return new ChatMessage(id, roomId, senderId, null, new String(text, StandardCharsets.UTF_8), timestamp);
+    }
+
+    // ---------- Stats ----------
+    public long getAppended() { return journal != null ? journal.getAppends() : 0; }
+    public long getSyncs() { return journal != null ? journal.getSyncs() : 0; }
+    public long getProjected() { return projectedRows.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public long getProjectionRetries() { return projectionRetries.sum(); }
+    public long getProjectionLagBytes() { return journal != null ? journal.getDurablePosition() - projected : 0; }
+    public int getSegmentCount() { return journal != null ? journal.getSegmentCount() : 0; }
+    public boolean isIndexerFailed() { return indexerFailure != null; }
+}
@@ -0,0 +1,400 @@
+package com.eazybyts.backend.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of length-prefixed, checksummed records in segment files with group-commit fsync.
+ * - A position is a byte offset over the whole log; a segment file is named by the position it starts at
+ *   and a new one is started once the current one reaches segmentBytes
+ * - append() writes under one lock and returns the record's end position; awaitDurable() blocks until a
+ *   sync covers it. One sync thread fsyncs whatever has been written once syncInterval has passed since the
+ *   first unsynced write or syncBytes are waiting, so concurrent appenders share one fsync
+ * - On open, every segment from the one holding the checkpoint on is validated and the log is cut at the first
+ *   torn or corrupt record: a crash can leave the last segment short, and a power loss between roll() and
+ *   the retired segment's fsync can leave an earlier one short. Later segments are deleted; nothing past the
+ *   cut was ever reported durable, since one sync covers the retired segments before the current one
+ * - Records are [int length][int crc32c][payload]; readers see records up to the durable position only
+ */
+final class SegmentedJournal implements AutoCloseable {
+    static final int HEADER = 8;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long syncIntervalNanos;
+    private final long syncBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dirty = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final List<FileChannel> retired = new ArrayList<>(); // rolled over, waiting for their last sync
+    private ByteBuffer scratch = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32C crc = new CRC32C();
+
+    // guarded by lock
+    private FileChannel current;
+    private long currentBase;
+    private long written;
+    private long firstUnsyncedAt;
+    private IOException failure;
+    private boolean closed;
+    private volatile long durable;
+    private Thread syncer;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    SegmentedJournal(Path dir, long segmentBytes, long syncIntervalNanos, long syncBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = syncIntervalNanos;
+        this.syncBytes = syncBytes;
+    }
+
+    static String fileName(long base) {
+        return String.format("journal-%019d.log", base);
+    }
+
+    SegmentedJournal open() throws IOException {
+        return open(0);
+    }
+
+    /**
+     * Finds the segments, cuts the log at the first bad record at or after checkpoint and starts the sync
+     * thread. Segments wholly before checkpoint are not read again.
+     */
+    SegmentedJournal open(long checkpoint) throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().matches("journal-\\d{19}\\.log"))
+                    .forEach(p -> segments.put(Long.parseLong(p.getFileName().toString().substring(8, 27)), p));
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, dir.resolve(fileName(0)));
+        }
+        Long base = segments.floorKey(checkpoint);
+        if (base == null) base = segments.firstKey();
+        long valid;
+        while (true) {
+            current = FileChannel.open(segments.get(base), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            valid = validLength(current);
+            Long next = segments.higherKey(base);
+            if (next == null || base + valid != next || valid != current.size()) break;
+            current.close();
+            base = next;
+        }
+        currentBase = base;
+        boolean cut = false;
+        for (Long later : new ArrayList<>(segments.tailMap(base, false).keySet())) {
+            Files.delete(segments.remove(later));
+            cut = true;
+        }
+        if (valid < current.size()) {
+            current.truncate(valid);
+            current.force(true);
+        }
+        if (cut) {
+            try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+                d.force(true);
+            }
+        }
+        current.position(valid);
+        written = currentBase + valid;
+        durable = written;
+
+        syncer = new Thread(this::syncLoop, "journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+        return this;
+    }
+
+    private long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (pos + HEADER <= size) {
+            header.clear();
+            channel.read(header, pos);
+            int length = header.getInt(0);
+            if (length <= 0 || pos + HEADER + length > size) break; // payloads are never empty: zero fill ends the log
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining() && channel.read(payload, pos + HEADER + payload.position()) > 0) {}
+            CRC32C check = new CRC32C();
+            check.update(payload.flip());
+            if ((int) check.getValue() != header.getInt(4)) break;
+            pos += HEADER + length;
+        }
+        return pos;
+    }
+
+    /**
+     * Appends one record of payloadLength bytes, filled in by fill under the journal lock (so anything it
+     * assigns, like an id, follows log order). Returns the end position to pass to awaitDurable().
+     */
+    long append(int payloadLength, Consumer<ByteBuffer> fill) throws IOException {
+        lock.lock();
+        try {
+            if (closed) throw new IOException("Journal is closed");
+            if (failure != null) throw new IOException("Journal failed earlier", failure);
+            int size = HEADER + payloadLength;
+            if (written - currentBase > 0 && written - currentBase + size > segmentBytes) {
+                roll();
+            }
+            if (scratch.capacity() < size) {
+                scratch = ByteBuffer.allocateDirect(Math.max(size, scratch.capacity() * 2));
+            }
+            scratch.clear().position(HEADER).limit(size);
+            fill.accept(scratch);
+            if (scratch.position() != size) {
+                throw new IllegalStateException("Record filled " + (scratch.position() - HEADER)
+                        + " bytes, declared " + payloadLength);
+            }
+            crc.reset();
+            crc.update(scratch.flip().position(HEADER));
+            scratch.putInt(0, payloadLength).putInt(4, (int) crc.getValue()).position(0);
+            try {
+                while (scratch.hasRemaining()) current.write(scratch);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            if (written == durable) firstUnsyncedAt = System.nanoTime();
+            written += size;
+            appends.increment();
+            dirty.signal();
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        retired.add(current);
+        currentBase = written;
+        Path file = dir.resolve(fileName(currentBase));
+        current = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true); // make the new file's directory entry durable too
+        }
+        segments.put(currentBase, file);
+    }
+
+    /** Blocks until position is durable; IOException when the sync failed or the wait timed out. */
+    void awaitDurable(long position, long timeoutNanos) throws IOException, InterruptedException {
+        if (durable >= position) return;
+        lock.lock();
+        try {
+            long left = timeoutNanos;
+            while (durable < position) {
+                if (failure != null) throw new IOException("Journal sync failed", failure);
+                if (left <= 0) throw new IOException("Timed out waiting for the journal sync");
+                left = synced.awaitNanos(left);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Waits up to timeoutNanos for the durable position to pass position; returns it. */
+    long awaitBeyond(long position, long timeoutNanos) throws InterruptedException {
+        if (durable > position) return durable;
+        lock.lock();
+        try {
+            long left = timeoutNanos;
+            while (durable <= position && left > 0 && !closed) {
+                left = synced.awaitNanos(left);
+            }
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        while (true) {
+            long target;
+            List<FileChannel> toSync = new ArrayList<>();
+            lock.lock();
+            try {
+                while (written == durable && !closed) {
+                    dirty.awaitUninterruptibly();
+                }
+                if (written == durable) return; // closed with everything synced
+                // group commit: let more appends join until the interval is up or the byte budget is reached
+                long deadline = firstUnsyncedAt + syncIntervalNanos;
+                while (!closed && written - durable < syncBytes) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    try {
+                        dirty.awaitNanos(left);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                target = written;
+                toSync.addAll(retired);
+                retired.clear();
+                toSync.add(current);
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            for (FileChannel channel : toSync) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            for (int i = 0; i < toSync.size() - 1; i++) {
+                try {
+                    toSync.get(i).close();
+                } catch (IOException ignored) {
+                    // already synced
+                }
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error; // an fsync error cannot be retried safely: fail every waiter and append
+                } else {
+                    durable = target;
+                    if (written > durable) firstUnsyncedAt = System.nanoTime();
+                    syncs.increment();
+                }
+                synced.signalAll();
+                if (error != null) return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    long getDurablePosition() { return durable; }
+
+    /** Deletes segments that end at or before position; the current segment is never deleted. */
+    void deleteBefore(long position) throws IOException {
+        for (Map.Entry<Long, Path> e : segments.entrySet()) {
+            Long next = segments.higherKey(e.getKey());
+            if (next == null || next > position) break;
+            Files.deleteIfExists(e.getValue());
+            segments.remove(e.getKey());
+        }
+    }
+
+    /** Stops the sync thread after a last sync of everything written. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            dirty.signal();
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        current.close();
+    }
+
+    /** Sequential reader over durable records, starting at a record boundary. */
+    Reader reader(long from) {
+        return new Reader(from);
+    }
+
+    final class Reader implements AutoCloseable {
+        private long position;
+        private long channelBase = -1;
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(256 * 1024).flip();
+        private long bufferAt;
+
+        private Reader(long from) {
+            this.position = from;
+        }
+
+        /** Position of the next record (after the last one returned). */
+        long position() { return position; }
+
+        /** The next record's payload (valid until the next call), or null when none is durable yet. */
+        ByteBuffer next() throws IOException {
+            if (position >= durable) return null;
+            Map.Entry<Long, Path> segment = segments.floorEntry(position);
+            if (segment == null) throw new IOException("Journal position " + position + " was deleted");
+            if (segment.getKey() != channelBase) {
+                if (channel != null) channel.close();
+                channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ);
+                channelBase = segment.getKey();
+                buffer.clear().flip();
+                bufferAt = 0;
+            }
+            ensure(HEADER);
+            int length = buffer.getInt(buffer.position());
+            ensure(HEADER + length);
+            ByteBuffer payload = buffer.slice(buffer.position() + HEADER, length);
+            buffer.position(buffer.position() + HEADER + length);
+            position += HEADER + length;
+            return payload;
+        }
+
+        // make at least n bytes from position available in buffer
+        private void ensure(int n) throws IOException {
+            long offset = position - channelBase;
+            if (bufferAt + buffer.limit() >= offset + n && bufferAt <= offset) {
+                buffer.position((int) (offset - bufferAt));
+                return;
+            }
+            if (buffer.capacity() < n) buffer = ByteBuffer.allocate(Math.max(n, buffer.capacity() * 2));
+            buffer.clear();
+            bufferAt = offset;
+            while (buffer.position() < n) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Journal segment " + channelBase + " ends inside a record");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) channel.close();
+        }
+    }
+
+    // ---------- Stats ----------
+    long getAppends() { return appends.sum(); }
+    long getSyncs() { return syncs.sum(); }
+    long getWrittenPosition() {
+        lock.lock();
+        try {
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+    int getSegmentCount() { return segments.size(); }
+}
@@ -0,0 +1,79 @@
+package com.eazybyts.backend.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Timers for the messaging and persistence hot paths, built once so recording is a field read.
+ * - Room ids never become tag values: rooms are hashed into chat.metrics.room-buckets buckets
+ *   ("room.bucket" tag), so the series count stays fixed however many rooms exist
+ * - Saves are timed until their transaction completes, so commit time is included
+ */
+@Component
+public class ChatMetrics {
+    private final Timer[] chatHandle;
+    private final Timer[] typingHandle;
+    private final Timer roomSaveCommitted;
+    private final Timer roomSaveRolledBack;
+    private final Timer dmSaveCommitted;
+    private final Timer dmSaveRolledBack;
+
+    public ChatMetrics(MeterRegistry registry, @Value("${chat.metrics.room-buckets:16}") int roomBuckets) {
+        if (roomBuckets <= 0) {
+            throw new IllegalArgumentException("chat.metrics.room-buckets must be > 0");
+        }
+        chatHandle = new Timer[roomBuckets];
+        typingHandle = new Timer[roomBuckets];
+        for (int b = 0; b < roomBuckets; b++) {
+            chatHandle[b] = Timer.builder("chat.messages.handle")
+                    .description("STOMP /app/chat/{room}: persist + broadcast")
+                    .tag("room.bucket", String.valueOf(b))
+                    .register(registry);
+            typingHandle[b] = Timer.builder("chat.typing.handle")
+                    .description("STOMP /app/typing/{room}")
+                    .tag("room.bucket", String.valueOf(b))
+                    .register(registry);
+        }
+        roomSaveCommitted = saveTimer(registry, "room", "commit");
+        roomSaveRolledBack = saveTimer(registry, "room", "rollback");
+        dmSaveCommitted = saveTimer(registry, "dm", "commit");
+        dmSaveRolledBack = saveTimer(registry, "dm", "rollback");
+    }
+
+    private static Timer saveTimer(MeterRegistry registry, String type, String outcome) {
+        return Timer.builder("chat.persistence.save")
+                .description("Message save, including its transaction commit")
+                .tags("type", type, "outcome", outcome)
+                .register(registry);
+    }
+
+    public Timer chatHandle(String room) { return chatHandle[bucket(room, chatHandle.length)]; }
+    public Timer typingHandle(String room) { return typingHandle[bucket(room, typingHandle.length)]; }
+
+    static int bucket(String room, int buckets) {
+        int h = room != null ? room.hashCode() : 0;
+        return Math.floorMod(h ^ (h >>> 16), buckets);
+    }
+
+    /** Starts timing a room-message save; it stops when the surrounding transaction completes. */
+    public void roomSaveStarted() { startSave(roomSaveCommitted, roomSaveRolledBack); }
+
+    /** Starts timing a direct-message save; it stops when the surrounding transaction completes. */
+    public void dmSaveStarted() { startSave(dmSaveCommitted, dmSaveRolledBack); }
+
+    private static void startSave(Timer committed, Timer rolledBack) {
+        // without a transaction there is no completion callback and nothing to time
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        Timer.Sample sample = Timer.start();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                sample.stop(status == STATUS_COMMITTED ? committed : rolledBack);
+            }
+        });
+    }
+}
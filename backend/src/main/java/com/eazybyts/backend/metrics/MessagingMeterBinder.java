@@ -0,0 +1,248 @@
+package com.eazybyts.backend.metrics;
+
+import com.eazybyts.backend.auth.CustomUserDetailsService;
+import com.eazybyts.backend.auth.JwtService;
+import com.eazybyts.backend.broker.StripedBrokerMessageHandler;
+import com.eazybyts.backend.chat.MessageWriteBehind;
+import com.eazybyts.backend.chat.UnreadCounters;
+import com.eazybyts.backend.cluster.ClusterRelay;
+import com.eazybyts.backend.cluster.TcpClusterBus;
+import com.eazybyts.backend.config.ConnectionGate;
+import com.eazybyts.backend.config.InboundConcurrencyLimiter;
+import com.eazybyts.backend.journal.MessageJournal;
+import com.eazybyts.backend.presence.PresenceTracker;
+import com.eazybyts.backend.ratelimit.FloodControl;
+import com.eazybyts.backend.search.MessageSearchIndex;
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import com.eazybyts.backend.tiering.HistoryArchiver;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Publishes the existing Stats getters as meters (read on scrape, nothing added to the hot paths):
+ * - clientInbound/clientOutbound channel pools: queue depth, active and pooled threads
+ * - striped broker: published/delivered counts and messages waiting in lanes (chat.broker.mode=striped)
+ * - principal lookups (cache hit/miss) and the verified-JWT cache
+ * - write-behind queue depth and persisted/rejected/failed counts
+ * - message journal: appends, fsyncs, projected rows and projection lag
+ * - read markers waiting for their checkpoint, markers written and baseline range counts
+ * - online users, live sessions and heart-beat expiries
+ * - flood control: sends allowed/rejected and tracked users per budget
+ * - search index: messages indexed, segments, tail size, merges and searches
+ * - history tiering: archived segments/bytes, rows moved and cold blocks decoded
+ * - cluster relay: publications relayed/delivered, relayed destinations with local subscribers, TCP bus links
+ * - the ConnectionGate in front of the pool and the inbound handler limit, when virtual threads are on
+ */
+@Component
+public class MessagingMeterBinder implements MeterBinder {
+    private final Executor inbound;
+    private final Executor outbound;
+    private final ObjectProvider<StripedBrokerMessageHandler> broker;
+    private final CustomUserDetailsService userDetails;
+    private final JwtService jwt;
+    private final MessageWriteBehind writeBehind;
+    private final MessageJournal journal;
+    private final UnreadCounters unread;
+    private final PresenceTracker presence;
+    private final FloodControl floodControl;
+    private final MessageSearchIndex search;
+    private final ColdHistoryStore history;
+    private final HistoryArchiver archiver;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<InboundConcurrencyLimiter> inboundLimiter;
+    private final ObjectProvider<ClusterRelay> clusterRelay;
+    private final ObjectProvider<TcpClusterBus> tcpBus;
+
+    public MessagingMeterBinder(@Qualifier("clientInboundChannelExecutor") Executor inbound,
+                                @Qualifier("clientOutboundChannelExecutor") Executor outbound,
+                                ObjectProvider<StripedBrokerMessageHandler> broker,
+                                CustomUserDetailsService userDetails, JwtService jwt,
+                                MessageWriteBehind writeBehind, MessageJournal journal, UnreadCounters unread,
+                                PresenceTracker presence, FloodControl floodControl,
+                                MessageSearchIndex search, ColdHistoryStore history, HistoryArchiver archiver,
+                                ObjectProvider<DataSource> dataSource,
+                                ObjectProvider<InboundConcurrencyLimiter> inboundLimiter,
+                                ObjectProvider<ClusterRelay> clusterRelay, ObjectProvider<TcpClusterBus> tcpBus) {
+        this.inbound = inbound;
+        this.outbound = outbound;
+        this.broker = broker;
+        this.userDetails = userDetails;
+        this.jwt = jwt;
+        this.writeBehind = writeBehind;
+        this.journal = journal;
+        this.unread = unread;
+        this.presence = presence;
+        this.floodControl = floodControl;
+        this.search = search;
+        this.history = history;
+        this.archiver = archiver;
+        this.dataSource = dataSource;
+        this.inboundLimiter = inboundLimiter;
+        this.clusterRelay = clusterRelay;
+        this.tcpBus = tcpBus;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindChannel(registry, "inbound", inbound);
+        bindChannel(registry, "outbound", outbound);
+
+        StripedBrokerMessageHandler striped = broker.getIfAvailable();
+        if (striped != null) {
+            FunctionCounter.builder("chat.broker.published", striped, StripedBrokerMessageHandler::getPublished)
+                    .description("Messages published to /topic and /queue").register(registry);
+            FunctionCounter.builder("chat.broker.delivered", striped, StripedBrokerMessageHandler::getDelivered)
+                    .description("Per-subscriber copies handed to the outbound channel").register(registry);
+            Gauge.builder("chat.broker.lane.queued", striped, StripedBrokerMessageHandler::getQueuedMessages)
+                    .description("Published messages waiting for their lane thread").register(registry);
+        }
+
+        FunctionCounter.builder("auth.user.lookups", userDetails, CustomUserDetailsService::getCacheHits)
+                .tag("cache", "hit").register(registry);
+        FunctionCounter.builder("auth.user.lookups", userDetails, CustomUserDetailsService::getCacheMisses)
+                .tag("cache", "miss").register(registry);
+        Gauge.builder("auth.user.cache.size", userDetails, CustomUserDetailsService::getCacheSize)
+                .register(registry);
+        FunctionCounter.builder("auth.jwt.cache", jwt, j -> j.getVerifiedTokenCache().getHits())
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.jwt.cache", jwt, j -> j.getVerifiedTokenCache().getMisses())
+                .tag("result", "miss").register(registry);
+
+        Gauge.builder("chat.write-behind.queue.size", writeBehind, MessageWriteBehind::getQueueDepth)
+                .register(registry);
+        FunctionCounter.builder("chat.write-behind.messages", writeBehind, MessageWriteBehind::getPersisted)
+                .tag("result", "persisted").register(registry);
+        FunctionCounter.builder("chat.write-behind.messages", writeBehind, MessageWriteBehind::getRejected)
+                .tag("result", "rejected").register(registry);
+        FunctionCounter.builder("chat.write-behind.messages", writeBehind, MessageWriteBehind::getFailed)
+                .tag("result", "failed").register(registry);
+
+        if (journal.isEnabled()) {
+            FunctionCounter.builder("chat.journal.messages", journal, MessageJournal::getAppended)
+                    .tag("result", "appended").register(registry);
+            FunctionCounter.builder("chat.journal.messages", journal, MessageJournal::getRejected)
+                    .tag("result", "rejected").register(registry);
+            FunctionCounter.builder("chat.journal.messages", journal, MessageJournal::getProjected)
+                    .tag("result", "projected").register(registry);
+            FunctionCounter.builder("chat.journal.syncs", journal, MessageJournal::getSyncs)
+                    .description("Group-commit fsyncs; appended / syncs is the group size").register(registry);
+            FunctionCounter.builder("chat.journal.projection.retries", journal, MessageJournal::getProjectionRetries)
+                    .register(registry);
+            Gauge.builder("chat.journal.projection.lag", journal, MessageJournal::getProjectionLagBytes)
+                    .baseUnit("bytes").description("Durable journal bytes not yet in the messages table")
+                    .register(registry);
+            Gauge.builder("chat.journal.segments", journal, MessageJournal::getSegmentCount).register(registry);
+            Gauge.builder("chat.journal.indexer.failed", journal, j -> j.isIndexerFailed() ? 1 : 0)
+                    .description("1 once the indexer has stopped on an I/O error and appends are rejected")
+                    .register(registry);
+        }
+
+        Gauge.builder("chat.unread.markers.dirty", unread, UnreadCounters::getDirtyMarkers)
+                .description("Read markers changed since the last checkpoint").register(registry);
+        FunctionCounter.builder("chat.unread.markers.written", unread, UnreadCounters::getMarkersWritten)
+                .register(registry);
+        FunctionCounter.builder("chat.unread.baseline.counts", unread, UnreadCounters::getBaselineCounts)
+                .description("Range counts run because a marker was set behind the newest message")
+                .register(registry);
+
+        Gauge.builder("chat.presence.users", presence, PresenceTracker::getOnlineUsers)
+                .description("Users with at least one live session").register(registry);
+        Gauge.builder("chat.presence.sessions", presence, PresenceTracker::getSessions).register(registry);
+        FunctionCounter.builder("chat.presence.expired", presence, PresenceTracker::getExpired)
+                .description("Sessions dropped for missing heart-beats").register(registry);
+
+        if (floodControl.isEnabled()) {
+            for (FloodControl.Budget budget : FloodControl.Budget.values()) {
+                FunctionCounter.builder("chat.ratelimit.sends", floodControl, f -> f.getAllowed(budget))
+                        .tag("budget", budget.label()).tag("result", "allowed").register(registry);
+                FunctionCounter.builder("chat.ratelimit.sends", floodControl, f -> f.getRejected(budget))
+                        .tag("budget", budget.label()).tag("result", "rejected").register(registry);
+                Gauge.builder("chat.ratelimit.keys", floodControl, f -> f.getKeyCount(budget))
+                        .tag("budget", budget.label()).description("Users with a partly used budget")
+                        .register(registry);
+            }
+        }
+
+        FunctionCounter.builder("chat.search.indexed", search, MessageSearchIndex::getIndexed).register(registry);
+        FunctionCounter.builder("chat.search.queries", search, MessageSearchIndex::getSearches).register(registry);
+        FunctionCounter.builder("chat.search.merges", search, MessageSearchIndex::getMerges).register(registry);
+        Gauge.builder("chat.search.segments", search, MessageSearchIndex::getSegmentCount).register(registry);
+        Gauge.builder("chat.search.tail.docs", search, MessageSearchIndex::getTailDocs)
+                .description("Messages in the mutable tail, not yet in a segment").register(registry);
+
+        if (history.isEnabled()) {
+            Gauge.builder("chat.tiering.segments", history, ColdHistoryStore::getSegmentCount).register(registry);
+            Gauge.builder("chat.tiering.bytes", history, ColdHistoryStore::getArchivedBytes)
+                    .baseUnit("bytes").register(registry);
+            FunctionCounter.builder("chat.tiering.archived", archiver, HistoryArchiver::getArchivedRows)
+                    .description("Messages moved from the tables into history segments").register(registry);
+            FunctionCounter.builder("chat.tiering.block.reads", history, ColdHistoryStore::getBlockReads)
+                    .description("Compressed history blocks decoded for reads").register(registry);
+        }
+
+        if (dataSource.getIfAvailable() instanceof ConnectionGate gate) {
+            Gauge.builder("chat.db.gate.in-use", gate, ConnectionGate::getInUse).register(registry);
+            Gauge.builder("chat.db.gate.waiting", gate, ConnectionGate::getWaiting)
+                    .description("Threads parked for a connection permit").register(registry);
+            FunctionCounter.builder("chat.db.gate.timeouts", gate, ConnectionGate::getTimeouts).register(registry);
+        }
+        InboundConcurrencyLimiter limiter = inboundLimiter.getIfAvailable();
+        if (limiter != null) {
+            Gauge.builder("chat.channel.handlers.active", limiter, InboundConcurrencyLimiter::getInUse)
+                    .tag("channel", "inbound").register(registry);
+            Gauge.builder("chat.channel.handlers.waiting", limiter, InboundConcurrencyLimiter::getWaiting)
+                    .tag("channel", "inbound").register(registry);
+        }
+        ClusterRelay relay = clusterRelay.getIfAvailable();
+        if (relay != null) {
+            FunctionCounter.builder("chat.cluster.messages", relay, ClusterRelay::getRelayed)
+                    .tag("direction", "out").description("Local publications handed to the cluster bus").register(registry);
+            FunctionCounter.builder("chat.cluster.messages", relay, ClusterRelay::getDelivered)
+                    .tag("direction", "in").description("Publications from other nodes fanned out here").register(registry);
+            Gauge.builder("chat.cluster.interest", relay, ClusterRelay::getInterestCount)
+                    .description("Relayed destinations with subscribers on this node").register(registry);
+        }
+        TcpClusterBus bus = tcpBus.getIfAvailable();
+        if (bus != null) {
+            Gauge.builder("chat.cluster.peers.connected", bus, TcpClusterBus::getConnectedPeers).register(registry);
+            FunctionCounter.builder("chat.cluster.bus.frames", bus, TcpClusterBus::getSent)
+                    .tag("result", "sent").register(registry);
+            FunctionCounter.builder("chat.cluster.bus.frames", bus, TcpClusterBus::getDropped)
+                    .tag("result", "dropped").description("Publications dropped on a full peer queue").register(registry);
+        }
+    }
+
+    // Spring declares the channel executors as plain Executors; the default (and sized) ones are pools
+    private static void bindChannel(MeterRegistry registry, String channel, Executor channelExecutor) {
+        if (!(channelExecutor instanceof ThreadPoolTaskExecutor executor)) return;
+        Gauge.builder("chat.channel.queue.size", executor, e -> {
+                    ThreadPoolExecutor pool = pool(e);
+                    return pool != null ? pool.getQueue().size() : 0;
+                })
+                .description("Messages waiting for a channel thread")
+                .tag("channel", channel).register(registry);
+        Gauge.builder("chat.channel.threads.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("channel", channel).register(registry);
+        Gauge.builder("chat.channel.threads", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("channel", channel).register(registry);
+    }
+
+    // null until the executor is initialized
+    private static ThreadPoolExecutor pool(ThreadPoolTaskExecutor executor) {
+        try {
+            return executor.getThreadPoolExecutor();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+}
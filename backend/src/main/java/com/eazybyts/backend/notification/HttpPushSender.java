@@ -0,0 +1,53 @@
+package com.eazybyts.backend.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Posts each batch as one JSON array of {token, title, body} to chat.notifications.http.url.
+ * Stand-in for a push gateway (or a local stub server in tests):
+ * - 2xx: batch delivered
+ * - 4xx other than 429: the gateway refused the batch, so it is dead-lettered
+ * - 429, 5xx, timeouts: retried with backoff
+ */
+@Component
+@ConditionalOnProperty(name = "chat.notifications.sender", havingValue = "http")
+public class HttpPushSender implements PushSender {
+
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final URI url;
+    private final Duration timeout;
+
+    public HttpPushSender(ObjectMapper mapper,
+                          @Value("${chat.notifications.http.url}") String url,
+                          @Value("${chat.notifications.http.timeout-ms:5000}") long timeoutMs) {
+        this.mapper = mapper;
+        this.url = URI.create(url);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public PushResult send(List<PushNotification> batch) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(batch)))
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status / 100 == 2) return PushResult.ok();
+        if (status / 100 == 4 && status != 429) return new PushResult(List.of(), batch);
+        return new PushResult(batch, List.of());
+    }
+}
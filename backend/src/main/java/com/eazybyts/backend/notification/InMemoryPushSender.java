@@ -0,0 +1,44 @@
+package com.eazybyts.backend.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Default sender until a real push provider is wired in: logs and keeps the most recent pushes
+ * in memory so local runs and tests can see what would have been sent.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.notifications.sender", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPushSender implements PushSender {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryPushSender.class);
+
+    private final int capacity;
+    private final Deque<PushNotification> recent = new ArrayDeque<>();
+    private long sent;
+
+    public InMemoryPushSender(@Value("${chat.notifications.memory.capacity:1000}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    @Override
+    public synchronized PushResult send(List<PushNotification> batch) {
+        for (PushNotification n : batch) {
+            log.debug("Would push to {}: {} - {}", n.token(), n.title(), n.body());
+            if (recent.size() == capacity) recent.removeFirst();
+            recent.addLast(n);
+        }
+        sent += batch.size();
+        return PushResult.ok();
+    }
+
+    public synchronized List<PushNotification> getRecent() { return new ArrayList<>(recent); }
+    public synchronized long getSent() { return sent; }
+}
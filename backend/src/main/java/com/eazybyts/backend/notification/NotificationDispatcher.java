@@ -0,0 +1,197 @@
+package com.eazybyts.backend.notification;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers pushes off the request thread.
+ * - enqueue() never blocks: a full queue drops the push (and counts it) rather than slow down a DM
+ * - worker threads drain up to batch-size pushes, waiting at most linger-ms, and hand them to the PushSender in one call
+ * - transient failures are resent after base-backoff-ms * 2^(attempt-1), capped at max-backoff-ms
+ * - after max-attempts, or on a permanent rejection, the push lands in a bounded dead-letter list
+ */
+@Component
+public class NotificationDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    @Value("${chat.notifications.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${chat.notifications.workers:1}")
+    private int workers;
+    @Value("${chat.notifications.batch-size:100}")
+    private int batchSize;
+    @Value("${chat.notifications.linger-ms:10}")
+    private long lingerMs;
+    @Value("${chat.notifications.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${chat.notifications.base-backoff-ms:200}")
+    private long baseBackoffMs;
+    @Value("${chat.notifications.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+    @Value("${chat.notifications.dead-letter-capacity:1000}")
+    private int deadLetterCapacity;
+
+    private final PushSender sender;
+
+    private BlockingQueue<Pending> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService retries;
+    private volatile boolean running;
+    private final Deque<PushNotification> deadLetters = new ArrayDeque<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder sendCalls = new LongAdder();
+
+    private record Pending(PushNotification notification, int attempt) {}
+
+    public NotificationDispatcher(PushSender sender) {
+        this.sender = sender;
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notification-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread t = new Thread(this::drainLoop, "notification-dispatch-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        retries.shutdownNow();
+        for (Thread t : threads) t.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            log.warn("Notification dispatcher shut down with {} pushes undelivered", queue.size());
+        }
+    }
+
+    /** Queue a push; returns false if it was dropped because the queue is full. */
+    public boolean enqueue(PushNotification n) {
+        if (queue.offer(new Pending(n, 1))) {
+            enqueued.increment();
+            return true;
+        }
+        dropped.increment();
+        log.warn("Notification queue full, dropping push to {}", n.token());
+        return false;
+    }
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) break;
+                    Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                // keep draining; stop() ends the loop via the running flag
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void dispatch(List<Pending> batch) {
+        List<PushNotification> pushes = new ArrayList<>(batch.size());
+        Map<PushNotification, Pending> byPush = new IdentityHashMap<>();
+        for (Pending p : batch) {
+            pushes.add(p.notification());
+            byPush.put(p.notification(), p);
+        }
+        PushResult result;
+        sendCalls.increment();
+        try {
+            result = sender.send(pushes);
+        } catch (Exception e) {
+            log.debug("Push batch of {} failed", pushes.size(), e);
+            result = new PushResult(pushes, List.of());
+        }
+        for (PushNotification n : result.rejected()) {
+            deadLetter(n);
+        }
+        for (PushNotification n : result.retry()) {
+            Pending p = byPush.get(n);
+            if (p != null) retry(p); else deadLetter(n);
+        }
+        delivered.add(pushes.size() - result.rejected().size() - result.retry().size());
+    }
+
+    private void retry(Pending p) {
+        if (p.attempt() >= maxAttempts || !running) {
+            deadLetter(p.notification());
+            return;
+        }
+        long delay = Math.min(maxBackoffMs, baseBackoffMs << Math.min(p.attempt() - 1, 20));
+        Pending next = new Pending(p.notification(), p.attempt() + 1);
+        retried.increment();
+        retries.schedule(() -> {
+            if (!queue.offer(next)) deadLetter(next.notification());
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deadLetter(PushNotification n) {
+        deadLettered.increment();
+        synchronized (deadLetters) {
+            if (deadLetters.size() == deadLetterCapacity) deadLetters.removeFirst();
+            deadLetters.addLast(n);
+        }
+    }
+
+    /** Most recent pushes that could not be delivered, oldest first. */
+    public List<PushNotification> getDeadLetters() {
+        synchronized (deadLetters) {
+            return new ArrayList<>(deadLetters);
+        }
+    }
+
+    // ---------- Stats ----------
+    public int getQueueDepth() { return queue != null ? queue.size() : 0; }
+    public long getEnqueued() { return enqueued.sum(); }
+    public long getDelivered() { return delivered.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getRetried() { return retried.sum(); }
+    public long getDeadLettered() { return deadLettered.sum(); }
+    public long getSendCalls() { return sendCalls.sum(); }
+}
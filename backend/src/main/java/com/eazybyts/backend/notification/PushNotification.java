@@ -0,0 +1,4 @@
+package com.eazybyts.backend.notification;
+
+/** One push to one device token. */
+public record PushNotification(String token, String title, String body) {}
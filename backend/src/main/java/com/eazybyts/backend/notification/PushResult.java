@@ -0,0 +1,16 @@
+package com.eazybyts.backend.notification;
+
+import java.util.List;
+
+/**
+ * Outcome of one PushSender.send call.
+ * - retry: transient failures (timeouts, 5xx, unavailable); the dispatcher backs off and resends them
+ * - rejected: permanent failures (bad or unregistered token); they go straight to the dead-letter list
+ * Both lists hold instances taken from the batch; everything else in it counts as delivered.
+ */
+public record PushResult(List<PushNotification> retry, List<PushNotification> rejected) {
+
+    private static final PushResult OK = new PushResult(List.of(), List.of());
+
+    public static PushResult ok() { return OK; }
+}
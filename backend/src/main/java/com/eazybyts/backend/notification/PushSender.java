@@ -0,0 +1,12 @@
+package com.eazybyts.backend.notification;
+
+import java.util.List;
+
+/**
+ * Transport behind NotificationDispatcher (chat.notifications.sender).
+ * Implementations get a batch of up to chat.notifications.batch-size pushes and should deliver
+ * them in as few remote calls as the provider allows. Throwing means the whole batch is retried.
+ */
+public interface PushSender {
+    PushResult send(List<PushNotification> batch) throws Exception;
+}
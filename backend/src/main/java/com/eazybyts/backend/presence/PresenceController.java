@@ -0,0 +1,22 @@
+package com.eazybyts.backend.presence;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    private final PresenceRegistry registry;
+
+    public PresenceController(PresenceRegistry registry) {
+        this.registry = registry;
+    }
+
+    // POST /api/presence/online  [1,2,3,...]  → the ids in the list that are online (in-memory, no queries)
+    @PostMapping("/online")
+    public List<Long> online(@RequestBody List<Long> userIds) {
+        return registry.online(userIds);
+    }
+}
@@ -0,0 +1,6 @@
+package com.eazybyts.backend.presence;
+
+import java.util.List;
+
+/** Users that came online / went offline since the previous delta on /topic/presence. */
+public record PresenceDelta(List<Long> online, List<Long> offline) {}
@@ -0,0 +1,27 @@
+package com.eazybyts.backend.presence;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * clientInbound interceptor: any frame from a session, STOMP heart-beats included, keeps it present.
+ * Separate from PresenceTracker, which needs the messaging template the channel configuration creates.
+ */
+@Component
+public class PresenceHeartbeatInterceptor implements ChannelInterceptor {
+    private final PresenceRegistry registry;
+
+    public PresenceHeartbeatInterceptor(PresenceRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) registry.touch(sessionId, System.currentTimeMillis());
+        return message;
+    }
+}
@@ -0,0 +1,186 @@
+package com.eazybyts.backend.presence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Who is online, by user id; a user is online while at least one of their sessions (devices) is.
+ * - Users are spread over a power-of-two number of shards, each its own ConcurrentHashMap, so maps stay
+ *   small, writers on different shards never contend and lookups are lock-free reads
+ * - connect/disconnect/expire report the transitions (first session in, last session out) so callers
+ *   only publish real changes
+ * - A session that negotiated a heart-beat expires after graceFactor x that interval without a frame;
+ *   sessions without one only leave on disconnect
+ * - Nothing closes an expired session's socket, so it is kept (marked expired) until it disconnects: a later
+ *   frame on it revives it, and a user who comes back online that way is queued for drainRevived()
+ */
+@Component
+public class PresenceRegistry {
+    private final ConcurrentHashMap<Long, Set<String>>[] shards;
+    private final int shardMask;
+    private final double graceFactor;
+    final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>(); // package-private for tests
+    private final ConcurrentLinkedQueue<Long> revived = new ConcurrentLinkedQueue<>();
+
+    static final class Session {
+        final String id;
+        final long userId;
+        final long heartbeatMs;
+        volatile long lastSeenMs;
+        volatile boolean expired; // changed under the session's monitor
+
+        Session(String id, long userId, long heartbeatMs, long nowMs) {
+            this.id = id;
+            this.userId = userId;
+            this.heartbeatMs = heartbeatMs;
+            this.lastSeenMs = nowMs;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public PresenceRegistry(@Value("${chat.presence.shards:16}") int shards,
+                            @Value("${chat.presence.grace-factor:3}") double graceFactor) {
+        if (shards <= 0 || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("shards must be a power of two");
+        }
+        if (graceFactor < 1) {
+            throw new IllegalArgumentException("graceFactor must be >= 1");
+        }
+        this.shards = new ConcurrentHashMap[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new ConcurrentHashMap<>();
+        }
+        this.shardMask = shards - 1;
+        this.graceFactor = graceFactor;
+    }
+
+    /** Returns true when this is the user's first session, i.e. the user just came online. */
+    public boolean connect(String sessionId, long userId, long heartbeatMs, long nowMs) {
+        Session previous = sessions.put(sessionId, new Session(sessionId, userId, heartbeatMs, nowMs));
+        if (previous != null && previous.userId != userId) {
+            removeSession(previous.userId, sessionId);
+        }
+        return addSession(userId, sessionId);
+    }
+
+    // true when this is the user's first session
+    private boolean addSession(long userId, String sessionId) {
+        boolean[] cameOnline = new boolean[1];
+        shard(userId).compute(userId, (id, current) -> {
+            cameOnline[0] = current == null;
+            if (current == null) return Set.of(sessionId);
+            if (current.contains(sessionId)) return current;
+            Set<String> more = new HashSet<>(current);
+            more.add(sessionId);
+            return Set.copyOf(more);
+        });
+        return cameOnline[0];
+    }
+
+    /** Returns the user id when this was the user's last session (they went offline), else null. */
+    public Long disconnect(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) return null;
+        synchronized (session) {
+            // a touch() that read the session before the remove re-checks the map under this monitor
+            return removeSession(session.userId, sessionId) ? session.userId : null;
+        }
+    }
+
+    /** Any frame from the session counts as a heart-beat, and brings an expired session back. */
+    public void touch(String sessionId, long nowMs) {
+        Session session = sessions.get(sessionId);
+        if (session == null) return;
+        session.lastSeenMs = nowMs;
+        if (!session.expired) return;
+        synchronized (session) {
+            if (!session.expired || sessions.get(sessionId) != session) return; // revived already, or disconnected
+            session.expired = false;
+            if (addSession(session.userId, sessionId)) revived.add(session.userId);
+        }
+    }
+
+    /** Takes the users that came back online through touch() since the last call and are still online. */
+    public List<Long> drainRevived() {
+        List<Long> out = new ArrayList<>();
+        for (Long userId; (userId = revived.poll()) != null; ) {
+            if (isOnline(userId)) out.add(userId);
+        }
+        return out;
+    }
+
+    /** Expires sessions past their heart-beat grace; returns the users that went offline because of it. */
+    public List<Long> expire(long nowMs) {
+        List<Long> offline = new ArrayList<>();
+        for (Session s : sessions.values()) {
+            if (s.expired || s.heartbeatMs <= 0 || !silent(s, nowMs)) continue;
+            synchronized (s) {
+                // re-checked under the monitor: a frame may have arrived since
+                if (s.expired || !silent(s, nowMs)) continue;
+                s.expired = true;
+                if (removeSession(s.userId, s.id)) offline.add(s.userId);
+            }
+        }
+        return offline;
+    }
+
+    private boolean silent(Session s, long nowMs) {
+        return nowMs - s.lastSeenMs > (long) (s.heartbeatMs * graceFactor);
+    }
+
+    // true when the user has no sessions left
+    private boolean removeSession(long userId, String sessionId) {
+        boolean[] wentOffline = new boolean[1];
+        shard(userId).computeIfPresent(userId, (id, current) -> {
+            if (!current.contains(sessionId)) return current;
+            if (current.size() == 1) {
+                wentOffline[0] = true;
+                return null;
+            }
+            Set<String> rest = new HashSet<>(current);
+            rest.remove(sessionId);
+            return Set.copyOf(rest);
+        });
+        return wentOffline[0];
+    }
+
+    public boolean isOnline(long userId) {
+        return shard(userId).containsKey(userId);
+    }
+
+    /** The subset of userIds that is online, in the order given. */
+    public List<Long> online(Collection<Long> userIds) {
+        List<Long> online = new ArrayList<>();
+        for (Long id : userIds) {
+            if (id != null && isOnline(id)) online.add(id);
+        }
+        return online;
+    }
+
+    /** Sessions (devices) the user has open. */
+    public int sessionCount(long userId) {
+        Set<String> mine = shard(userId).get(userId);
+        return mine != null ? mine.size() : 0;
+    }
+
+    private ConcurrentHashMap<Long, Set<String>> shard(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L; // ids are sequential: spread them before masking
+        return shards[(int) (h >>> 32) & shardMask];
+    }
+
+    // ---------- Stats ----------
+    public int getOnlineUsers() {
+        int n = 0;
+        for (var shard : shards) n += shard.size();
+        return n;
+    }
+    public int getSessions() { return sessions.size(); } // expired sessions included until they disconnect
+}
@@ -0,0 +1,150 @@
+package com.eazybyts.backend.presence;
+
+import com.eazybyts.backend.auth.CustomUserDetailsService;
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feeds PresenceRegistry from the STOMP session lifecycle and publishes the changes.
+ * - SessionConnectedEvent / SessionDisconnectEvent add and remove sessions; the heart-beat the session
+ *   negotiated (client's cx vs the broker's chat.presence.heartbeat-ms) decides whether it can expire
+ * - PresenceHeartbeatInterceptor refreshes a session on every inbound frame (heart-beats included)
+ * - Every chat.presence.broadcast-ms a tick expires silent sessions, picks up expired ones that sent a frame
+ *   again (PresenceRegistry.drainRevived) and sends one PresenceDelta to /topic/presence; a user who goes
+ *   offline and back within one tick produces nothing
+ */
+@Component
+public class PresenceTracker {
+    private static final Logger log = LoggerFactory.getLogger(PresenceTracker.class);
+    public static final String DESTINATION = "/topic/presence";
+
+    @Value("${chat.presence.broadcast-ms:1000}")
+    private long broadcastMs;
+
+    private final PresenceRegistry registry;
+    private final CustomUserDetailsService users;
+    private final SimpMessagingTemplate broker;
+    private final BroadcastEncoder encoder;
+    // userId → new state not yet broadcast; absent = nothing changed since the last delta
+    private final ConcurrentHashMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder deltasOut = new LongAdder();
+
+    public PresenceTracker(PresenceRegistry registry, CustomUserDetailsService users, SimpMessagingTemplate broker,
+                           BroadcastEncoder encoder) {
+        this.registry = registry;
+        this.users = users;
+        this.broker = broker;
+        this.encoder = encoder;
+    }
+
+    @PostConstruct
+    void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, broadcastMs, broadcastMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (user == null || sessionId == null) return;
+        long userId;
+        try {
+            userId = users.findUserId(user.getName());
+        } catch (UsernameNotFoundException e) {
+            return;
+        }
+        if (registry.connect(sessionId, userId, clientHeartbeatMs(event.getMessage().getHeaders()),
+                System.currentTimeMillis())) {
+            changed(userId, true);
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Long wentOffline = registry.disconnect(event.getSessionId());
+        if (wentOffline != null) changed(wentOffline, false);
+    }
+
+    // how often the client promised to send something: max(client cx, broker sy), 0 unless both want it
+    static long clientHeartbeatMs(MessageHeaders connectAck) {
+        long[] server = (long[]) connectAck.get(SimpMessageHeaderAccessor.HEART_BEAT_HEADER);
+        Message<?> connect = (Message<?>) connectAck.get(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+        if (server == null || connect == null) return 0;
+        long[] client = StompHeaderAccessor.wrap(connect).getHeartbeat();
+        return client[0] > 0 && server[1] > 0 ? Math.max(client[0], server[1]) : 0;
+    }
+
+    // presence only toggles, so a second change before the tick cancels the first whatever their order
+    private void changed(long userId, boolean online) {
+        pending.compute(userId, (id, unsent) -> unsent == null ? online : null);
+    }
+
+    void tick() {
+        try {
+            for (Long userId : registry.expire(System.currentTimeMillis())) {
+                expired.increment();
+                changed(userId, false);
+            }
+            for (Long userId : registry.drainRevived()) {
+                changed(userId, true);
+            }
+            if (pending.isEmpty()) return;
+            List<Long> online = new ArrayList<>();
+            List<Long> offline = new ArrayList<>();
+            for (Long userId : pending.keySet()) {
+                Boolean state = pending.remove(userId);
+                if (state != null) (state ? online : offline).add(userId);
+            }
+            if (online.isEmpty() && offline.isEmpty()) return;
+            Collections.sort(online);
+            Collections.sort(offline);
+            broker.send(DESTINATION, encoder.encode(DESTINATION, new PresenceDelta(online, offline)));
+            deltasOut.increment();
+        } catch (RuntimeException e) {
+            log.warn("Presence tick failed", e);
+        }
+    }
+
+    // ---------- Stats ----------
+    public int getOnlineUsers() { return registry.getOnlineUsers(); }
+    public int getSessions() { return registry.getSessions(); }
+    public long getExpired() { return expired.sum(); }
+    public long getDeltasOut() { return deltasOut.sum(); }
+}
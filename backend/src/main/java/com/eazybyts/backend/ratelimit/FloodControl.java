@@ -0,0 +1,147 @@
+package com.eazybyts.backend.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user flood control for the send paths (chat.rate-limit), one RateLimiter per Budget.
+ * - clientInbound interceptor: SEND frames to /app/chat/** and /app/typing/** are dropped in preSend,
+ *   on the WebSocket thread, before they are queued for a handler or reach the database. A dropped chat
+ *   frame is answered with a FloodRejection on the sending session's /user/queue/errors, so the client
+ *   can tell the user; dropped typing frames are not worth a reply
+ * - REST sends call check(), which throws FloodLimitException (429)
+ * - Buckets are keyed by the authenticated principal, so all of a user's sessions share one budget;
+ *   a frame without a principal is charged to its STOMP session
+ * - Idle buckets are swept every minute
+ */
+@Component
+public class FloodControl implements ChannelInterceptor {
+    // WebSocketConfig's application destination prefix plus ChatController's mappings
+    private static final String CHAT_PREFIX = "/app/chat/";
+    private static final String TYPING_PREFIX = "/app/typing/";
+    private static final String ERRORS = "/queue/errors";
+    private static final String CHAT_REJECTED = new FloodLimitException(Budget.CHAT).getMessage();
+
+    public enum Budget {
+        CHAT("chat"), TYPING("typing"), DIRECT("direct");
+
+        private final String label;
+
+        Budget(String label) { this.label = label; }
+
+        public String label() { return label; }
+    }
+
+    @Value("${chat.rate-limit.enabled:true}")
+    private boolean enabled;
+    @Value("${chat.rate-limit.chat.per-second:10}")
+    private double chatPerSecond;
+    @Value("${chat.rate-limit.chat.burst:20}")
+    private int chatBurst;
+    @Value("${chat.rate-limit.typing.per-second:4}")
+    private double typingPerSecond;
+    @Value("${chat.rate-limit.typing.burst:8}")
+    private int typingBurst;
+    @Value("${chat.rate-limit.direct.per-second:5}")
+    private double directPerSecond;
+    @Value("${chat.rate-limit.direct.burst:10}")
+    private int directBurst;
+
+    private final Map<Budget, RateLimiter> limiters = new EnumMap<>(Budget.class);
+    private final SimpMessagingTemplate broker;
+    private ScheduledExecutorService sweeper;
+
+    // lazy: WebSocketConfig registers this interceptor while the broker template is being configured
+    public FloodControl(@Lazy SimpMessagingTemplate broker) {
+        this.broker = broker;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        limiters.put(Budget.CHAT, new RateLimiter(chatPerSecond, chatBurst));
+        limiters.put(Budget.TYPING, new RateLimiter(typingPerSecond, typingBurst));
+        limiters.put(Budget.DIRECT, new RateLimiter(directPerSecond, directBurst));
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flood-control-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            long now = System.nanoTime();
+            limiters.values().forEach(l -> l.evictIdle(now));
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) return message;
+        Budget budget = destination.startsWith(CHAT_PREFIX) ? Budget.CHAT
+                : destination.startsWith(TYPING_PREFIX) ? Budget.TYPING : null;
+        if (budget == null) return message;
+
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String key = user != null ? user.getName() : "session:" + sessionId;
+        if (limiters.get(budget).tryAcquire(key, System.nanoTime())) {
+            return message;
+        }
+        if (budget == Budget.CHAT && sessionId != null) {
+            reject(sessionId, destination);
+        }
+        return null;
+    }
+
+    // addressed by session id, so it reaches the session that sent the frame even without a principal
+    private void reject(String sessionId, String destination) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        broker.convertAndSendToUser(sessionId, ERRORS, new FloodRejection(destination, CHAT_REJECTED),
+                headers.getMessageHeaders());
+    }
+
+    /**
+     * For REST sends; fallbackKey (the sender parameter) is used when the request has no principal.
+     * @throws FloodLimitException when the budget is used up
+     */
+    public void check(Budget budget, Principal principal, String fallbackKey) {
+        if (!enabled) return;
+        String key = principal != null ? principal.getName() : "sender:" + fallbackKey;
+        if (!limiters.get(budget).tryAcquire(key, System.nanoTime())) {
+            throw new FloodLimitException(budget);
+        }
+    }
+
+    // ---------- Stats ----------
+    public long getAllowed(Budget budget) { return enabled ? limiters.get(budget).getAllowed() : 0; }
+    public long getRejected(Budget budget) { return enabled ? limiters.get(budget).getRejected() : 0; }
+    public int getKeyCount(Budget budget) { return enabled ? limiters.get(budget).getKeyCount() : 0; }
+}
@@ -0,0 +1,12 @@
+package com.eazybyts.backend.ratelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A REST send over its budget; answered with 429. No stack trace: floods make these by the thousand. */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class FloodLimitException extends RuntimeException {
+    public FloodLimitException(FloodControl.Budget budget) {
+        super("Too many " + budget.label() + " messages, slow down", null, false, false);
+    }
+}
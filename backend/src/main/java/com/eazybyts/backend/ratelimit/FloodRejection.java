@@ -0,0 +1,4 @@
+package com.eazybyts.backend.ratelimit;
+
+/** Sent to /user/queue/errors of the session whose chat frame flood control dropped. */
+public record FloodRejection(String destination, String error) {}
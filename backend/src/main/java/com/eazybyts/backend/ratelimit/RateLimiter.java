@@ -0,0 +1,83 @@
+package com.eazybyts.backend.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets keyed by string, one AtomicLong per key and no locks.
+ * - Each bucket is stored as the time it will be full again (the GCRA form of a token bucket): taking a
+ *   token moves that time one interval (1 s / perSecond) forward; a token is available while the move
+ *   keeps it within burst intervals of now
+ * - tryAcquire is one map lookup plus one CAS; a rejection reads only and writes nothing
+ * - Buckets that have refilled completely carry no state, so evictIdle() can drop them. It first swaps the
+ *   value it read for EVICTED, so a tryAcquire holding the old bucket either wins that race (and the bucket
+ *   stays) or sees EVICTED and moves to a new one; no token is ever taken from a bucket no longer in the map
+ */
+public final class RateLimiter {
+    static final long EVICTED = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(double perSecond, int burst) {
+        if (perSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("perSecond and burst must be > 0");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+        this.capacityNanos = intervalNanos * burst;
+    }
+
+    /** Takes one token from key's bucket; false when it is empty. now is System.nanoTime(). */
+    public boolean tryAcquire(String key, long now) {
+        AtomicLong full = bucket(key, now);
+        while (true) {
+            long current = full.get();
+            if (current == EVICTED) {
+                buckets.remove(key, full); // the sweep may not have got to it yet
+                full = bucket(key, now);
+                continue;
+            }
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > capacityNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (full.compareAndSet(current, next)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong full = buckets.get(key);
+        return full != null ? full : buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    /** Drops buckets that are full again at now; a later request simply starts a new, full bucket. */
+    public int evictIdle(long now) {
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> e : buckets.entrySet()) {
+            AtomicLong full = e.getValue();
+            long seen = full.get();
+            // only if no tryAcquire has moved it since it was read
+            if (seen != EVICTED && seen - now <= 0 && full.compareAndSet(seen, EVICTED)) {
+                buckets.remove(e.getKey(), full);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    // ---------- Stats ----------
+    public long getAllowed() { return allowed.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public int getKeyCount() { return buckets.size(); }
+}
@@ -0,0 +1,432 @@
+package com.eazybyts.backend.search;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.DirectMessageRepository;
+import com.eazybyts.backend.chat.MessagePage;
+import com.eazybyts.backend.chat.MessageRepository;
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over room and DM message text (chat.search.*).
+ * - Index keys are scope + term: "r{roomId}:{term}" for room messages, "u{userId}:{term}" for a DM under
+ *   both participants, so a scoped query only ever reads its own scope's postings
+ * - New messages go into a mutable tail once their transaction commits; at segment-docs messages the tail
+ *   is frozen and turned into an immutable Segment on the background thread
+ * - merge-factor segments of the same size tier are merged into one, so the segment count stays logarithmic
+ * - With chat.search.dir set, segments are written there and reloaded at startup; only messages newer than
+ *   the loaded segments (minus a minute for late commits) are replayed from the repositories. Without it,
+ *   or on first start, the whole index is rebuilt from the repositories in the background; searches are
+ *   refused with 503 until the replay is done. Tails frozen by the replay are built into segments inline.
+ * Terms: lower-cased runs of letters/digits, 2 to 40 chars; a query matches messages containing all its terms.
+ */
+@Component
+public class MessageSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+    private static final int MIN_TERM = 2;
+    private static final int MAX_TERM = 40;
+
+    @Value("${chat.search.enabled:true}")
+    private boolean enabled;
+    @Value("${chat.search.dir:}")
+    private String dir;
+    @Value("${chat.search.segment-docs:50000}")
+    private int segmentDocs;
+    @Value("${chat.search.merge-factor:8}")
+    private int mergeFactor;
+    @Value("${chat.search.default-limit:20}")
+    private int defaultLimit;
+    @Value("${chat.search.max-limit:100}")
+    private int maxLimit;
+
+    private final MessageRepository messageRepo;
+    private final DirectMessageRepository dmRepo;
+    private final ColdHistoryStore history;
+    private final TransactionTemplate readOnlyTx;
+
+    private final ReentrantReadWriteLock tailLock = new ReentrantReadWriteLock();
+    private Map<String, Segment.LongList> tail = new HashMap<>();
+    private int tailDocs;
+    // frozen tails still being built into segments; searched until their segment is in place
+    private final List<Map<String, Segment.LongList>> freezing = new CopyOnWriteArrayList<>();
+    // oldest first; only the background thread replaces it
+    private volatile List<Segment> segments = List.of();
+    private final AtomicLong nextGeneration = new AtomicLong(1);
+    private ExecutorService background;
+    private volatile Thread backgroundThread;
+    private Path directory;
+    private volatile boolean ready;
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+
+    public MessageSearchIndex(MessageRepository messageRepo, DirectMessageRepository dmRepo,
+                              ColdHistoryStore history, PlatformTransactionManager txManager) {
+        this.messageRepo = messageRepo;
+        this.dmRepo = dmRepo;
+        this.history = history;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) return;
+        if (segmentDocs <= 0 || mergeFactor < 2) {
+            throw new IllegalArgumentException("chat.search.segment-docs must be > 0 and merge-factor >= 2");
+        }
+        long watermark = Long.MIN_VALUE;
+        if (!dir.isBlank()) {
+            directory = Paths.get(dir);
+            Files.createDirectories(directory);
+            segments = load(directory);
+            for (Segment s : segments) watermark = Math.max(watermark, s.maxId());
+        }
+        background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "search-index");
+            t.setDaemon(true);
+            backgroundThread = t;
+            return t;
+        });
+        long replayAfter = watermark == Long.MIN_VALUE ? Long.MIN_VALUE
+                : SnowflakeIdGenerator.firstIdAt(SnowflakeIdGenerator.timestampOf(watermark).minusSeconds(60));
+        background.execute(() -> replay(replayAfter));
+    }
+
+    /** Writes the tail out so the next start replays (almost) nothing. */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (background == null) return;
+        Map<String, Segment.LongList> last = freezeTail();
+        if (last != null) background.execute(() -> install(last));
+        background.shutdown();
+        if (!background.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Search index did not finish writing within 30s");
+        }
+    }
+
+    private List<Segment> load(Path directory) throws IOException {
+        List<Segment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // a write that never finished
+                    continue;
+                }
+                long generation = Long.parseLong(name.substring("segment-".length(), name.length() - ".idx".length()));
+                loaded.add(Segment.read(file, generation));
+                nextGeneration.accumulateAndGet(generation + 1, Math::max);
+            }
+        }
+        loaded.sort((a, b) -> Long.compare(a.generation, b.generation));
+        log.info("Search index: loaded {} segments from {}", loaded.size(), directory);
+        return List.copyOf(loaded);
+    }
+
+    private void replay(long after) {
+        long started = System.nanoTime();
+        long before = indexed.sum();
+        try {
+            history.forEachAfter(after, this::add);
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<ChatMessage> rows = messageRepo.streamAllAfter(after)) {
+                    rows.forEach(this::add);
+                }
+                try (Stream<ChatMessage> rows = dmRepo.streamAllAfter(after)) {
+                    rows.forEach(this::add);
+                }
+            });
+            log.info("Search index: replayed {} messages in {} ms", indexed.sum() - before,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            log.error("Search index replay failed; results will miss older messages", e);
+        }
+        ready = true;
+    }
+
+    // ---------- Indexing ----------
+
+    /** A room or direct message was saved; indexed once its transaction commits. */
+    public void messageSaved(ChatMessage m) {
+        if (background == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(m);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(m);
+            }
+        });
+    }
+
+    void add(ChatMessage m) {
+        Set<String> terms = terms(m.getContent());
+        if (terms.isEmpty()) return;
+        List<String> scopes = m.getRoomId() != null
+                ? List.of("r" + m.getRoomId())
+                : List.of("u" + m.getSenderId(), "u" + m.getRecipientId());
+        Map<String, Segment.LongList> frozen = null;
+        tailLock.writeLock().lock();
+        try {
+            for (String scope : scopes) {
+                for (String term : terms) {
+                    tail.computeIfAbsent(scope + ":" + term, k -> new Segment.LongList()).add(m.getId());
+                }
+            }
+            if (++tailDocs >= segmentDocs) frozen = freezeTailLocked();
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+        indexed.increment();
+        if (frozen == null) return;
+        if (Thread.currentThread() == backgroundThread) {
+            install(frozen); // replay: queued behind the replay itself, it would only run once the replay is done
+        } else {
+            Map<String, Segment.LongList> toInstall = frozen;
+            background.execute(() -> install(toInstall));
+        }
+    }
+
+    private Map<String, Segment.LongList> freezeTail() {
+        tailLock.writeLock().lock();
+        try {
+            return tailDocs > 0 ? freezeTailLocked() : null;
+        } finally {
+            tailLock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, Segment.LongList> freezeTailLocked() {
+        Map<String, Segment.LongList> frozen = tail;
+        freezing.add(frozen);
+        tail = new HashMap<>();
+        tailDocs = 0;
+        return frozen;
+    }
+
+    // background thread: frozen tail → segment (+ file), then merge what has piled up
+    private void install(Map<String, Segment.LongList> frozen) {
+        Segment segment = Segment.build(nextGeneration.getAndIncrement(), frozen);
+        List<Segment> next = new ArrayList<>(segments);
+        next.add(segment);
+        segments = List.copyOf(next);
+        freezing.remove(frozen);
+        persist(segment);
+        mergeTiers();
+    }
+
+    private void mergeTiers() {
+        while (true) {
+            List<Segment> current = segments;
+            int n = current.size();
+            if (n < mergeFactor) return;
+            int tier = tier(current.get(n - 1));
+            int run = 0;
+            while (run < n && tier(current.get(n - 1 - run)) == tier) run++;
+            if (run < mergeFactor) return;
+
+            List<Segment> inputs = current.subList(n - run, n);
+            Segment merged = Segment.merge(nextGeneration.getAndIncrement(), inputs);
+            persist(merged);
+            List<Segment> next = new ArrayList<>(current.subList(0, n - run));
+            next.add(merged);
+            segments = List.copyOf(next);
+            merges.increment();
+            for (Segment s : inputs) delete(s);
+        }
+    }
+
+    // 0 for up to segment-docs, then one tier per merge-factor multiple
+    private int tier(Segment s) {
+        double ratio = (double) s.docCount() / segmentDocs;
+        return ratio <= 1 ? 0 : (int) Math.floor(Math.log(ratio) / Math.log(mergeFactor) + 1e-9);
+    }
+
+    private void persist(Segment s) {
+        if (directory == null) return;
+        try {
+            s.write(directory);
+        } catch (IOException e) {
+            log.error("Writing search segment {} failed; it is kept in memory only", s.generation, e);
+        }
+    }
+
+    private void delete(Segment s) {
+        if (directory == null) return;
+        try {
+            Files.deleteIfExists(directory.resolve(Segment.fileName(s.generation)));
+        } catch (IOException e) {
+            log.warn("Could not delete merged search segment {}", s.generation, e);
+        }
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) return terms;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                int len = i - start;
+                if (len >= MIN_TERM && len <= MAX_TERM) terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // ---------- Search ----------
+
+    /**
+     * Messages containing every word of the query in one room (roomId) or in a user's DMs (userId),
+     * newest first in pages; the page itself is in ascending id order like room history, and
+     * nextCursor is the before value for the next (older) page.
+     * @throws SearchNotReadyException (503) until the startup replay is done, rather than returning partial results
+     */
+    public MessagePage search(String query, Long roomId, Long userId, Long before, Integer limit) {
+        if (background == null) {
+            throw new IllegalStateException("Search is disabled (chat.search.enabled=false)");
+        }
+        if (!ready) {
+            throw new SearchNotReadyException();
+        }
+        if ((roomId == null) == (userId == null)) {
+            throw new IllegalArgumentException("Search either a room (roomId) or a user's direct messages (userId)");
+        }
+        Set<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Query has no searchable words");
+        }
+        searches.increment();
+        int size = (limit == null || limit <= 0) ? defaultLimit : Math.min(limit, maxLimit);
+        String scope = roomId != null ? "r" + roomId : "u" + userId;
+        List<String> keys = terms.stream().map(t -> scope + ":" + t).toList();
+        long cursor = before != null ? before : Long.MAX_VALUE;
+
+        TreeSet<Long> hits = new TreeSet<>(Collections.reverseOrder());
+        tailLock.readLock().lock();
+        try {
+            hits.addAll(matchTail(tail, keys, cursor, size + 1));
+        } finally {
+            tailLock.readLock().unlock();
+        }
+        for (Map<String, Segment.LongList> frozen : freezing) {
+            hits.addAll(matchTail(frozen, keys, cursor, size + 1));
+        }
+        for (Segment s : segments) {
+            hits.addAll(s.match(keys, cursor, size + 1));
+        }
+
+        List<Long> window = new ArrayList<>(size);
+        for (Long id : hits) {
+            if (window.size() == size) break;
+            window.add(id);
+        }
+        Long nextCursor = hits.size() > size ? window.get(window.size() - 1) : null;
+        return new MessagePage(hydrate(window, roomId, userId), nextCursor);
+    }
+
+    // same walk as Segment.match over the tail's sorted id lists
+    private static List<Long> matchTail(Map<String, Segment.LongList> tail, List<String> keys, long before, int limit) {
+        Segment.LongList[] lists = new Segment.LongList[keys.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = tail.get(keys.get(i));
+            if (lists[i] == null) return List.of();
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        List<Long> out = new ArrayList<>();
+        int at = before == Long.MIN_VALUE ? -1 : lists[0].floorIndex(before - 1);
+        while (at >= 0 && out.size() < limit) {
+            long id = lists[0].get(at);
+            long agreed = id;
+            for (int i = 1; i < lists.length && agreed == id; i++) {
+                int j = lists[i].floorIndex(id);
+                if (j < 0) return out;
+                agreed = lists[i].get(j);
+            }
+            if (agreed == id) {
+                out.add(id);
+                at--;
+            } else {
+                at = lists[0].floorIndex(agreed);
+            }
+        }
+        return out;
+    }
+
+    // newest-first ids → rows in ascending id order
+    private List<ChatMessage> hydrate(List<Long> ids, Long roomId, Long userId) {
+        if (ids.isEmpty()) return List.of();
+        List<ChatMessage> rows = new ArrayList<>(ids.size());
+        if (roomId != null) {
+            messageRepo.findAllById(ids).forEach(m -> rows.add(ChatMessage.from(m)));
+        } else {
+            dmRepo.findAllById(ids).forEach(dm -> rows.add(ChatMessage.from(dm)));
+        }
+        if (rows.size() < ids.size()) {
+            // the rest were archived since they were indexed
+            Set<Long> missing = new HashSet<>(ids);
+            rows.forEach(m -> missing.remove(m.getId()));
+            rows.addAll(roomId != null ? history.find(ColdHistoryStore.roomStream(roomId), missing)
+                    : history.findDirect(userId, missing));
+        }
+        rows.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return rows;
+    }
+
+    // ---------- Stats ----------
+    public boolean isReady() { return ready; }
+    public long getIndexed() { return indexed.sum(); }
+    public long getSearches() { return searches.sum(); }
+    public long getMerges() { return merges.sum(); }
+    public int getSegmentCount() { return segments.size(); }
+    public int getTailDocs() {
+        tailLock.readLock().lock();
+        try {
+            return tailDocs;
+        } finally {
+            tailLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.eazybyts.backend.search;
+
+import com.eazybyts.backend.chat.MessagePage;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private final MessageSearchIndex index;
+
+    public SearchController(MessageSearchIndex index) {
+        this.index = index;
+    }
+
+    // GET /api/search?q=release notes&roomId=3&before=123&limit=20   (or userId=1 for that user's DMs)
+    @GetMapping
+    public MessagePage search(@RequestParam String q,
+                              @RequestParam(required = false) Long roomId,
+                              @RequestParam(required = false) Long userId,
+                              @RequestParam(required = false) Long before,
+                              @RequestParam(required = false) Integer limit) {
+        return index.search(q, roomId, userId, before, limit);
+    }
+}
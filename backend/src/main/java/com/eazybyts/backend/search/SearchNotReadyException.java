@@ -0,0 +1,12 @@
+package com.eazybyts.backend.search;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A search while the index is still replaying at startup; answered with 503 so clients retry later. */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SearchNotReadyException extends RuntimeException {
+    public SearchNotReadyException() {
+        super("Search index is still being built, try again shortly");
+    }
+}
@@ -0,0 +1,344 @@
+package com.eazybyts.backend.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable slice of the inverted index.
+ * - ids: the message ids in this segment, ascending; a message's position is its doc number
+ * - postings: index key (scope + term, see MessageSearchIndex) → ascending doc numbers, delta + varint
+ *   encoded, so a posting usually costs one or two bytes instead of an 8-byte id
+ * - Every BLOCK postings of a list get a skip point (first doc, byte offset), rebuilt when the segment is built
+ *   or read, so a query decodes only the blocks around its cursor instead of whole lists
+ * - Files are written to a temp name and moved into place, so a segment file is either complete or absent
+ */
+final class Segment {
+    private static final int MAGIC = 0x4D534958; // "MSIX"
+    private static final int VERSION = 1;
+    static final int BLOCK = 128;
+
+    final long generation;
+    private final long[] ids;
+    private final Map<String, Postings> postings;
+
+    private Segment(long generation, long[] ids, Map<String, Postings> postings) {
+        this.generation = generation;
+        this.ids = ids;
+        this.postings = postings;
+    }
+
+    int docCount() { return ids.length; }
+    int keyCount() { return postings.size(); }
+    long maxId() { return ids.length > 0 ? ids[ids.length - 1] : Long.MIN_VALUE; }
+
+    /** Builds a segment from key → message ids (any order, duplicates allowed). */
+    static Segment build(long generation, Map<String, LongList> keyIds) {
+        long[] all = new long[keyIds.values().stream().mapToInt(LongList::size).sum()];
+        int n = 0;
+        for (LongList list : keyIds.values()) {
+            System.arraycopy(list.values, 0, all, n, list.size);
+            n += list.size;
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) all[distinct++] = all[i];
+        }
+        long[] ids = Arrays.copyOf(all, distinct);
+        Map<String, Postings> postings = new HashMap<>(keyIds.size() * 2);
+        keyIds.forEach((key, list) -> postings.put(key, Postings.of(encode(ids, list.sortedDistinct()))));
+        return new Segment(generation, ids, postings);
+    }
+
+    /** One segment holding every doc and posting of the inputs (duplicated docs collapse). */
+    static Segment merge(long generation, List<Segment> inputs) {
+        Map<String, LongList> keyIds = new HashMap<>();
+        for (Segment s : inputs) {
+            s.postings.forEach((key, p) -> {
+                LongList list = keyIds.computeIfAbsent(key, k -> new LongList());
+                for (int doc : decode(p.bytes)) list.add(s.ids[doc]);
+            });
+        }
+        return build(generation, keyIds);
+    }
+
+    /**
+     * Messages matching every key, newest first, with id < before; at most limit of them.
+     * Walks the lists backwards from before, driven by the shortest one, and stops at limit: the cost follows
+     * the page, not how common the words are.
+     */
+    List<Long> match(List<String> keys, long before, int limit) {
+        Cursor[] cursors = new Cursor[keys.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            Postings p = postings.get(keys.get(i));
+            if (p == null) return List.of();
+            cursors[i] = new Cursor(p);
+        }
+        Arrays.sort(cursors, (a, b) -> Integer.compare(a.postings.count, b.postings.count));
+        int below = Arrays.binarySearch(ids, before);
+        int target = (below >= 0 ? below : -below - 1) - 1;
+        List<Long> out = new ArrayList<>(Math.min(limit, 64));
+        while (target >= 0 && out.size() < limit) {
+            int doc = cursors[0].floor(target);
+            if (doc < 0) break;
+            int agreed = doc;
+            for (int i = 1; i < cursors.length && agreed == doc; i++) {
+                agreed = cursors[i].floor(doc);
+                if (agreed < 0) return out;
+            }
+            if (agreed == doc) {
+                out.add(ids[doc]);
+                target = doc - 1;
+            } else {
+                target = agreed; // some list has nothing between agreed and doc
+            }
+        }
+        return out;
+    }
+
+    /** One key's postings plus a skip point per BLOCK docs; no skip arrays when it fits in one block. */
+    private static final class Postings {
+        final byte[] bytes;
+        final int count;
+        final int[] blockFirst;  // first doc of each block
+        final int[] blockBase;   // doc before the block (its first delta is relative to this)
+        final int[] blockOffset; // byte offset of the block
+
+        private Postings(byte[] bytes, int count, int[] blockFirst, int[] blockBase, int[] blockOffset) {
+            this.bytes = bytes;
+            this.count = count;
+            this.blockFirst = blockFirst;
+            this.blockBase = blockBase;
+            this.blockOffset = blockOffset;
+        }
+
+        static Postings of(byte[] bytes) {
+            int count = 0;
+            for (byte b : bytes) if (b >= 0) count++; // one varint ends at each byte without the high bit
+            if (count <= BLOCK) return new Postings(bytes, count, null, null, null);
+            int blocks = (count + BLOCK - 1) / BLOCK;
+            int[] first = new int[blocks];
+            int[] base = new int[blocks];
+            int[] offset = new int[blocks];
+            int doc = -1;
+            int n = 0;
+            for (int i = 0; i < bytes.length; n++) {
+                if (n % BLOCK == 0) {
+                    base[n / BLOCK] = doc;
+                    offset[n / BLOCK] = i;
+                }
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[i++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                if (n % BLOCK == 0) first[n / BLOCK] = doc;
+            }
+            return new Postings(bytes, count, first, base, offset);
+        }
+
+        int blocks() { return blockFirst == null ? 1 : blockFirst.length; }
+
+        // last block whose first doc is <= target (block 0 when there are no skip points), -1 when none
+        int blockFor(int target, int upTo) {
+            if (blockFirst == null) return 0;
+            int lo = 0;
+            int hi = upTo;
+            if (blockFirst[0] > target) return -1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (blockFirst[mid] <= target) lo = mid; else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        int decodeBlock(int block, int[] out) {
+            int i = blockOffset == null ? 0 : blockOffset[block];
+            int end = block + 1 < blocks() ? blockOffset[block + 1] : bytes.length;
+            int doc = blockBase == null ? -1 : blockBase[block];
+            int n = 0;
+            while (i < end) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[i++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                out[n++] = doc;
+            }
+            return n;
+        }
+    }
+
+    /** Reads one Postings backwards; targets passed to floor() must not increase. */
+    private static final class Cursor {
+        final Postings postings;
+        private final int[] docs = new int[BLOCK];
+        private int block = -1;
+        private int size;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        /** Largest doc <= target, or -1. */
+        int floor(int target) {
+            int b = postings.blockFor(target, block < 0 ? postings.blocks() - 1 : block);
+            if (b < 0) return -1;
+            if (b != block) {
+                size = postings.decodeBlock(b, docs);
+                block = b;
+            }
+            int at = Arrays.binarySearch(docs, 0, size, target);
+            if (at >= 0) return docs[at];
+            at = -at - 2;
+            return at >= 0 ? docs[at] : -1; // only in a single block, whose first doc was not checked
+        }
+    }
+
+    // ---------- Encoding ----------
+
+    private static byte[] encode(long[] segmentIds, long[] keyIds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(keyIds.length * 2);
+        int prev = -1;
+        for (long id : keyIds) {
+            int doc = Arrays.binarySearch(segmentIds, id);
+            writeVarint(out, doc - prev);
+            prev = doc;
+        }
+        return out.toByteArray();
+    }
+
+    static int[] decode(byte[] bytes) {
+        int[] docs = new int[bytes.length]; // at least one byte per doc
+        int n = 0;
+        int doc = -1;
+        for (int i = 0; i < bytes.length; ) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += delta;
+            docs[n++] = doc;
+        }
+        return Arrays.copyOf(docs, n);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // ---------- Files ----------
+
+    static String fileName(long generation) {
+        return String.format("segment-%019d.idx", generation);
+    }
+
+    void write(Path dir) throws IOException {
+        Path target = dir.resolve(fileName(generation));
+        Path tmp = dir.resolve(fileName(generation) + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.length);
+            long prev = 0;
+            for (long id : ids) {
+                out.writeLong(id - prev);
+                prev = id;
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Postings> e : postings.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().bytes.length);
+                out.write(e.getValue().bytes);
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Segment read(Path file, long generation) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a search segment (or another version): " + file);
+            }
+            long[] ids = new long[in.readInt()];
+            long prev = 0;
+            for (int i = 0; i < ids.length; i++) {
+                prev += in.readLong();
+                ids[i] = prev;
+            }
+            int keys = in.readInt();
+            Map<String, Postings> postings = new HashMap<>(keys * 2);
+            for (int i = 0; i < keys; i++) {
+                String key = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                postings.put(key, Postings.of(bytes));
+            }
+            return new Segment(generation, ids, postings);
+        }
+    }
+
+    /**
+     * Growable long array kept in ascending order without duplicates; the mutable segment keeps one per key.
+     * Ids mostly arrive in ascending order, so add() is nearly always an append.
+     */
+    static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long v) {
+            int at = size;
+            if (size > 0 && v <= values[size - 1]) {
+                at = Arrays.binarySearch(values, 0, size, v);
+                if (at >= 0) return;
+                at = -at - 1;
+            }
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = v;
+            size++;
+        }
+
+        int size() { return size; }
+
+        long get(int index) { return values[index]; }
+
+        /** Index of the largest value <= target, or -1. */
+        int floorIndex(long target) {
+            int at = Arrays.binarySearch(values, 0, size, target);
+            return at >= 0 ? at : -at - 2;
+        }
+
+        long[] sortedDistinct() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.eazybyts.backend.tiering;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.DirectMessageRepository;
+import com.eazybyts.backend.chat.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Cold tier of the message history: every HistorySegment in chat.tiering.dir (written by HistoryArchiver).
+ * - A stream is one room ("r{roomId}") or one DM conversation ("d{conversationKey}"); per stream the store keeps
+ *   the sparse index of all its blocks across segments, oldest first, and reads only the blocks a window needs
+ * - Every archived id is older than every id still in the hot tables (archiving moves whole id ranges), so
+ *   callers read the hot tables first and top up from here (scrolling back), or the other way round (catching up)
+ * - A row can be in both tiers only if the process stopped between writing a segment and deleting the rows;
+ *   start() deletes such leftovers before anyone reads or counts
+ * Empty (and never touched) with chat.tiering.enabled=false.
+ */
+@Component
+public class ColdHistoryStore {
+    private static final Logger log = LoggerFactory.getLogger(ColdHistoryStore.class);
+
+    @Value("${chat.tiering.enabled:false}")
+    private boolean enabled;
+    @Value("${chat.tiering.dir:}")
+    private String dir;
+
+    private final MessageRepository messageRepo;
+    private final DirectMessageRepository dmRepo;
+    private final TransactionTemplate tx;
+
+    private final Map<String, StreamIndex> streams = new ConcurrentHashMap<>();
+    private final List<HistorySegment> segments = new ArrayList<>(); // guarded by this
+    private volatile long archivedUpTo = Long.MIN_VALUE;
+    private Path directory;
+
+    private final LongAdder blockReads = new LongAdder();
+
+    /** Archived totals of one room (roomId set) or one DM direction (senderId → recipientId). */
+    public record ArchivedTotals(Long roomId, long senderId, long recipientId, long count, long maxId) {}
+
+    /** One stream's blocks across all segments, in id order; replaced as a whole when a segment is added. */
+    private record StreamIndex(HistorySegment.Block[] blocks, long count, long maxId,
+                               long lowerCount, long lowerMaxId, long upperMaxId) {
+        static StreamIndex of(HistorySegment.StreamEntry e) {
+            return new StreamIndex(e.blocks().toArray(HistorySegment.Block[]::new), e.count(), e.maxId(),
+                    e.lowerCount(), e.lowerMaxId(), e.upperMaxId());
+        }
+
+        StreamIndex append(StreamIndex newer) {
+            HistorySegment.Block[] all = Arrays.copyOf(blocks, blocks.length + newer.blocks.length);
+            System.arraycopy(newer.blocks, 0, all, blocks.length, newer.blocks.length);
+            return new StreamIndex(all, count + newer.count, Math.max(maxId, newer.maxId),
+                    lowerCount + newer.lowerCount, Math.max(lowerMaxId, newer.lowerMaxId),
+                    Math.max(upperMaxId, newer.upperMaxId));
+        }
+    }
+
+    public ColdHistoryStore(MessageRepository messageRepo, DirectMessageRepository dmRepo,
+                            PlatformTransactionManager txManager) {
+        this.messageRepo = messageRepo;
+        this.dmRepo = dmRepo;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) return;
+        if (dir.isBlank()) {
+            throw new IllegalArgumentException("chat.tiering.dir is required when chat.tiering.enabled=true");
+        }
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(directory, "history-*")) {
+            for (Path file : found) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.delete(file); // an archive run that never finished; its rows are still hot
+                } else {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(Path::toString)); // names are zero-padded high ids
+        for (Path file : files) register(file);
+
+        if (archivedUpTo != Long.MIN_VALUE) {
+            long up = archivedUpTo;
+            int leftovers = tx.execute(status ->
+                    messageRepo.deleteIdRange(Long.MIN_VALUE, up) + dmRepo.deleteIdRange(Long.MIN_VALUE, up));
+            if (leftovers > 0) log.info("Deleted {} hot rows that were already archived", leftovers);
+        }
+        log.info("Cold history: {} segments, {} streams in {}", segments.size(), streams.size(), directory);
+    }
+
+    /** Opens a finished segment and makes its rows readable; segments must be added in id order. */
+    synchronized void register(Path file) throws IOException {
+        HistorySegment segment = HistorySegment.open(file);
+        for (HistorySegment.StreamEntry entry : segment.streams.values()) {
+            streams.merge(entry.stream(), StreamIndex.of(entry), StreamIndex::append);
+        }
+        segments.add(segment);
+        archivedUpTo = Math.max(archivedUpTo, segment.highId);
+    }
+
+    public static String roomStream(long roomId) { return "r" + roomId; }
+
+    public static String conversationStream(String conversationKey) { return "d" + conversationKey; }
+
+    Path getDirectory() { return directory; }
+
+    public boolean isEnabled() { return enabled; }
+
+    // ---------- Reads ----------
+
+    /** Archived messages of a stream with id < before, newest first, at most limit. */
+    public List<ChatMessage> before(String stream, long before, int limit) {
+        StreamIndex index = streams.get(stream);
+        if (index == null || limit <= 0) return List.of();
+        List<ChatMessage> out = new ArrayList<>(Math.min(limit, 256));
+        // last block that starts below the cursor
+        int lo = 0, hi = index.blocks.length - 1, b = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.blocks[mid].firstId() < before) { b = mid; lo = mid + 1; } else { hi = mid - 1; }
+        }
+        for (; b >= 0 && out.size() < limit; b--) {
+            List<ChatMessage> rows = decode(stream, index.blocks[b]);
+            for (int i = rows.size() - 1; i >= 0 && out.size() < limit; i--) {
+                if (rows.get(i).getId() < before) out.add(rows.get(i));
+            }
+        }
+        return out;
+    }
+
+    /** Archived messages of a stream with id > after, oldest first, at most limit. */
+    public List<ChatMessage> after(String stream, long after, int limit) {
+        List<ChatMessage> out = new ArrayList<>(Math.min(Math.max(limit, 0), 256));
+        for (Iterator<ChatMessage> it = iterateAfter(stream, after); it.hasNext() && out.size() < limit; ) {
+            out.add(it.next());
+        }
+        return out;
+    }
+
+    /** Lazily decodes the stream's blocks after the cursor, oldest first. */
+    public Iterator<ChatMessage> iterateAfter(String stream, long after) {
+        StreamIndex index = streams.get(stream);
+        if (index == null) return Collections.emptyIterator();
+        return new Iterator<>() {
+            int block = firstBlockEndingAfter(index, after);
+            List<ChatMessage> rows = List.of();
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                while (true) {
+                    while (next < rows.size()) {
+                        if (rows.get(next).getId() > after) return true;
+                        next++;
+                    }
+                    if (block >= index.blocks.length) return false;
+                    rows = decode(stream, index.blocks[block++]);
+                    next = 0;
+                }
+            }
+
+            @Override
+            public ChatMessage next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return rows.get(next++);
+            }
+        };
+    }
+
+    /**
+     * How many archived messages of the stream have id > after; senderId limits a DM stream to one participant.
+     * Whole blocks are counted from the index, only the block holding the cursor is decoded.
+     */
+    public long countAfter(String stream, long after, Long senderId) {
+        StreamIndex index = streams.get(stream);
+        if (index == null) return 0;
+        Boolean lower = senderId == null ? null : senderId == lowerUser(stream);
+        long n = 0;
+        for (int b = firstBlockEndingAfter(index, after); b < index.blocks.length; b++) {
+            HistorySegment.Block block = index.blocks[b];
+            if (block.firstId() > after) {
+                n += lower == null ? block.count() : lower ? block.lowerCount() : block.count() - block.lowerCount();
+            } else {
+                for (ChatMessage m : decode(stream, block)) {
+                    if (m.getId() > after && (senderId == null || senderId.equals(m.getSenderId()))) n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** The archived messages among ids in one stream (search results); missing ids are skipped. */
+    public List<ChatMessage> find(String stream, Collection<Long> ids) {
+        StreamIndex index = streams.get(stream);
+        if (index == null || ids.isEmpty()) return List.of();
+        TreeSet<Long> wanted = new TreeSet<>(ids);
+        List<ChatMessage> out = new ArrayList<>();
+        for (HistorySegment.Block block : index.blocks) {
+            Long first = wanted.ceiling(block.firstId());
+            if (first == null || first > block.lastId()) continue;
+            for (ChatMessage m : decode(stream, block)) {
+                if (wanted.contains(m.getId())) out.add(m);
+            }
+        }
+        return out;
+    }
+
+    /** The archived messages among ids in any DM conversation of userId. */
+    public List<ChatMessage> findDirect(long userId, Collection<Long> ids) {
+        List<ChatMessage> out = new ArrayList<>();
+        for (String stream : streams.keySet()) {
+            if (!stream.startsWith("d")) continue;
+            String[] users = stream.substring(1).split(":");
+            if (users[0].equals(Long.toString(userId)) || users[1].equals(Long.toString(userId))) {
+                out.addAll(find(stream, ids));
+            }
+        }
+        return out;
+    }
+
+    /** Every archived message with id > after, stream by stream (index rebuilds). */
+    public void forEachAfter(long after, Consumer<ChatMessage> action) {
+        for (String stream : streams.keySet()) {
+            iterateAfter(stream, after).forEachRemaining(action);
+        }
+    }
+
+    /** Per room and per DM direction: archived message count and newest id (unread counters). */
+    public List<ArchivedTotals> totals() {
+        List<ArchivedTotals> out = new ArrayList<>(streams.size() * 2);
+        streams.forEach((stream, index) -> {
+            if (stream.startsWith("r")) {
+                out.add(new ArchivedTotals(Long.parseLong(stream.substring(1)), 0, 0, index.count, index.maxId));
+                return;
+            }
+            String[] users = stream.substring(1).split(":");
+            long lower = Long.parseLong(users[0]);
+            long upper = Long.parseLong(users[1]);
+            if (index.lowerCount > 0) {
+                out.add(new ArchivedTotals(null, lower, upper, index.lowerCount, index.lowerMaxId));
+            }
+            if (index.count > index.lowerCount) {
+                out.add(new ArchivedTotals(null, upper, lower, index.count - index.lowerCount, index.upperMaxId));
+            }
+        });
+        return out;
+    }
+
+    long getArchivedUpTo() { return archivedUpTo; }
+
+    private static int firstBlockEndingAfter(StreamIndex index, long after) {
+        int lo = 0, hi = index.blocks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.blocks[mid].lastId() > after) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private List<ChatMessage> decode(String stream, HistorySegment.Block block) {
+        blockReads.increment();
+        Long roomId = stream.startsWith("r") ? Long.parseLong(stream.substring(1)) : null;
+        return block.segment().decode(block, roomId);
+    }
+
+    // conversation keys are "{smaller id}:{larger id}"
+    private static long lowerUser(String stream) {
+        return Long.parseLong(stream.substring(1, stream.indexOf(':')));
+    }
+
+    // ---------- Stats ----------
+    public synchronized int getSegmentCount() { return segments.size(); }
+    public int getStreamCount() { return streams.size(); }
+    public long getBlockReads() { return blockReads.sum(); }
+    public synchronized long getArchivedBytes() {
+        long n = 0;
+        for (HistorySegment s : segments) {
+            try {
+                n += Files.size(s.file);
+            } catch (IOException ignored) {
+                // deleted underneath us; not counted
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,163 @@
+package com.eazybyts.backend.tiering;
+
+import com.eazybyts.backend.chat.DirectMessageRepository;
+import com.eazybyts.backend.chat.MessageRepository;
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves messages older than chat.tiering.age out of the messages / direct_messages tables into HistorySegments.
+ * - Runs every chat.tiering.interval-ms on one background thread; each pass archives consecutive id windows of
+ *   chat.tiering.segment-span (by Snowflake timestamp) until it reaches the age cutoff, one segment per window
+ * - A window is streamed from the database ordered by room / conversation, written and synced, handed to
+ *   ColdHistoryStore, and only then deleted from the hot tables with one range delete per table
+ */
+@Component
+public class HistoryArchiver {
+    private static final Logger log = LoggerFactory.getLogger(HistoryArchiver.class);
+
+    private static final String ROOM_SQL = "SELECT id, room_id, sender_id, content, timestamp FROM messages"
+            + " WHERE id > ? AND id <= ? ORDER BY room_id, id";
+    private static final String DM_SQL = "SELECT id, sender_id, receiver_id, content, timestamp FROM direct_messages"
+            + " WHERE id > ? AND id <= ? ORDER BY LEAST(sender_id, receiver_id), GREATEST(sender_id, receiver_id), id";
+
+    @Value("${chat.tiering.enabled:false}")
+    private boolean enabled;
+    @Value("${chat.tiering.age:30d}")
+    private Duration age;
+    @Value("${chat.tiering.segment-span:1d}")
+    private Duration segmentSpan;
+    @Value("${chat.tiering.interval-ms:3600000}")
+    private long intervalMs;
+    @Value("${chat.tiering.block-rows:128}")
+    private int blockRows;
+
+    private final ColdHistoryStore store;
+    private final MessageRepository messageRepo;
+    private final DirectMessageRepository dmRepo;
+    private final JdbcTemplate streaming;
+    private final TransactionTemplate tx;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean stopping;
+
+    private final LongAdder archivedRows = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+
+    public HistoryArchiver(ColdHistoryStore store, MessageRepository messageRepo, DirectMessageRepository dmRepo,
+                           JdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.store = store;
+        this.messageRepo = messageRepo;
+        this.dmRepo = dmRepo;
+        this.streaming = new JdbcTemplate(jdbc.getDataSource());
+        this.streaming.setFetchSize(500);
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        if (blockRows <= 0 || segmentSpan.isNegative() || segmentSpan.isZero()) {
+            throw new IllegalArgumentException("chat.tiering.block-rows and segment-span must be positive");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "history-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::archive, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (scheduler == null) return;
+        stopping = true; // a window in progress is finished, the next one is not started
+        scheduler.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /** One pass: archive window after window until the cutoff. */
+    void archive() {
+        long cutoff = SnowflakeIdGenerator.firstIdAt(Instant.now().minus(age));
+        try {
+            while (!stopping) {
+                long low = store.getArchivedUpTo();
+                Long next = minId(low);
+                if (next == null || next >= cutoff) break;
+                Instant windowEnd = SnowflakeIdGenerator.timestampOf(next).plus(segmentSpan);
+                long high = Math.min(cutoff, SnowflakeIdGenerator.firstIdAt(windowEnd)) - 1;
+                archiveWindow(next - 1, high);
+            }
+            runs.increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("History archiving failed; retrying next run", e);
+        }
+    }
+
+    private Long minId(long after) {
+        Long rooms = streaming.queryForObject("SELECT MIN(id) FROM messages WHERE id > ?", Long.class, after);
+        Long dms = streaming.queryForObject("SELECT MIN(id) FROM direct_messages WHERE id > ?", Long.class, after);
+        if (rooms == null) return dms;
+        return dms == null ? rooms : Math.min(rooms, dms);
+    }
+
+    private void archiveWindow(long low, long high) throws IOException {
+        long started = System.nanoTime();
+        Path file;
+        long rows;
+        try (HistorySegment.Writer writer = new HistorySegment.Writer(store.getDirectory(), low, high, blockRows)) {
+            try {
+                streaming.query(ROOM_SQL, rs -> {
+                    writeRow(writer, ColdHistoryStore.roomStream(rs.getLong(2)), 0, rs.getLong(1), rs.getLong(3), 0,
+                            rs.getTimestamp(5).toInstant(), rs.getString(4));
+                }, low, high);
+                streaming.query(DM_SQL, rs -> {
+                    long sender = rs.getLong(2);
+                    long receiver = rs.getLong(3);
+                    long lower = Math.min(sender, receiver);
+                    writeRow(writer, ColdHistoryStore.conversationStream(lower + ":" + Math.max(sender, receiver)),
+                            lower, rs.getLong(1), sender, receiver, rs.getTimestamp(5).toInstant(), rs.getString(4));
+                }, low, high);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            rows = writer.rows();
+            file = writer.finish();
+        }
+        store.register(file);
+        int deleted = tx.execute(status -> messageRepo.deleteIdRange(low, high) + dmRepo.deleteIdRange(low, high));
+        archivedRows.add(rows);
+        log.info("Archived {} messages ({} deleted from the hot tables) into {} in {} ms", rows, deleted,
+                file.getFileName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static void writeRow(HistorySegment.Writer writer, String stream, long lowerUser, long id, long senderId,
+                                 long recipientId, Instant timestamp, String content) {
+        try {
+            writer.add(stream, lowerUser, id, senderId, recipientId, timestamp, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------- Stats ----------
+    public long getArchivedRows() { return archivedRows.sum(); }
+    public long getRuns() { return runs.sum(); }
+}
@@ -0,0 +1,307 @@
+package com.eazybyts.backend.tiering;
+
+import com.eazybyts.backend.chat.ChatMessage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable history file covering the message ids in (lowId, highId].
+ * - Rows are grouped by stream (a room or a DM conversation, see ColdHistoryStore) and sorted by id;
+ *   every blockRows rows of a stream form a block, deflated on its own
+ * - The directory at the end is the sparse index: per stream, per block its id range, row counts and file
+ *   position, so a read inflates only the blocks it needs
+ * - Blocks are read straight from a read-only memory mapping of the file
+ * - The trailer (last TRAILER bytes) locates the directory; files are written to a temp name, synced and
+ *   moved into place, so a file with a valid trailer is complete
+ */
+final class HistorySegment {
+    private static final int MAGIC = 0x4D48534B; // "MHSK"
+    private static final int VERSION = 1;
+    private static final int TRAILER = 4 + 4 + 8 + 8 + 8;
+
+    final Path file;
+    final long lowId;
+    final long highId;
+    private final MappedByteBuffer map;
+    final Map<String, StreamEntry> streams;
+
+    /** Totals of one stream; for DMs, "lower" is the participant with the smaller user id. */
+    record StreamEntry(String stream, long count, long maxId, long lowerCount, long lowerMaxId, long upperMaxId,
+                       List<Block> blocks) {}
+
+    record Block(HistorySegment segment, long firstId, long lastId, int count, int lowerCount,
+                 long offset, int length, int rawLength) {}
+
+    private HistorySegment(Path file, long lowId, long highId, MappedByteBuffer map, Map<String, StreamEntry> streams) {
+        this.file = file;
+        this.lowId = lowId;
+        this.highId = highId;
+        this.map = map;
+        this.streams = streams;
+    }
+
+    static String fileName(long highId) {
+        return String.format("history-%019d.seg", highId);
+    }
+
+    // ---------- Reading ----------
+
+    static HistorySegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER || size > Integer.MAX_VALUE) {
+                throw new IOException("Bad history segment size " + size + ": " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer trailer = map.duplicate().position((int) size - TRAILER);
+            if (trailer.getInt() != MAGIC || trailer.getInt() != VERSION) {
+                throw new IOException("Not a history segment (or another version): " + file);
+            }
+            long lowId = trailer.getLong();
+            long highId = trailer.getLong();
+            int directoryOffset = (int) trailer.getLong();
+
+            byte[] directory = new byte[(int) size - TRAILER - directoryOffset];
+            map.duplicate().position(directoryOffset).get(directory);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(directory));
+            HistorySegment segment = new HistorySegment(file, lowId, highId, map, new LinkedHashMap<>());
+            int streamCount = in.readInt();
+            for (int s = 0; s < streamCount; s++) {
+                String stream = in.readUTF();
+                long count = in.readLong();
+                long maxId = in.readLong();
+                long lowerCount = in.readLong();
+                long lowerMaxId = in.readLong();
+                long upperMaxId = in.readLong();
+                Block[] blocks = new Block[in.readInt()];
+                for (int b = 0; b < blocks.length; b++) {
+                    blocks[b] = new Block(segment, in.readLong(), in.readLong(), in.readInt(), in.readInt(),
+                            in.readLong(), in.readInt(), in.readInt());
+                }
+                segment.streams.put(stream, new StreamEntry(stream, count, maxId, lowerCount, lowerMaxId, upperMaxId,
+                        List.of(blocks)));
+            }
+            return segment;
+        }
+    }
+
+    /** Rows of one block in id order. roomId is set for room streams, recipientId for DMs. */
+    List<ChatMessage> decode(Block block, Long roomId) {
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(map.slice((int) block.offset(), block.length()));
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block in " + file, e);
+        } finally {
+            inflater.end();
+        }
+        List<ChatMessage> rows = new ArrayList<>(block.count());
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        for (int i = 0; i < block.count(); i++) {
+            long id = in.getLong();
+            long senderId = in.getLong();
+            long recipientId = in.getLong();
+            Instant timestamp = Instant.ofEpochSecond(in.getLong(), in.getInt());
+            byte[] content = new byte[in.getInt()];
+            in.get(content);
+            rows.add(new ChatMessage(id, roomId, senderId, roomId != null ? null : recipientId,
+                    new String(content, StandardCharsets.UTF_8), timestamp));
+        }
+        return rows;
+    }
+
+    // ---------- Writing ----------
+
+    /**
+     * Writes a segment; rows must arrive grouped by stream and in id order within a stream.
+     * finish() publishes the file; closing without it deletes the partial file.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path tmp;
+        private final long lowId;
+        private final long highId;
+        private final int blockRows;
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final List<byte[]> directory = new ArrayList<>();
+        private long position;
+        private long rows;
+        private boolean done;
+
+        // current stream
+        private String stream;
+        private long lowerUser;
+        private long count, maxId, lowerCount, lowerMaxId, upperMaxId;
+        private final List<long[]> blocks = new ArrayList<>();
+
+        // current block
+        private final ByteArrayOutputStream raw = new ByteArrayOutputStream(16 * 1024);
+        private final DataOutputStream rawOut = new DataOutputStream(raw);
+        private long blockFirstId, blockLastId;
+        private int blockCount, blockLowerCount;
+
+        Writer(Path dir, long lowId, long highId, int blockRows) throws IOException {
+            this.target = dir.resolve(fileName(highId));
+            this.tmp = dir.resolve(fileName(highId) + ".tmp");
+            this.lowId = lowId;
+            this.highId = highId;
+            this.blockRows = blockRows;
+            this.file = new FileOutputStream(tmp.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        }
+
+        /** lowerUser: the smaller participant id for a DM stream (counts messages it sent), 0 for rooms. */
+        void add(String stream, long lowerUser, long id, long senderId, long recipientId, Instant timestamp,
+                 String content) throws IOException {
+            if (!stream.equals(this.stream)) {
+                endStream();
+                this.stream = stream;
+                this.lowerUser = lowerUser;
+            } else if (blockCount == blockRows) {
+                endBlock();
+            }
+            if (blockCount == 0) blockFirstId = id;
+            blockLastId = id;
+            blockCount++;
+            rawOut.writeLong(id);
+            rawOut.writeLong(senderId);
+            rawOut.writeLong(recipientId);
+            rawOut.writeLong(timestamp.getEpochSecond());
+            rawOut.writeInt(timestamp.getNano());
+            byte[] text = content.getBytes(StandardCharsets.UTF_8);
+            rawOut.writeInt(text.length);
+            rawOut.write(text);
+
+            count++;
+            maxId = id;
+            if (lowerUser != 0) {
+                if (senderId == lowerUser) {
+                    blockLowerCount++;
+                    lowerCount++;
+                    lowerMaxId = id;
+                } else {
+                    upperMaxId = id;
+                }
+            }
+            rows++;
+        }
+
+        long rows() { return rows; }
+
+        private void endBlock() throws IOException {
+            if (blockCount == 0) return;
+            byte[] input = raw.toByteArray();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            long offset = position;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                position += n;
+            }
+            blocks.add(new long[] {blockFirstId, blockLastId, blockCount, blockLowerCount, offset,
+                    position - offset, input.length});
+            raw.reset();
+            blockCount = 0;
+            blockLowerCount = 0;
+        }
+
+        private void endStream() throws IOException {
+            if (stream == null) return;
+            endBlock();
+            ByteArrayOutputStream entry = new ByteArrayOutputStream(64 + blocks.size() * 40);
+            DataOutputStream e = new DataOutputStream(entry);
+            e.writeUTF(stream);
+            e.writeLong(count);
+            e.writeLong(maxId);
+            e.writeLong(lowerCount);
+            e.writeLong(lowerCount > 0 ? lowerMaxId : Long.MIN_VALUE);
+            e.writeLong(count > lowerCount && lowerUser != 0 ? upperMaxId : Long.MIN_VALUE);
+            e.writeInt(blocks.size());
+            for (long[] b : blocks) {
+                e.writeLong(b[0]);
+                e.writeLong(b[1]);
+                e.writeInt((int) b[2]);
+                e.writeInt((int) b[3]);
+                e.writeLong(b[4]);
+                e.writeInt((int) b[5]);
+                e.writeInt((int) b[6]);
+            }
+            directory.add(entry.toByteArray());
+            blocks.clear();
+            count = maxId = lowerCount = lowerMaxId = upperMaxId = 0;
+            stream = null;
+        }
+
+        /** Completes, syncs and publishes the file; returns its final path. */
+        Path finish() throws IOException {
+            endStream();
+            long directoryOffset = position;
+            if (directoryOffset + TRAILER > Integer.MAX_VALUE) {
+                throw new IOException("History segment over 2 GB; use a shorter chat.tiering.segment-span");
+            }
+            out.writeInt(directory.size());
+            for (byte[] entry : directory) out.write(entry);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lowId);
+            out.writeLong(highId);
+            out.writeLong(directoryOffset);
+            out.flush();
+            file.getChannel().force(true);
+            out.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+            return target;
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+            if (done) return;
+            try {
+                out.close();
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getFileName() + " (" + lowId + ", " + highId + "]";
+    }
+}
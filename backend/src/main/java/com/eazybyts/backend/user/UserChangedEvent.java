@@ -0,0 +1,7 @@
+package com.eazybyts.backend.user;
+
+/**
+ * Published after a UserEntity row is updated or deleted, so caches of user data
+ * (principal cache, etc.) can drop their copy.
+ */
+public record UserChangedEvent(Long userId, String username) {}
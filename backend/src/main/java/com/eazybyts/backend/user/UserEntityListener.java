@@ -0,0 +1,26 @@
+package com.eazybyts.backend.user;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on UserEntity (instantiated through Spring's bean container, so it can be injected).
+ * Turns password/roles/fcmToken/... changes into a UserChangedEvent. These callbacks run at flush, before
+ * commit, so listeners that act on the committed state use @TransactionalEventListener(AFTER_COMMIT).
+ */
+@Component
+public class UserEntityListener {
+    private final ApplicationEventPublisher events;
+
+    public UserEntityListener(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void changed(UserEntity user) {
+        events.publishEvent(new UserChangedEvent(user.getId(), user.getUsername()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.eazybyts.backend.broker;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CborMessageConverterTests {
+
+  // the converters WebSocketConfig ends up with: CBOR first, then Spring's defaults
+  private static CompositeMessageConverter converters() {
+    return new CompositeMessageConverter(List.of(
+        new CborMessageConverter(new CBORMapper()),
+        new StringMessageConverter(),
+        new ByteArrayMessageConverter(),
+        new MappingJackson2MessageConverter()));
+  }
+
+  @Controller
+  static class Probe {
+    final List<Object> received = new ArrayList<>();
+
+    @MessageMapping("/chat/{room}")
+    void chat(@DestinationVariable String room, Map<String, Object> payload) {
+      received.add(payload);
+    }
+  }
+
+  @Test
+  void jsonSendWithoutContentTypeReachesTheHandler() {
+    StaticApplicationContext context = new StaticApplicationContext();
+    context.registerSingleton("probe", Probe.class);
+    context.refresh();
+    ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+    ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+    var handler = new SimpAnnotationMethodMessageHandler(inbound, outbound,
+        new SimpMessagingTemplate(new ExecutorSubscribableChannel()));
+    handler.setApplicationContext(context);
+    handler.setDestinationPrefixes(List.of("/app"));
+    handler.setMessageConverter(converters());
+    handler.afterPropertiesSet();
+    handler.start();
+
+    // what the frontend's client.publish({destination, body: JSON.stringify(...)}) sends
+    SimpMessageHeaderAccessor send = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    send.setDestination("/app/chat/1");
+    send.setSessionId("s1");
+    send.setSessionAttributes(Map.of());
+    byte[] body = "{\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8);
+    assertTrue(inbound.send(MessageBuilder.createMessage(body, send.getMessageHeaders())));
+
+    assertEquals(List.of(Map.of("content", "hi")), context.getBean(Probe.class).received);
+  }
+
+  @Test
+  void onlyAnExplicitCborContentTypeIsCbor() throws Exception {
+    CompositeMessageConverter converters = converters();
+
+    Message<?> json = converters.toMessage(Map.of("content", "hi"), null);
+    assertEquals(MimeType.valueOf("application/json"), json.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+    Message<?> cbor = converters.toMessage(Map.of("content", "hi"),
+        new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, FrameFormat.CBOR.getMimeType())));
+    assertArrayEquals(new CBORMapper().writeValueAsBytes(Map.of("content", "hi")), (byte[]) cbor.getPayload());
+    assertEquals(Map.of("content", "hi"), converters.fromMessage(cbor, Map.class));
+  }
+}
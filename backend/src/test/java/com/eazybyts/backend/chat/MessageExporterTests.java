@@ -0,0 +1,85 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MessageExporterTests {
+
+  private final MessageExporter exporter = new MessageExporter(null, null, null, null,
+      new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+  private static ChatMessage msg(long id) {
+    return new ChatMessage(id, 1L, 7L, null, "m" + id, Instant.EPOCH);
+  }
+
+  @Test
+  void ndjsonWritesOneObjectPerLine() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int n = exporter.writeRows(List.of(msg(1), msg(2)).iterator(), out, false);
+
+    assertEquals(2, n);
+    assertEquals("""
+        {"id":"1","roomId":1,"senderId":7,"recipientId":null,"content":"m1","timestamp":"1970-01-01T00:00:00Z"}
+        {"id":"2","roomId":1,"senderId":7,"recipientId":null,"content":"m2","timestamp":"1970-01-01T00:00:00Z"}
+        """, out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void sseEventsCarryTheMessageIdForResume() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.writeRows(List.of(msg(42)).iterator(), out, true);
+
+    String body = out.toString(StandardCharsets.UTF_8);
+    assertTrue(body.startsWith("id: 42\ndata: {\"id\":\"42\""), body);
+    assertTrue(body.endsWith("}\n\n"), body);
+  }
+
+  @Test
+  void failingFlushStopsReadingRows() {
+    // a client that went away: the first batch flush fails
+    OutputStream gone = new FilterOutputStream(OutputStream.nullOutputStream()) {
+      @Override
+      public void flush() throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    var rows = LongStream.rangeClosed(1, 10 * MessageExporter.FLUSH_EVERY).mapToObj(MessageExporterTests::msg).iterator();
+
+    assertThrows(IOException.class, () -> exporter.writeRows(rows, gone, false));
+    assertTrue(rows.hasNext(), "rows after the failed flush must not be read");
+  }
+
+  @Test
+  void rowsStillInBothTiersAreWrittenOnce() throws IOException {
+    // the archiver has registered 1..3 but not yet deleted them from the table
+    ColdHistoryStore history = mock(ColdHistoryStore.class);
+    when(history.iterateAfter("r1", Long.MIN_VALUE)).thenReturn(List.of(msg(1), msg(2), msg(3)).iterator());
+    MessageRepository messages = mock(MessageRepository.class);
+    when(messages.streamRoomAfter(1L, 3L)).thenReturn(LongStream.rangeClosed(4, 5).mapToObj(MessageExporterTests::msg));
+    RoomRepository rooms = mock(RoomRepository.class);
+    when(rooms.existsById(1L)).thenReturn(true);
+    var exporter = new MessageExporter(messages, rooms, history, mock(PlatformTransactionManager.class),
+        new ObjectMapper().findAndRegisterModules());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.ndjson(1L, null).writeTo(out);
+
+    assertEquals(5, out.toString(StandardCharsets.UTF_8).lines().count());
+    verify(messages, never()).streamRoomAfter(1L, Long.MIN_VALUE);
+  }
+}
@@ -0,0 +1,73 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.search.MessageSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MessageWriteBehindTests {
+
+  private JdbcTemplate jdbc;
+  private MessageWriteBehind writeBehind;
+
+  @BeforeEach
+  void setUp() {
+    jdbc = mock(JdbcTemplate.class);
+    writeBehind = new MessageWriteBehind(jdbc, mock(PlatformTransactionManager.class), mock(RecentMessageCache.class),
+        SnowflakeIdGenerator.forNode(1), mock(UnreadCounters.class), mock(MessageSearchIndex.class));
+    ReflectionTestUtils.setField(writeBehind, "enabled", true);
+    ReflectionTestUtils.setField(writeBehind, "batchSize", 10);
+    ReflectionTestUtils.setField(writeBehind, "queueCapacity", 10);
+  }
+
+  @SuppressWarnings("unchecked")
+  private OngoingStubbing<int[][]> insert() {
+    return when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void awaitInserts(int n) {
+    verify(jdbc, timeout(5_000).times(n)).batchUpdate(anyString(), any(Collection.class), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  void interruptedBackoffStillGetsALastAttempt() throws Exception {
+    insert().thenThrow(new DataAccessResourceFailureException("database down")).thenReturn(new int[][] {{1}});
+    writeBehind.start();
+    writeBehind.submit(1L, 7L, "hi");
+    awaitInserts(1);
+
+    ((Thread) ReflectionTestUtils.getField(writeBehind, "worker")).interrupt(); // while backing off
+    awaitInserts(2);
+    writeBehind.stop();
+
+    assertEquals(1, writeBehind.getPersisted());
+    assertEquals(0, writeBehind.getFailed());
+  }
+
+  @Test
+  void batchStillFailingAtShutdownIsCountedAsFailed() throws Exception {
+    insert().thenThrow(new DataAccessResourceFailureException("database down"));
+    writeBehind.start();
+    writeBehind.submit(1L, 7L, "hi");
+    awaitInserts(1);
+
+    writeBehind.stop();
+
+    assertEquals(0, writeBehind.getPersisted());
+    assertEquals(1, writeBehind.getFailed());
+  }
+}
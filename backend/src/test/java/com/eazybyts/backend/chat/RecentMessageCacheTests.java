@@ -0,0 +1,67 @@
+package com.eazybyts.backend.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentMessageCacheTests {
+
+  private static ChatMessage msg(long id) {
+    return new ChatMessage(id, 1L, 7L, null, "m" + id, Instant.EPOCH);
+  }
+
+  private static List<ChatMessage> range(long fromInclusive, long toInclusive) {
+    List<ChatMessage> out = new ArrayList<>();
+    for (long id = toInclusive; id >= fromInclusive; id--) out.add(msg(id)); // newest first, like the DB read
+    return out;
+  }
+
+  private static List<Long> ids(MessagePage page) {
+    return page.getMessages().stream().map(ChatMessage::getId).toList();
+  }
+
+  @Test
+  void completeSeedAnswersEveryWindow() {
+    var buf = new RecentMessageCache.RoomBuffer(100);
+    buf.merge(range(1, 10), true);
+
+    MessagePage newest = buf.window(null, null, 3);
+    assertEquals(List.of(8L, 9L, 10L), ids(newest));
+    assertEquals(8L, newest.getNextCursor());
+
+    MessagePage older = buf.window(3L, null, 5);
+    assertEquals(List.of(1L, 2L), ids(older));
+    assertNull(older.getNextCursor());
+
+    MessagePage newer = buf.window(null, 7L, 5);
+    assertEquals(List.of(8L, 9L, 10L), ids(newer));
+    assertNull(newer.getNextCursor());
+  }
+
+  @Test
+  void partialCoverageFallsBackToDatabase() {
+    var buf = new RecentMessageCache.RoomBuffer(100);
+    buf.add(msg(50));
+    buf.add(msg(51));
+
+    assertNull(buf.window(null, null, 5), "older rows may exist below the floor");
+    assertNull(buf.window(null, 10L, 5), "gap between cursor and floor");
+    assertEquals(List.of(51L), ids(buf.window(null, 50L, 5)));
+  }
+
+  @Test
+  void ringKeepsNewestAndForgetsCompleteness() {
+    var buf = new RecentMessageCache.RoomBuffer(4);
+    buf.merge(range(1, 3), true);
+    buf.add(msg(5));
+    buf.add(msg(4)); // late commit, lands in order
+    assertEquals(List.of(3L, 4L, 5L), ids(buf.window(null, null, 3)));
+    assertEquals(List.of(2L, 3L, 4L, 5L), ids(buf.window(null, 1L, 10)));
+
+    assertNull(buf.window(null, null, 10), "message 1 was dropped, so a full page needs the DB");
+  }
+}
@@ -0,0 +1,43 @@
+package com.eazybyts.backend.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTests {
+
+  @Test
+  void idsIncreaseAndCarryNodeAndTime() {
+    SnowflakeIdGenerator ids = SnowflakeIdGenerator.forNode(7);
+    Instant start = Instant.now().minusSeconds(1);
+    long prev = ids.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      long id = ids.nextId();
+      assertTrue(id > prev);
+      prev = id;
+    }
+    assertEquals(7, (prev >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+    assertTrue(SnowflakeIdGenerator.timestampOf(prev).isAfter(start));
+    assertTrue(prev >= SnowflakeIdGenerator.firstIdAt(start));
+  }
+
+  @Test
+  void concurrentCallersNeverCollide() {
+    SnowflakeIdGenerator ids = SnowflakeIdGenerator.forNode(8);
+    Set<Long> seen = ConcurrentHashMap.newKeySet();
+    IntStream.range(0, 8).parallel().forEach(t -> {
+      for (int i = 0; i < 50_000; i++) assertTrue(seen.add(ids.nextId()));
+    });
+    assertEquals(400_000, seen.size());
+  }
+
+  @Test
+  void rejectsOutOfRangeNode() {
+    assertThrows(IllegalArgumentException.class, () -> SnowflakeIdGenerator.forNode(1024));
+  }
+}
@@ -0,0 +1,44 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypingAggregatorTests {
+
+  @Test
+  void burstsCollapseIntoOneSnapshotPerChange() {
+    List<Message<?>> sent = new ArrayList<>();
+    var template = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+    var agg = new TypingAggregator(template, new BroadcastEncoder(new ObjectMapper()));
+    ReflectionTestUtils.setField(agg, "expiryMs", 60_000L);
+
+    for (int i = 0; i < 20; i++) {
+      agg.typing(1L, "bob");
+      agg.typing(1L, "alice");
+    }
+    agg.tick();
+    agg.tick(); // unchanged set: nothing sent
+    assertEquals(1, sent.size());
+    assertEquals("/topic/typing.1", sent.get(0).getHeaders().get("simpDestination"));
+
+    agg.typing(1L, "alice"); // refresh only
+    agg.stopped(1L, "bob");
+    agg.tick();
+    assertEquals(2, sent.size());
+
+    agg.stopped(1L, "alice");
+    agg.tick();
+    assertEquals(3, sent.size());
+    agg.tick();
+    assertEquals(0, agg.getActiveRooms(), "idle rooms are dropped");
+  }
+}
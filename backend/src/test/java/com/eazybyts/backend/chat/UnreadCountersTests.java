@@ -0,0 +1,104 @@
+package com.eazybyts.backend.chat;
+
+import com.eazybyts.backend.tiering.ColdHistoryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class UnreadCountersTests {
+
+  private static final long ALICE = 5, BOB = 2, ROOM = 1;
+
+  private MessageRepository messages;
+  private DirectMessageRepository dms;
+  private JdbcTemplate jdbc;
+  private UnreadCounters unread;
+
+  @BeforeEach
+  void setUp() {
+    messages = mock(MessageRepository.class);
+    dms = mock(DirectMessageRepository.class);
+    jdbc = mock(JdbcTemplate.class);
+    // no transaction is active in these tests, so message events are counted at once
+    unread = new UnreadCounters(messages, dms, mock(ReadMarkerRepository.class), new ColdHistoryStore(null, null, null),
+        jdbc, mock(PlatformTransactionManager.class));
+  }
+
+  private Map<Long, Long> roomBadges() {
+    return unread.badges(ALICE).rooms();
+  }
+
+  @Test
+  void countsMessagesAndMarkersOnlyMoveForward() {
+    for (long id = 10; id <= 12; id++) unread.roomMessageSaved(ROOM, id);
+    assertEquals(Map.of(ROOM, 3L), roomBadges());
+
+    unread.markRoomRead(ALICE, ROOM, null);
+    assertEquals(Map.of(), roomBadges());
+
+    unread.roomMessageSaved(ROOM, 13);
+    unread.roomMessageSaved(ROOM, 14);
+    assertEquals(Map.of(ROOM, 2L), roomBadges());
+
+    unread.markRoomRead(ALICE, ROOM, 11L); // behind the marker at 12: ignored, no range count
+    assertEquals(Map.of(ROOM, 2L), roomBadges());
+    assertEquals(0, unread.getBaselineCounts());
+
+    unread.markRoomRead(ALICE, ROOM, 14L);
+    assertEquals(Map.of(), roomBadges());
+    assertEquals(Map.of(ROOM, 5L), unread.badges(BOB).rooms());
+  }
+
+  @Test
+  void markerBehindTheNewestMessageCountsTheRangeUpToTheSnapshot() {
+    for (long id = 10; id <= 14; id++) unread.roomMessageSaved(ROOM, id);
+    when(messages.countByRoom_IdAndIdGreaterThanAndIdLessThanEqual(ROOM, 11L, 14L)).thenReturn(3L);
+
+    unread.markRoomRead(ALICE, ROOM, 11L);
+    assertEquals(Map.of(ROOM, 3L), roomBadges());
+    assertEquals(1, unread.getBaselineCounts());
+
+    unread.directMessageSaved(BOB, ALICE, 20);
+    unread.directMessageSaved(BOB, ALICE, 21);
+    unread.directMessageSaved(ALICE, BOB, 22); // Alice's own message is not unread for her
+    String conversation = DirectMessageEntity.conversationKey(ALICE, BOB);
+    when(dms.countByConversationKeyAndSender_IdAndIdGreaterThanAndIdLessThanEqual(conversation, BOB, 20L, 21L))
+        .thenReturn(1L);
+
+    assertEquals(Map.of(BOB, 2L), unread.badges(ALICE).directMessages());
+    unread.markDirectRead(ALICE, BOB, 20L);
+    assertEquals(Map.of(BOB, 1L), unread.badges(ALICE).directMessages());
+    assertEquals(Map.of(ALICE, 1L), unread.badges(BOB).directMessages());
+  }
+
+  @Test
+  void failedCheckpointIsRetriedAndMissingRowsAreInserted() {
+    unread.roomMessageSaved(ROOM, 10);
+    unread.markRoomRead(ALICE, ROOM, null);
+    when(jdbc.batchUpdate(startsWith("UPDATE"), anyList()))
+        .thenThrow(new DataAccessResourceFailureException("database down"))
+        .thenReturn(new int[] {0});
+
+    unread.checkpoint();
+    assertEquals(1, unread.getDirtyMarkers());
+    assertEquals(0, unread.getCheckpoints());
+
+    unread.checkpoint();
+    assertEquals(0, unread.getDirtyMarkers());
+    assertEquals(1, unread.getMarkersWritten());
+    verify(jdbc).batchUpdate(startsWith("INSERT"), anyList());
+
+    unread.checkpoint(); // nothing changed since
+    verify(jdbc, times(2)).batchUpdate(startsWith("UPDATE"), anyList());
+  }
+}
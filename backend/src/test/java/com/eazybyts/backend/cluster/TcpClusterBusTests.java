@@ -0,0 +1,81 @@
+package com.eazybyts.backend.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpClusterBusTests {
+
+  private final BlockingQueue<String> receivedByB = new LinkedBlockingQueue<>();
+  private TcpClusterBus a;
+  private TcpClusterBus b;
+
+  @AfterEach
+  void stop() {
+    if (a != null) a.stop();
+    if (b != null) b.stop();
+  }
+
+  private void startPair(String secretOfA) {
+    b = new TcpClusterBus("127.0.0.1", 0, List.of(), "s3cret", 50, 100);
+    b.start((destination, contentType, payload) ->
+        receivedByB.add(destination + " " + new String(payload, StandardCharsets.UTF_8)));
+    a = new TcpClusterBus("127.0.0.1", 0, List.of("127.0.0.1:" + b.getLocalPort()), secretOfA, 50, 100);
+    a.start((destination, contentType, payload) -> fail("b never publishes"));
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) fail("condition not met within 5s");
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void publicationsOnlyReachNodesWithMatchingInterest() throws Exception {
+    startPair("s3cret");
+    b.addInterest("/topic/room.1");
+    b.addInterest("/topic/typing.*");
+    await(() -> a.getConnectedPeers() == 1);
+
+    // interest arrives asynchronously; publish until it has
+    await(() -> {
+      a.publish("/topic/room.1", "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+      return !receivedByB.isEmpty();
+    });
+    await(() -> b.getReceived() == a.getSent());
+    receivedByB.clear();
+    long sentBefore = a.getSent();
+
+    a.publish("/topic/room.2", "application/json", "nobody".getBytes(StandardCharsets.UTF_8));
+    a.publish("/topic/typing.9", "application/json", "pattern".getBytes(StandardCharsets.UTF_8));
+    assertEquals("/topic/typing.9 pattern", receivedByB.poll(5, TimeUnit.SECONDS));
+    assertEquals(sentBefore + 1, a.getSent());
+
+    b.removeInterest("/topic/typing.*");
+    await(() -> {
+      long before = a.getSent();
+      a.publish("/topic/typing.9", "application/json", "late".getBytes(StandardCharsets.UTF_8));
+      return a.getSent() == before;
+    });
+  }
+
+  @Test
+  void wrongSecretIsRefused() throws Exception {
+    startPair("guess");
+    b.addInterest("/topic/room.1");
+    Thread.sleep(300);
+    a.publish("/topic/room.1", "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+    assertNull(receivedByB.poll(200, TimeUnit.MILLISECONDS));
+    assertEquals(0, b.getAcceptedLinks());
+  }
+}
@@ -0,0 +1,57 @@
+package com.eazybyts.backend.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionGateTests {
+
+  private static ConnectionGate gate(int permits, long timeoutMs) {
+    JdbcDataSource h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:gate;DB_CLOSE_DELAY=-1");
+    return new ConnectionGate(h2, permits, timeoutMs);
+  }
+
+  @Test
+  void permitIsHeldUntilCloseAndReturnedOnce() throws Exception {
+    ConnectionGate gate = gate(2, 50);
+    Connection a = gate.getConnection();
+    Connection b = gate.getConnection();
+    assertEquals(2, gate.getInUse());
+    assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+    assertEquals(1, gate.getTimeouts());
+
+    a.close();
+    a.close(); // a second close must not hand out an extra permit
+    assertEquals(1, gate.getInUse());
+    try (Connection c = gate.getConnection()) {
+      assertTrue(c.isValid(1));
+      assertEquals(2, gate.getInUse());
+    }
+    b.close();
+    assertEquals(0, gate.getInUse());
+  }
+
+  @Test
+  void waiterProceedsWhenAPermitIsReturned() throws Exception {
+    ConnectionGate gate = gate(1, 5_000);
+    Connection held = gate.getConnection();
+    Thread waiter = new Thread(() -> {
+      try (Connection c = gate.getConnection()) {
+        c.isValid(1);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    waiter.start();
+    while (gate.getWaiting() == 0) Thread.onSpinWait();
+    held.close();
+    waiter.join(5_000);
+    assertFalse(waiter.isAlive());
+    assertEquals(0, gate.getInUse());
+  }
+}
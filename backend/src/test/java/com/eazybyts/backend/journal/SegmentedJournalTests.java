@@ -0,0 +1,120 @@
+package com.eazybyts.backend.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedJournalTests {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private static long append(SegmentedJournal journal, long value) throws Exception {
+    long end = journal.append(8, buf -> buf.putLong(value));
+    journal.awaitDurable(end, SECOND);
+    return end;
+  }
+
+  private static List<Long> readAll(SegmentedJournal journal, long from) throws IOException {
+    List<Long> values = new ArrayList<>();
+    try (SegmentedJournal.Reader reader = journal.reader(from)) {
+      ByteBuffer record;
+      while ((record = reader.next()) != null) values.add(record.getLong());
+    }
+    return values;
+  }
+
+  @Test
+  void concurrentAppendsShareSyncsAndReadBackInOrder(@TempDir Path dir) throws Exception {
+    // 200 byte segments: a record is 16 bytes, so the log rolls many times
+    try (var journal = new SegmentedJournal(dir, 200, TimeUnit.MILLISECONDS.toNanos(2), 1 << 20).open()) {
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      List<Future<?>> done = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        long base = t * 1000L;
+        done.add(pool.submit(() -> {
+          for (long i = 0; i < 100; i++) append(journal, base + i);
+          return null;
+        }));
+      }
+      for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+      pool.shutdown();
+
+      List<Long> values = readAll(journal, 0);
+      assertEquals(800, values.size());
+      assertEquals(800, new HashSet<>(values).size());
+      assertTrue(journal.getSyncs() < 800, "appends should share fsyncs, got " + journal.getSyncs());
+      assertTrue(journal.getSegmentCount() > 1);
+    }
+  }
+
+  @Test
+  void tornTailIsCutOffOnOpen(@TempDir Path dir) throws Exception {
+    try (var journal = new SegmentedJournal(dir, 1 << 20, 0, 1).open()) {
+      append(journal, 1);
+      append(journal, 2);
+    }
+    Path file = dir.resolve(SegmentedJournal.fileName(0));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.allocate(12).putInt(8).putInt(12345).putInt(7).flip()); // half a record
+    }
+
+    try (var journal = new SegmentedJournal(dir, 1 << 20, 0, 1).open()) {
+      assertEquals(32, Files.size(file));
+      append(journal, 3);
+      assertEquals(List.of(1L, 2L, 3L), readAll(journal, 0));
+      assertEquals(List.of(2L, 3L), readAll(journal, 16));
+    }
+  }
+
+  @Test
+  void deleteBeforeKeepsTheSegmentsStillNeeded(@TempDir Path dir) throws Exception {
+    try (var journal = new SegmentedJournal(dir, 32, 0, 1).open()) {
+      List<Long> ends = new ArrayList<>();
+      for (long i = 0; i < 6; i++) ends.add(append(journal, i));
+      assertEquals(3, journal.getSegmentCount());
+
+      journal.deleteBefore(ends.get(2)); // inside the second segment
+      assertEquals(2, journal.getSegmentCount());
+      assertEquals(List.of(2L, 3L, 4L, 5L), readAll(journal, ends.get(1)));
+
+      journal.deleteBefore(ends.get(5));
+      assertEquals(1, journal.getSegmentCount());
+      Set<Path> files = new HashSet<>(Files.list(dir).toList());
+      assertEquals(Set.of(dir.resolve(SegmentedJournal.fileName(64))), files);
+    }
+  }
+
+  @Test
+  void shortEarlierSegmentCutsTheLogThere(@TempDir Path dir) throws Exception {
+    try (var journal = new SegmentedJournal(dir, 32, 0, 1).open()) {
+      for (long i = 0; i < 6; i++) append(journal, i); // segments at 0, 32 and 64
+    }
+    // power loss after roll(): the second segment's last record never reached the disk
+    try (FileChannel channel = FileChannel.open(dir.resolve(SegmentedJournal.fileName(32)), StandardOpenOption.WRITE)) {
+      channel.truncate(20);
+    }
+
+    try (var journal = new SegmentedJournal(dir, 32, 0, 1).open(16)) {
+      assertEquals(List.of(1L, 2L), readAll(journal, 16));
+      assertFalse(Files.exists(dir.resolve(SegmentedJournal.fileName(64))));
+      append(journal, 6);
+      assertEquals(List.of(1L, 2L, 6L), readAll(journal, 16));
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.eazybyts.backend.notification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTests {
+
+  private static NotificationDispatcher dispatcher(PushSender sender) {
+    var d = new NotificationDispatcher(sender);
+    ReflectionTestUtils.setField(d, "queueCapacity", 100);
+    ReflectionTestUtils.setField(d, "workers", 1);
+    ReflectionTestUtils.setField(d, "batchSize", 10);
+    ReflectionTestUtils.setField(d, "lingerMs", 20L);
+    ReflectionTestUtils.setField(d, "maxAttempts", 3);
+    ReflectionTestUtils.setField(d, "baseBackoffMs", 10L);
+    ReflectionTestUtils.setField(d, "maxBackoffMs", 50L);
+    ReflectionTestUtils.setField(d, "deadLetterCapacity", 10);
+    d.start();
+    return d;
+  }
+
+  private static void await(java.util.function.BooleanSupplier done) throws InterruptedException {
+    for (int i = 0; i < 200 && !done.getAsBoolean(); i++) Thread.sleep(10);
+    assertTrue(done.getAsBoolean(), "timed out");
+  }
+
+  @Test
+  void retriesTransientFailuresAndDeadLettersTheRest() throws Exception {
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    int[] calls = {0};
+    var d = dispatcher(batch -> {
+      calls[0]++;
+      if (calls[0] == 1) throw new java.io.IOException("gateway down");
+      List<PushNotification> retry = batch.stream().filter(n -> n.token().equals("flaky")).toList();
+      List<PushNotification> rejected = batch.stream().filter(n -> n.token().equals("bad")).toList();
+      batch.stream().filter(n -> !retry.contains(n) && !rejected.contains(n)).forEach(n -> delivered.add(n.token()));
+      return new PushResult(retry, rejected);
+    });
+    try {
+      for (String token : List.of("a", "b", "flaky", "bad")) {
+        assertTrue(d.enqueue(new PushNotification(token, "t", "b")));
+      }
+      await(() -> d.getDeadLettered() == 2);
+      assertEquals(List.of("a", "b"), delivered.stream().sorted().toList());
+      assertEquals(List.of("bad", "flaky"), d.getDeadLetters().stream().map(PushNotification::token).sorted().toList());
+      assertEquals(2, d.getDelivered());
+      assertTrue(d.getSendCalls() <= 3, "pushes are sent in batches, not one call each");
+    } finally {
+      d.stop();
+    }
+  }
+}
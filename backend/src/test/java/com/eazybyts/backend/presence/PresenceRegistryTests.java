@@ -0,0 +1,103 @@
+package com.eazybyts.backend.presence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresenceRegistryTests {
+
+  @Test
+  void userStaysOnlineUntilTheLastDeviceLeaves() {
+    var registry = new PresenceRegistry(4, 3);
+
+    assertTrue(registry.connect("phone", 7, 0, 0));
+    assertFalse(registry.connect("laptop", 7, 0, 0));
+    assertEquals(2, registry.sessionCount(7));
+
+    assertNull(registry.disconnect("phone"));
+    assertTrue(registry.isOnline(7));
+    assertEquals(7L, registry.disconnect("laptop"));
+    assertFalse(registry.isOnline(7));
+    assertNull(registry.disconnect("laptop"));
+  }
+
+  @Test
+  void onlySilentHeartbeatSessionsExpire() {
+    var registry = new PresenceRegistry(4, 3);
+    registry.connect("beating", 1, 1_000, 0);
+    registry.connect("quiet", 2, 1_000, 0);
+    registry.connect("no-heartbeat", 3, 0, 0);
+
+    registry.touch("beating", 2_500);
+    assertEquals(List.of(), registry.expire(3_000));
+    assertEquals(List.of(2L), registry.expire(3_001));
+    assertEquals(List.of(1L), registry.expire(5_501));
+    assertTrue(registry.isOnline(3));
+  }
+
+  @Test
+  void expiredSessionComesBackOnItsNextFrame() {
+    var registry = new PresenceRegistry(4, 3);
+    registry.connect("stalled", 1, 1_000, 0);
+    registry.connect("other-user", 2, 0, 0);
+
+    assertEquals(List.of(1L), registry.expire(3_001));
+    assertFalse(registry.isOnline(1));
+    assertEquals(List.of(), registry.expire(10_000)); // reported once
+
+    registry.touch("stalled", 10_500);
+    registry.touch("stalled", 10_600);
+    assertTrue(registry.isOnline(1));
+    assertEquals(List.of(1L), registry.drainRevived());
+    assertEquals(List.of(), registry.drainRevived());
+
+    assertEquals(1L, registry.disconnect("stalled"));
+    registry.touch("stalled", 11_000); // gone for good after disconnect
+    assertFalse(registry.isOnline(1));
+    assertEquals(List.of(), registry.drainRevived());
+  }
+
+  @Test
+  void disconnectDuringTouchDoesNotReviveTheSession() throws Exception {
+    var registry = new PresenceRegistry(4, 3);
+    registry.connect("stalled", 1, 1_000, 0);
+    registry.expire(3_001);
+    PresenceRegistry.Session session = registry.sessions.get("stalled");
+
+    Thread frame;
+    synchronized (session) {
+      // touch() has read the session and waits for its monitor while the socket closes
+      frame = new Thread(() -> registry.touch("stalled", 4_000));
+      frame.start();
+      while (frame.getState() != Thread.State.BLOCKED) Thread.onSpinWait();
+      assertNull(registry.disconnect("stalled")); // expired already, so not reported again
+    }
+    frame.join();
+
+    assertFalse(registry.isOnline(1));
+    assertEquals(List.of(), registry.drainRevived());
+  }
+
+  @Test
+  void bulkQueryKeepsTheCallersOrder() {
+    var registry = new PresenceRegistry(16, 3);
+    LongStream.range(0, 5_000).filter(id -> id % 2 == 0)
+        .forEach(id -> registry.connect("s" + id, id, 0, 0));
+
+    List<Long> asked = LongStream.range(0, 5_000).map(id -> 4_999 - id).boxed().toList();
+    List<Long> online = registry.online(asked);
+
+    assertEquals(2_500, online.size());
+    assertEquals(4_998L, online.get(0));
+    assertEquals(0L, online.get(online.size() - 1));
+    assertEquals(2_500, registry.getOnlineUsers());
+  }
+
+  @Test
+  void shardCountMustBeAPowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new PresenceRegistry(12, 3));
+  }
+}
@@ -0,0 +1,65 @@
+package com.eazybyts.backend.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FloodControlTests {
+
+  private SimpMessagingTemplate broker;
+  private FloodControl flood;
+
+  @BeforeEach
+  void setUp() {
+    broker = mock(SimpMessagingTemplate.class);
+    flood = new FloodControl(broker);
+    ReflectionTestUtils.setField(flood, "enabled", true);
+    ReflectionTestUtils.setField(flood, "chatPerSecond", 1.0);
+    ReflectionTestUtils.setField(flood, "chatBurst", 2);
+    ReflectionTestUtils.setField(flood, "typingPerSecond", 1.0);
+    ReflectionTestUtils.setField(flood, "typingBurst", 1);
+    ReflectionTestUtils.setField(flood, "directPerSecond", 1.0);
+    ReflectionTestUtils.setField(flood, "directBurst", 1);
+    flood.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    flood.stop();
+  }
+
+  private static Message<byte[]> send(String destination) {
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    headers.setDestination(destination);
+    headers.setSessionId("s1");
+    return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+  }
+
+  @Test
+  void rejectedChatFrameIsAnsweredOnTheSessionsErrorQueue() {
+    assertNotNull(flood.preSend(send("/app/chat/1"), null));
+    assertNotNull(flood.preSend(send("/app/chat/1"), null));
+    verifyNoInteractions(broker);
+
+    assertNull(flood.preSend(send("/app/chat/1"), null));
+    verify(broker).convertAndSendToUser(eq("s1"), eq("/queue/errors"),
+        eq(new FloodRejection("/app/chat/1", "Too many chat messages, slow down")), anyMap());
+  }
+
+  @Test
+  void rejectedTypingFrameIsDroppedQuietly() {
+    assertNotNull(flood.preSend(send("/app/typing/1"), null));
+    assertNull(flood.preSend(send("/app/typing/1"), null));
+    verifyNoInteractions(broker);
+  }
+}
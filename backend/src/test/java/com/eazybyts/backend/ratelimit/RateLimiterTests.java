@@ -0,0 +1,60 @@
+package com.eazybyts.backend.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTests {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  void burstThenSteadyRate() {
+    var limiter = new RateLimiter(10, 3); // one token per 100 ms, bucket of 3
+    long t = 1_000_000 * MS;
+
+    for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire("alice", t));
+    assertFalse(limiter.tryAcquire("alice", t));
+    assertFalse(limiter.tryAcquire("alice", t + 99 * MS));
+    assertTrue(limiter.tryAcquire("alice", t + 100 * MS));
+    assertFalse(limiter.tryAcquire("alice", t + 100 * MS));
+
+    // budgets are per key
+    assertTrue(limiter.tryAcquire("bob", t + 100 * MS));
+    assertEquals(5, limiter.getAllowed());
+    assertEquals(3, limiter.getRejected());
+  }
+
+  @Test
+  void idleBucketsRefillAndAreEvicted() {
+    var limiter = new RateLimiter(10, 3);
+    long t = 1_000_000 * MS;
+    for (int i = 0; i < 3; i++) limiter.tryAcquire("alice", t);
+    limiter.tryAcquire("bob", t);
+
+    assertEquals(0, limiter.evictIdle(t + 50 * MS));
+    assertEquals(1, limiter.evictIdle(t + 200 * MS)); // bob is full again at +100 ms, alice only at +300 ms
+    assertEquals(1, limiter.getKeyCount());
+    assertEquals(1, limiter.evictIdle(t + 300 * MS));
+
+    for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire("alice", t + 300 * MS));
+    assertFalse(limiter.tryAcquire("alice", t + 300 * MS));
+  }
+
+  @Test
+  void bucketEvictedUnderAnAcquireIsReplacedNotReused() {
+    var limiter = new RateLimiter(10, 3);
+    long t = 1_000_000 * MS;
+    limiter.tryAcquire("alice", t);
+
+    // the sweep has claimed alice's bucket but not removed it yet
+    limiter.buckets.get("alice").set(RateLimiter.EVICTED);
+    for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire("alice", t + 300 * MS));
+    assertFalse(limiter.tryAcquire("alice", t + 300 * MS));
+    assertEquals(1, limiter.getKeyCount());
+    assertNotEquals(RateLimiter.EVICTED, limiter.buckets.get("alice").get());
+    assertEquals(0, limiter.evictIdle(t + 300 * MS));
+  }
+}
@@ -0,0 +1,98 @@
+package com.eazybyts.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentTests {
+
+  private static Map<String, Segment.LongList> postings(Object... keyThenIds) {
+    Map<String, Segment.LongList> map = new HashMap<>();
+    for (int i = 0; i < keyThenIds.length; i += 2) {
+      Segment.LongList list = map.computeIfAbsent((String) keyThenIds[i], k -> new Segment.LongList());
+      for (long id : (long[]) keyThenIds[i + 1]) list.add(id);
+    }
+    return map;
+  }
+
+  @Test
+  void matchesEveryKeyNewestFirstBelowTheCursor() {
+    var segment = Segment.build(1, postings(
+        "r1:deploy", new long[] {10, 20, 30, 40, 1_000_000_000_000L},
+        "r1:friday", new long[] {20, 40, 50, 1_000_000_000_000L}));
+
+    assertEquals(6, segment.docCount());
+    assertEquals(List.of(1_000_000_000_000L, 40L, 20L), segment.match(List.of("r1:deploy", "r1:friday"), Long.MAX_VALUE, 10));
+    assertEquals(List.of(40L), segment.match(List.of("r1:friday", "r1:deploy"), 1_000_000_000_000L, 1));
+    assertEquals(List.of(), segment.match(List.of("r1:deploy", "r2:deploy"), Long.MAX_VALUE, 10));
+  }
+
+  @Test
+  void mergeCollapsesDuplicatesAndSurvivesAFileRoundTrip(@TempDir Path dir) throws Exception {
+    var older = Segment.build(1, postings("u7:hello", new long[] {1, 2, 3}));
+    var newer = Segment.build(2, postings("u7:hello", new long[] {3, 4}, "u8:hello", new long[] {4}));
+    var merged = Segment.merge(3, List.of(older, newer));
+    assertEquals(4, merged.docCount());
+
+    merged.write(dir);
+    var read = Segment.read(dir.resolve(Segment.fileName(3)), 3);
+    assertEquals(List.of(4L, 3L, 2L, 1L), read.match(List.of("u7:hello"), Long.MAX_VALUE, 10));
+    assertEquals(List.of(4L), read.match(List.of("u8:hello"), Long.MAX_VALUE, 10));
+    assertEquals(4L, read.maxId());
+  }
+
+  @Test
+  void pagingAcrossSkipBlocksMatchesAFullIntersection() {
+    // ids 1000.. with three keys of different density, several Segment.BLOCK blocks each
+    var random = new SplittableRandom(7);
+    Map<String, Segment.LongList> keyIds = new HashMap<>();
+    TreeSet<Long> both = new TreeSet<>(Collections.reverseOrder());
+    for (long id = 1_000; id < 21_000; id++) {
+      boolean common = random.nextInt(2) == 0;
+      boolean rarer = random.nextInt(7) == 0;
+      if (common) keyIds.computeIfAbsent("r1:common", k -> new Segment.LongList()).add(id);
+      if (rarer) keyIds.computeIfAbsent("r1:rarer", k -> new Segment.LongList()).add(id);
+      keyIds.computeIfAbsent("r1:filler", k -> new Segment.LongList()).add(id);
+      if (common && rarer) both.add(id);
+    }
+    var segment = Segment.build(1, keyIds);
+
+    List<Long> expected = List.copyOf(both);
+    List<Long> paged = new ArrayList<>();
+    long before = Long.MAX_VALUE;
+    while (true) {
+      List<Long> page = segment.match(List.of("r1:common", "r1:rarer", "r1:filler"), before, 50);
+      paged.addAll(page);
+      if (page.size() < 50) break;
+      before = page.get(page.size() - 1);
+    }
+    assertEquals(expected, paged);
+    assertEquals(expected.subList(0, 5), segment.match(List.of("r1:rarer", "r1:common"), Long.MAX_VALUE, 5));
+    assertEquals(List.of(), segment.match(List.of("r1:common"), 1_000, 5));
+  }
+
+  @Test
+  void tailListsStaySortedAndDistinct() {
+    var list = new Segment.LongList();
+    for (long id : new long[] {5, 9, 9, 12, 7, 1, 12, 20}) list.add(id);
+    assertArrayEquals(new long[] {1, 5, 7, 9, 12, 20}, list.sortedDistinct());
+    assertEquals(3, list.floorIndex(11));
+    assertEquals(-1, list.floorIndex(0));
+  }
+
+  @Test
+  void termsAreLowerCasedWordsOfUsefulLength() {
+    assertEquals(Set.of("ship", "it", "v2", "größe"), MessageSearchIndex.terms("Ship it! v2, a Größe (größe) x"));
+  }
+}
@@ -0,0 +1,83 @@
+package com.eazybyts.backend.tiering;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColdHistoryStoreTests {
+
+  private static final Instant T = Instant.parse("2024-03-01T10:15:30.123456Z");
+
+  private static List<Long> ids(List<ChatMessage> rows) {
+    return rows.stream().map(ChatMessage::getId).toList();
+  }
+
+  // two segments, blocks of 2 rows: room 7 has ids 1..5 and 11..12, DMs between users 3 and 9
+  private static ColdHistoryStore store(Path dir) throws Exception {
+    var store = new ColdHistoryStore(null, null, null);
+    try (var w = new HistorySegment.Writer(dir, 0, 10, 2)) {
+      for (long id = 1; id <= 5; id++) w.add("r7", 0, id, 3, 0, T, "room " + id);
+      w.add("d3:9", 3, 6, 3, 9, T, "hi");
+      w.add("d3:9", 3, 8, 9, 3, T, "hey");
+      w.add("d3:9", 3, 9, 9, 3, T, "you there?");
+      store.register(w.finish());
+    }
+    try (var w = new HistorySegment.Writer(dir, 10, 20, 2)) {
+      w.add("r7", 0, 11, 4, 0, T, "größer");
+      w.add("r7", 0, 12, 3, 0, T, "last");
+      store.register(w.finish());
+    }
+    return store;
+  }
+
+  @Test
+  void windowsReadAcrossBlocksAndSegments(@TempDir Path dir) throws Exception {
+    var store = store(dir);
+
+    assertEquals(List.of(12L, 11L, 5L), ids(store.before("r7", Long.MAX_VALUE, 3)));
+    assertEquals(List.of(4L, 3L, 2L, 1L), ids(store.before("r7", 5, 10)));
+    assertEquals(List.of(5L, 11L), ids(store.after("r7", 4, 2)));
+    assertEquals(List.of(), store.before("r8", Long.MAX_VALUE, 3));
+
+    ChatMessage m = store.after("r7", 10, 1).get(0);
+    assertEquals(7L, m.getRoomId());
+    assertEquals(4L, m.getSenderId());
+    assertEquals("größer", m.getContent());
+    assertEquals(T, m.getTimestamp());
+
+    ChatMessage dm = store.before("d3:9", Long.MAX_VALUE, 1).get(0);
+    assertNull(dm.getRoomId());
+    assertEquals(3L, dm.getRecipientId());
+  }
+
+  @Test
+  void countsAndTotalsMatchTheRows(@TempDir Path dir) throws Exception {
+    var store = store(dir);
+
+    assertEquals(4, store.countAfter("r7", 3, null));
+    assertEquals(2, store.countAfter("d3:9", 6, 9L));
+    assertEquals(0, store.countAfter("d3:9", 6, 3L));
+    assertTrue(store.totals().contains(new ColdHistoryStore.ArchivedTotals(7L, 0, 0, 7, 12)));
+    assertTrue(store.totals().contains(new ColdHistoryStore.ArchivedTotals(null, 9, 3, 2, 9)));
+    assertTrue(store.totals().contains(new ColdHistoryStore.ArchivedTotals(null, 3, 9, 1, 6)));
+
+    assertEquals(Set.of(2L, 12L), Set.copyOf(ids(store.find("r7", List.of(2L, 12L, 99L)))));
+    assertEquals(List.of(8L), ids(store.findDirect(9, List.of(8L, 2L))));
+  }
+
+  @Test
+  void reopenedSegmentsReadTheSame(@TempDir Path dir) throws Exception {
+    store(dir);
+    var reopened = new ColdHistoryStore(null, null, null);
+    reopened.register(dir.resolve(HistorySegment.fileName(10)));
+    reopened.register(dir.resolve(HistorySegment.fileName(20)));
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 11L, 12L), ids(reopened.after("r7", 0, 100)));
+  }
+}
@@ -0,0 +1,68 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.BackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/** Starts the real backend on an in-memory H2 database of its own; nothing leaves the machine. */
+final class BackendContext {
+  static final String JWT_SECRET = "BENCHMARK_SECRET_THAT_IS_AT_LEAST_32_BYTES_LONG";
+
+  private BackendContext() {}
+
+  static ConfigurableApplicationContext start(String database, String... extraArgs) {
+    return startOn("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false", extraArgs);
+  }
+
+  /** Same, on any H2 URL, e.g. a file database for data sets that do not fit in the heap. */
+  static ConfigurableApplicationContext startOn(String jdbcUrl, String... extraArgs) {
+    String[] base = {
+        "--server.port=0",
+        "--spring.main.banner-mode=off",
+        "--spring.jpa.show-sql=false",
+        "--logging.level.root=WARN",
+        "--spring.datasource.url=" + jdbcUrl,
+        "--jwt.secret=" + JWT_SECRET,
+    };
+    String[] args = new String[base.length + extraArgs.length];
+    System.arraycopy(base, 0, args, 0, base.length);
+    System.arraycopy(extraArgs, 0, args, base.length, extraArgs.length);
+    return new SpringApplicationBuilder(BackendApplication.class).logStartupInfo(false).run(args);
+  }
+
+  /** For objects built without Spring: fill an @Value field. */
+  static void setField(Object target, String name, Object value) {
+    try {
+      Field f = findField(target.getClass(), name);
+      f.setAccessible(true);
+      f.set(target, value);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** For objects built without Spring: run a package-private @PostConstruct method. */
+  static void invoke(Object target, String method) {
+    try {
+      Method m = target.getClass().getDeclaredMethod(method);
+      m.setAccessible(true);
+      m.invoke(target);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Field findField(Class<?> type, String name) throws NoSuchFieldException {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      try {
+        return c.getDeclaredField(name);
+      } catch (NoSuchFieldException ignored) {
+        // keep looking in the superclass
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+}
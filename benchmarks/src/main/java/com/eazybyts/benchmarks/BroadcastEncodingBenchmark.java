@@ -0,0 +1,148 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.broker.SharedFrameStompEncoder;
+import com.eazybyts.backend.broker.StripedBrokerMessageHandler;
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.RoomBroadcast;
+import com.eazybyts.backend.user.UserEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of one room message fanned out to every subscriber, one op per fan-out.
+ * An op is the publish-side encode, then per subscriber the broker copy (StripedBrokerMessageHandler.forSubscriber)
+ * and StompSubProtocolHandler.handleMessageToClient into a session that only counts bytes.
+ * Setup prints the wire bytes of one fan-out; run with -prof gc for B/op (divide by subscribers for B/subscriber).
+ *  - legacy: the old Map.of(...) payload holding the UserEntity sender, converted by Jackson, stock StompEncoder
+ *  - dto:    RoomBroadcast encoded once by BroadcastEncoder, stock StompEncoder
+ *  - shared: RoomBroadcast + SharedFrameStompEncoder (what /ws runs)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastEncodingBenchmark {
+  private static final String DESTINATION = "/topic/room.1";
+
+  @Param({"legacy", "dto", "shared"})
+  String encoding;
+
+  @Param({"1000"})
+  int subscribers;
+
+  private final List<CountingSession> sessions = new ArrayList<>();
+  private MappingJackson2MessageConverter converter;
+  private BroadcastEncoder encoder;
+  private StompSubProtocolHandler handler;
+  private UserEntity alice;
+  private ChatMessage saved;
+
+  @Setup
+  public void setup() {
+    ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    converter = new MappingJackson2MessageConverter();
+    converter.setObjectMapper(mapper);
+    encoder = new BroadcastEncoder(mapper);
+    handler = new StompSubProtocolHandler();
+    handler.setEncoder("shared".equals(encoding) ? new SharedFrameStompEncoder() : new StompEncoder());
+
+    alice = new UserEntity();
+    alice.setId(1L);
+    alice.setUsername("alice");
+    alice.setEmail("alice@example.com");
+    alice.setPassword("$2a$10$abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012");
+    alice.setFcmToken("fcm-token-0123456789");
+    saved = new ChatMessage(370269331973472256L, 1L, 1L, null,
+        "Anyone around to review the fan-out change before lunch?", Instant.now());
+
+    for (int i = 0; i < subscribers; i++) sessions.add(new CountingSession("session-" + i));
+    fanOut();
+    long wire = sessions.stream().mapToLong(s -> s.bytes).sum();
+    System.out.printf("%n%s: %d wire bytes per fan-out, %d per subscriber%n", encoding, wire, wire / subscribers);
+  }
+
+  @Benchmark
+  public long fanOut() {
+    Message<?> published = publish();
+    Object payload = published.getPayload();
+    for (CountingSession s : sessions) {
+      handler.handleMessageToClient(s, StripedBrokerMessageHandler.forSubscriber(published, payload, s.getId(), "sub-0"));
+    }
+    return sessions.get(0).bytes;
+  }
+
+  private Message<?> publish() {
+    if (!"legacy".equals(encoding)) {
+      return encoder.encode(DESTINATION, RoomBroadcast.of(saved, "1", "alice"));
+    }
+    Map<String, Object> out = Map.of(
+        "id", saved.getId(), "room", "1", "sender", alice,
+        "content", saved.getContent(), "createdAt", saved.getTimestamp());
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setDestination(DESTINATION);
+    accessor.setLeaveMutable(true);
+    return converter.toMessage(out, accessor.getMessageHeaders());
+  }
+
+  /** Just enough of a WebSocketSession for StompSubProtocolHandler to write to. */
+  private static final class CountingSession implements WebSocketSession {
+    private final String id;
+    private final Map<String, Object> attributes = new HashMap<>();
+    long bytes;
+
+    CountingSession(String id) { this.id = id; }
+
+    @Override public void sendMessage(WebSocketMessage<?> message) { bytes += message.getPayloadLength(); }
+    @Override public String getId() { return id; }
+    @Override public URI getUri() { return null; }
+    @Override public HttpHeaders getHandshakeHeaders() { return HttpHeaders.EMPTY; }
+    @Override public Map<String, Object> getAttributes() { return attributes; }
+    @Override public Principal getPrincipal() { return null; }
+    @Override public InetSocketAddress getLocalAddress() { return null; }
+    @Override public InetSocketAddress getRemoteAddress() { return null; }
+    @Override public String getAcceptedProtocol() { return "v12.stomp"; }
+    @Override public void setTextMessageSizeLimit(int messageSizeLimit) {}
+    @Override public int getTextMessageSizeLimit() { return Integer.MAX_VALUE; }
+    @Override public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+    @Override public int getBinaryMessageSizeLimit() { return Integer.MAX_VALUE; }
+    @Override public List<WebSocketExtension> getExtensions() { return List.of(); }
+    @Override public boolean isOpen() { return true; }
+    @Override public void close() {}
+    @Override public void close(CloseStatus status) {}
+  }
+}
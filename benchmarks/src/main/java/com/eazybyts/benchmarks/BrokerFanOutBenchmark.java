@@ -0,0 +1,111 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.broker.StripedBrokerMessageHandler;
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.RoomBroadcast;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One room message published through SimpMessagingTemplate and delivered to every subscriber,
+ * the way ChatController.handleChat publishes. Delivery ends at a client outbound channel that only counts,
+ * so this is broker cost (registry lookup, per-subscriber copy, lane hand-off), not socket writes.
+ *  - striped: StripedBrokerMessageHandler (what BrokerConfig installs by default)
+ *  - simple:  Spring's SimpleBrokerMessageHandler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerFanOutBenchmark {
+  private static final String DESTINATION = "/topic/room.1";
+
+  @Param({"striped", "simple"})
+  String broker;
+
+  @Param({"100", "1000"})
+  int subscribers;
+
+  private final AtomicLong delivered = new AtomicLong();
+  private AbstractBrokerMessageHandler handler;
+  private SimpMessagingTemplate template;
+  private BroadcastEncoder encoder;
+  private RoomBroadcast broadcast;
+
+  @Setup
+  public void setup() {
+    ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+    MessageChannel clientOutbound = (message, timeout) -> {
+      delivered.incrementAndGet();
+      return true;
+    };
+    ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    List<String> prefixes = List.of("/topic", "/queue");
+    handler = "striped".equals(broker)
+        ? new StripedBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, prefixes, 4, 10_000)
+        : new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, prefixes);
+    handler.start();
+
+    for (int i = 0; i < subscribers; i++) {
+      // SimpleBroker only delivers to sessions it saw CONNECT for
+      SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+      connect.setSessionId("session-" + i);
+      handler.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+      SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+      subscribe.setSessionId("session-" + i);
+      subscribe.setSubscriptionId("sub-0");
+      subscribe.setDestination(DESTINATION);
+      handler.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+    }
+    delivered.set(0);
+
+    template = new SimpMessagingTemplate(brokerChannel);
+    encoder = new BroadcastEncoder(new ObjectMapper().registerModule(new JavaTimeModule()));
+    broadcast = RoomBroadcast.of(new ChatMessage(370269331973472256L, 1L, 1L, null,
+        "Anyone around to review the fan-out change before lunch?", Instant.now()), "1", "alice");
+  }
+
+  @TearDown
+  public void tearDown() {
+    handler.stop();
+  }
+
+  /** Returns once all subscribers got the message (the striped broker delivers on its lane thread). */
+  @Benchmark
+  public long publish() {
+    long target = delivered.get() + subscribers;
+    template.send(DESTINATION, encoder.encode(DESTINATION, broadcast));
+    while (delivered.get() < target) {
+      Thread.onSpinWait();
+    }
+    return target;
+  }
+}
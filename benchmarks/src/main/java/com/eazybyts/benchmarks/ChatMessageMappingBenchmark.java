@@ -0,0 +1,68 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.MessageEntity;
+import com.eazybyts.backend.chat.RoomEntity;
+import com.eazybyts.backend.user.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Entity → DTO mapping done for every history page. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMessageMappingBenchmark {
+
+  @Param({"50", "200"})
+  int pageSize;
+
+  private MessageEntity one;
+  private List<MessageEntity> page;
+
+  @Setup
+  public void setup() {
+    RoomEntity room = new RoomEntity("general");
+    room.setId(1L);
+    UserEntity alice = new UserEntity();
+    alice.setId(7L);
+    alice.setUsername("alice");
+    page = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      MessageEntity m = new MessageEntity();
+      BackendContext.setField(m, "id", 370269331973472256L + i);
+      m.setRoom(room);
+      m.setSender(alice);
+      m.setContent("message number " + i + " with a typical amount of chat text");
+      m.setTimestamp(Instant.now());
+      page.add(m);
+    }
+    one = page.get(0);
+  }
+
+  @Benchmark
+  public ChatMessage from() {
+    return ChatMessage.from(one);
+  }
+
+  @Benchmark
+  public List<ChatMessage> fromMessages() {
+    return ChatMessage.fromMessages(page);
+  }
+}
@@ -0,0 +1,116 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.chat.DirectMessageEntity;
+import com.eazybyts.backend.chat.DirectMessageService;
+import com.eazybyts.backend.chat.MessagePage;
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import com.eazybyts.backend.user.UserEntity;
+import com.eazybyts.backend.user.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of DM history as the direct_messages table grows.
+ * Every 10th row belongs to the alice/bob conversation, the rest are spread over other pairs,
+ * so a flat result across table sizes means the (conversation_key, id) index is doing its job.
+ *  - newest: the first page a client opens
+ *  - older:  a "before" cursor from the middle of the conversation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationBenchmark {
+  private static final int USERS = 50;
+  private static final String INSERT_SQL = "INSERT INTO direct_messages "
+      + "(id, sender_id, receiver_id, content, timestamp, conversation_key) VALUES (?, ?, ?, ?, ?, ?)";
+
+  @Param({"10000", "100000", "1000000"})
+  int rows;
+
+  private ConfigurableApplicationContext context;
+  private DirectMessageService dms;
+  private String alice;
+  private String bob;
+  private long middleCursor;
+
+  @Setup
+  public void setup() {
+    context = BackendContext.start("bench-conversation-" + rows);
+    dms = context.getBean(DirectMessageService.class);
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+    UserRepository users = context.getBean(UserRepository.class);
+    long[] userIds = new long[USERS];
+    for (int i = 0; i < USERS; i++) {
+      UserEntity u = new UserEntity();
+      u.setUsername("user" + i);
+      u.setEmail("user" + i + "@example.com");
+      u.setPassword("not-a-real-hash");
+      userIds[i] = users.save(u).getId();
+    }
+    alice = String.valueOf(userIds[0]);
+    bob = String.valueOf(userIds[1]);
+
+    SnowflakeIdGenerator ids = SnowflakeIdGenerator.forNode(1);
+    List<Object[]> batch = new ArrayList<>(5_000);
+    List<Long> conversationIds = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      long sender;
+      long receiver;
+      if (i % 10 == 0) {
+        sender = userIds[i % 20 == 0 ? 0 : 1];
+        receiver = userIds[i % 20 == 0 ? 1 : 0];
+      } else {
+        sender = userIds[2 + i % (USERS - 2)];
+        receiver = userIds[(i / 7) % USERS];
+        if (receiver == sender) receiver = userIds[0];
+      }
+      long id = ids.nextId();
+      if (i % 10 == 0) conversationIds.add(id);
+      batch.add(new Object[] {id, sender, receiver, "message " + i, Timestamp.from(Instant.now()),
+          DirectMessageEntity.conversationKey(sender, receiver)});
+      if (batch.size() == 5_000) {
+        jdbc.batchUpdate(INSERT_SQL, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) jdbc.batchUpdate(INSERT_SQL, batch);
+    middleCursor = conversationIds.get(conversationIds.size() / 2);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public MessagePage newest() {
+    return dms.getConversation(alice, bob, null, null, 50);
+  }
+
+  @Benchmark
+  public MessagePage older() {
+    return dms.getConversation(alice, bob, middleCursor, null, 50);
+  }
+}
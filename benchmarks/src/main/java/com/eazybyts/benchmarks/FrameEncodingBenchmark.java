@@ -0,0 +1,78 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.broker.BroadcastEncoder;
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.RoomBroadcast;
+import com.eazybyts.backend.chat.TypingNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON vs CBOR for the payloads we broadcast, with the mappers BroadcastEncoder uses on /ws.
+ * Setup prints the encoded size of each frame; run with -prof gc for B/op of encode and decode.
+ *  - room:    RoomBroadcast, one chat message
+ *  - typing:  TypingNotification with three typers
+ *  - message: ChatMessage, the REST/history shape
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameEncodingBenchmark {
+
+  @Param({"json", "cbor"})
+  String format;
+
+  @Param({"room", "typing", "message"})
+  String frame;
+
+  private ObjectMapper mapper;
+  private Object sample;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper json = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    mapper = "cbor".equals(format) ? new BroadcastEncoder(json).getCborMapper() : json;
+
+    ChatMessage message = new ChatMessage(370269331973472256L, 1L, 1L, null,
+        "Anyone around to review the fan-out change before lunch?", Instant.now());
+    sample = switch (frame) {
+      case "room" -> RoomBroadcast.of(message, "1", "alice");
+      case "typing" -> new TypingNotification(1L, List.of("alice", "bob", "carol"));
+      default -> message;
+    };
+    encoded = mapper.writeValueAsBytes(sample);
+    System.out.printf("%n%s as %s: %d bytes%n", frame, format, encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return mapper.writeValueAsBytes(sample);
+  }
+
+  @Benchmark
+  public Object decode() throws IOException {
+    return mapper.readValue(encoded, sample.getClass());
+  }
+}
@@ -0,0 +1,103 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.chat.ChatMessage;
+import com.eazybyts.backend.chat.RoomEntity;
+import com.eazybyts.backend.chat.RoomRepository;
+import com.eazybyts.backend.journal.MessageJournal;
+import com.eazybyts.backend.user.UserEntity;
+import com.eazybyts.backend.user.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Group-commit throughput of MessageJournal.append: id, journal write and the wait for the fsync covering it,
+ * from 32 sending threads (override with -t), while the indexer projects into H2 alongside.
+ * The score is durable messages per second. After every iteration the group size (appends per fsync) and
+ * the projection lag are printed; more threads or a longer sync interval should raise the group size.
+ * The journal lives in a temp directory, so run it on the disk you want numbers for (-Djava.io.tmpdir=...).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class JournalBenchmark {
+  private static final String CONTENT = "Anyone around to review the fan-out change before lunch?";
+
+  @Param({"0", "2"})
+  long syncIntervalMs;
+
+  private Path dir;
+  private ConfigurableApplicationContext context;
+  private MessageJournal journal;
+  private Long roomId;
+  private Long senderId;
+  private long appendedBefore;
+  private long syncsBefore;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("bench-journal");
+    context = BackendContext.start("bench-journal-" + syncIntervalMs,
+        "--chat.journal.enabled=true",
+        "--chat.journal.dir=" + dir,
+        "--chat.journal.sync-interval-ms=" + syncIntervalMs);
+    journal = context.getBean(MessageJournal.class);
+
+    UserEntity alice = new UserEntity();
+    alice.setUsername("alice");
+    alice.setEmail("alice@example.com");
+    alice.setPassword("not-a-real-hash");
+    senderId = context.getBean(UserRepository.class).save(alice).getId();
+    roomId = context.getBean(RoomRepository.class).save(new RoomEntity("general")).getId();
+  }
+
+  @Setup(Level.Iteration)
+  public void markCounters() {
+    appendedBefore = journal.getAppended();
+    syncsBefore = journal.getSyncs();
+  }
+
+  @TearDown(Level.Iteration)
+  public void printGroupSize() {
+    long appended = journal.getAppended() - appendedBefore;
+    long syncs = journal.getSyncs() - syncsBefore;
+    System.out.printf("%n%d appended, %d fsyncs, %.1f messages per fsync, projection lag %d bytes%n",
+        appended, syncs, syncs > 0 ? (double) appended / syncs : 0.0, journal.getProjectionLagBytes());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    context.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+    }
+  }
+
+  @Benchmark
+  public ChatMessage append() {
+    return journal.append(roomId, senderId, CONTENT);
+  }
+}
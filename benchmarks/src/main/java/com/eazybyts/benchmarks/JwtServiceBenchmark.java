@@ -0,0 +1,81 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.auth.JwtService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token work done on every REST request and STOMP CONNECT.
+ * cacheEntries=0 verifies the signature every call; 10000 measures the verified-token cache hit.
+ * rebuildAndParse is what extractUsername cost before JwtService shared its key and parser: a new key and
+ * parser plus a full verify per call (cacheEntries does not apply to it). Run with -prof gc for B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+  @Param({"0", "10000"})
+  int cacheEntries;
+
+  private JwtService jwt;
+  private String token;
+  private UserDetails alice;
+
+  @Setup
+  public void setup() {
+    jwt = new JwtService();
+    BackendContext.setField(jwt, "secret", BackendContext.JWT_SECRET);
+    BackendContext.setField(jwt, "expirationMillis", 3_600_000L);
+    BackendContext.setField(jwt, "cacheMaxEntries", cacheEntries);
+    BackendContext.setField(jwt, "cacheTtlSeconds", 300L);
+    BackendContext.invoke(jwt, "init");
+    token = jwt.generateToken("alice");
+    alice = User.withUsername("alice").password("x").authorities(List.of()).build();
+  }
+
+  @Benchmark
+  public String generateToken() {
+    return jwt.generateToken("alice");
+  }
+
+  @Benchmark
+  public String extractUsername() {
+    return jwt.extractUsername(token);
+  }
+
+  @Benchmark
+  public String rebuildAndParse() {
+    return Jwts.parserBuilder()
+        .setSigningKey(Keys.hmacShaKeyFor(BackendContext.JWT_SECRET.getBytes(StandardCharsets.UTF_8)))
+        .build()
+        .parseClaimsJws(token)
+        .getBody()
+        .getSubject();
+  }
+
+  @Benchmark
+  public boolean validateToken() {
+    return jwt.validateToken(token, alice);
+  }
+}
@@ -0,0 +1,57 @@
+package com.eazybyts.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of microsecond values, safe to record from many threads.
+ * Values below 128 are exact; above that each power of two is split into 64 buckets (~1.5% error).
+ */
+final class LatencyHistogram {
+  private static final int SUB_BITS = 7;
+  private static final int SUB = 1 << SUB_BITS;
+  private static final int HALF = SUB / 2;
+
+  private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 2) * HALF);
+  private final AtomicLong max = new AtomicLong();
+
+  void record(long micros) {
+    long v = Math.max(0, micros);
+    counts.incrementAndGet(index(v));
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  long count() {
+    long n = 0;
+    for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+    return n;
+  }
+
+  long max() { return max.get(); }
+
+  /** Upper bound of the bucket holding the p-th percentile (0 < p ≤ 100), 0 when empty. */
+  long percentile(double p) {
+    long n = count();
+    if (n == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) return Math.min(upperBound(i), max());
+    }
+    return max();
+  }
+
+  static int index(long v) {
+    if (v < SUB) return (int) v;
+    int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS + 1;
+    return shift * HALF + (int) (v >>> shift);
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB) return index;
+    int shift = index / HALF - 1;
+    long sub = index - (long) shift * HALF;
+    return ((sub + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,57 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.presence.PresenceRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/** Bulk "which of my contacts are online" against 100k online users, 3 devices for some. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresenceLookupBenchmark {
+
+  @Param({"500", "5000"})
+  int contacts;
+
+  private PresenceRegistry registry;
+  private List<Long> contactIds;
+
+  @Setup
+  public void setup() {
+    registry = new PresenceRegistry(16, 3);
+    for (long id = 0; id < 100_000; id++) {
+      registry.connect("s" + id, id, 0, 0);
+      if (id % 10 == 0) {
+        registry.connect("s" + id + "-b", id, 0, 0);
+        registry.connect("s" + id + "-c", id, 0, 0);
+      }
+    }
+    // half of the contacts are online
+    SplittableRandom random = new SplittableRandom(42);
+    contactIds = LongStream.range(0, contacts)
+        .map(i -> i % 2 == 0 ? random.nextLong(100_000) : 100_000 + random.nextLong(1_000_000))
+        .boxed().toList();
+  }
+
+  @Benchmark
+  public List<Long> online() {
+    return registry.online(contactIds);
+  }
+}
@@ -0,0 +1,63 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.ratelimit.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RateLimiter.tryAcquire from 8 threads.
+ * - users=1: every thread hits the same bucket (worst-case CAS contention, one flooding user on many sessions)
+ * - users=10000: threads spread over many buckets, the normal case
+ * - perSecond=1e9 keeps the buckets open so every call is a CAS; perSecond=1 rejects almost everything,
+ *   the flood case, where a call is a map lookup and a read
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+  @Param({"1", "10000"})
+  int users;
+
+  @Param({"1e9", "1"})
+  double perSecond;
+
+  private RateLimiter limiter;
+  private String[] keys;
+
+  @Setup
+  public void setup() {
+    limiter = new RateLimiter(perSecond, 20);
+    keys = new String[users];
+    for (int i = 0; i < users; i++) keys[i] = "user" + i;
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private static final AtomicInteger seeds = new AtomicInteger();
+    int next = seeds.getAndIncrement() * 7919;
+  }
+
+  @Benchmark
+  public boolean tryAcquire(Cursor cursor) {
+    String key = keys[Math.floorMod(cursor.next++, keys.length)];
+    return limiter.tryAcquire(key, System.nanoTime());
+  }
+}
@@ -0,0 +1,60 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.chat.MessageEntity;
+import com.eazybyts.backend.chat.MessageService;
+import com.eazybyts.backend.chat.RoomEntity;
+import com.eazybyts.backend.chat.RoomRepository;
+import com.eazybyts.backend.user.UserEntity;
+import com.eazybyts.backend.user.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/** The synchronous room-message write (lookups + insert + recent-cache append) against embedded H2. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveToRoomBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private MessageService messages;
+  private String roomId;
+  private String senderId;
+
+  @Setup
+  public void setup() {
+    context = BackendContext.start("bench-save-to-room");
+    messages = context.getBean(MessageService.class);
+
+    UserEntity alice = new UserEntity();
+    alice.setUsername("alice");
+    alice.setEmail("alice@example.com");
+    alice.setPassword("not-a-real-hash");
+    senderId = String.valueOf(context.getBean(UserRepository.class).save(alice).getId());
+    roomId = String.valueOf(context.getBean(RoomRepository.class).save(new RoomEntity("general")).getId());
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public MessageEntity saveToRoom() {
+    return messages.saveToRoom(roomId, senderId, "Anyone around to review the fan-out change before lunch?");
+  }
+}
@@ -0,0 +1,146 @@
+package com.eazybyts.benchmarks;
+
+import com.eazybyts.backend.chat.MessagePage;
+import com.eazybyts.backend.chat.RoomEntity;
+import com.eazybyts.backend.chat.RoomRepository;
+import com.eazybyts.backend.chat.SnowflakeIdGenerator;
+import com.eazybyts.backend.search.MessageSearchIndex;
+import com.eazybyts.backend.user.UserEntity;
+import com.eazybyts.backend.user.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * GET /api/search latency (index lookup + row hydration) as the messages table grows, up to 10M messages.
+ * The rows are inserted into an H2 file database in java.io.tmpdir (10M rows do not fit in the heap), then the
+ * backend is restarted on it, so the index is built by the startup replay; setup prints how long the restart
+ * took and how many segments it left. The 10M setup takes several minutes; narrow it with -p rows=100000.
+ * Messages are 8 words from a 5000-word skewed vocabulary over 20 rooms; every 500th one also says "deploy".
+ *  - common: two frequent words, newest page
+ *  - older:  the same query one page further back
+ *  - rare:   a word in 0.2% of the messages
+ *  - miss:   two words that rarely occur together
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+  private static final int ROOMS = 20;
+  private static final int VOCABULARY = 5000;
+  private static final String INSERT_SQL =
+      "INSERT INTO messages (id, room_id, sender_id, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+  @Param({"100000", "1000000", "10000000"})
+  int rows;
+
+  private Path dir;
+  private ConfigurableApplicationContext context;
+  private MessageSearchIndex index;
+  private Long roomId;
+  private Long olderCursor;
+
+  @Setup
+  public void setup() throws InterruptedException, IOException {
+    dir = Files.createTempDirectory("bench-search");
+    String database = "jdbc:h2:file:" + dir.resolve("db") + ";DB_CLOSE_ON_EXIT=false";
+    context = BackendContext.startOn(database);
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+    UserEntity alice = new UserEntity();
+    alice.setUsername("alice");
+    alice.setEmail("alice@example.com");
+    alice.setPassword("not-a-real-hash");
+    long senderId = context.getBean(UserRepository.class).save(alice).getId();
+    RoomRepository roomRepo = context.getBean(RoomRepository.class);
+    long[] roomIds = new long[ROOMS];
+    for (int i = 0; i < ROOMS; i++) {
+      roomIds[i] = roomRepo.save(new RoomEntity("room" + i)).getId();
+    }
+    roomId = roomIds[0];
+
+    SnowflakeIdGenerator ids = SnowflakeIdGenerator.forNode(1);
+    SplittableRandom random = new SplittableRandom(42);
+    List<Object[]> batch = new ArrayList<>(5_000);
+    for (int i = 0; i < rows; i++) {
+      StringBuilder text = new StringBuilder(64);
+      for (int w = 0; w < 8; w++) {
+        double r = random.nextDouble();
+        text.append(" word").append((int) (VOCABULARY * r * r * r)); // low numbers are the frequent words
+      }
+      if (i % 500 == 0) text.append(" deploy");
+      batch.add(new Object[] {ids.nextId(), roomIds[i % ROOMS], senderId, text.toString().trim(),
+          Timestamp.from(Instant.now())});
+      if (batch.size() == 5_000) {
+        jdbc.batchUpdate(INSERT_SQL, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) jdbc.batchUpdate(INSERT_SQL, batch);
+    context.close();
+
+    long started = System.nanoTime();
+    context = BackendContext.startOn(database);
+    index = context.getBean(MessageSearchIndex.class);
+    while (!index.isReady()) {
+      Thread.sleep(50);
+    }
+    System.out.printf("%nsearch index: %d messages replayed in %d ms, %d segments, %d in the tail%n",
+        index.getIndexed(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+        index.getSegmentCount(), index.getTailDocs());
+    olderCursor = index.search("word0 word1", roomId, null, null, 20).getNextCursor();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    context.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+    }
+  }
+
+  @Benchmark
+  public MessagePage common() {
+    return index.search("word0 word1", roomId, null, null, 20);
+  }
+
+  @Benchmark
+  public MessagePage older() {
+    return index.search("word0 word1", roomId, null, olderCursor, 20);
+  }
+
+  @Benchmark
+  public MessagePage rare() {
+    return index.search("deploy", roomId, null, null, 20);
+  }
+
+  @Benchmark
+  public MessagePage miss() {
+    return index.search("deploy word4999", roomId, null, null, 20);
+  }
+}
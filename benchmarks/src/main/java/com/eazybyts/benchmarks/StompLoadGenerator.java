@@ -0,0 +1,346 @@
+package com.eazybyts.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test: login → STOMP CONNECT on /ws → SUBSCRIBE /topic/room.{id} → SEND /app/chat/{id} at a fixed rate,
+ * reporting throughput, delivery latency percentiles and error counts. Run with
+ *   mvn -q compile exec:exec@load -Dload.args="scenario=hot users=200 rate=100"
+ * Without target=... the backend is started in this JVM on a private H2 database (port chosen at random);
+ * extra --spring.style=args are handed to that backend, e.g. --chat.write-behind.enabled=true.
+ *  - hot:    every user subscribes to and sends into one room (fan-out = users)
+ *  - quiet:  users spread over many rooms (default users/2), each sends into its own room
+ * Latency is measured from the scheduled send time to receipt by each subscriber, so a sender that falls behind
+ * shows up in the percentiles instead of silently lowering the rate. Warm-up traffic is not counted.
+ */
+public class StompLoadGenerator {
+  private static final String CONTENT_PREFIX = "load:";
+
+  private final Options options;
+  private final String baseUrl;
+  private final ObjectMapper json = new ObjectMapper();
+  private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder expected = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder loginErrors = new LongAdder();
+  private final LongAdder connectErrors = new LongAdder();
+  private final LongAdder sendErrors = new LongAdder();
+  private final LongAdder stompErrors = new LongAdder();
+  private final LongAdder transportErrors = new LongAdder();
+  private final int[] subscriberCount;
+  private volatile long measureFrom = Long.MAX_VALUE;
+
+  StompLoadGenerator(Options options, String baseUrl) {
+    this.options = options;
+    this.baseUrl = baseUrl;
+    this.subscriberCount = new int[options.rooms];
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = Options.parse(args);
+    ConfigurableApplicationContext app = null;
+    String baseUrl = options.target;
+    if (baseUrl == null) {
+      app = BackendContext.start("load-" + ProcessHandle.current().pid(), options.appArgs.toArray(String[]::new));
+      baseUrl = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+    }
+    try {
+      new StompLoadGenerator(options, baseUrl).run();
+    } finally {
+      if (app != null) app.close();
+    }
+  }
+
+  void run() throws Exception {
+    System.out.printf("scenario=%s users=%d rooms=%d rate=%d msg/s warmup=%ds duration=%ds target=%s%n",
+        options.scenario, options.users, options.rooms, options.rate, options.warmupSeconds,
+        options.durationSeconds, baseUrl);
+
+    List<String> tokens = login();
+    if (tokens.isEmpty()) {
+      System.out.println("no user could log in, giving up");
+      return;
+    }
+    long[] roomIds = createRooms(tokens.get(0));
+    List<Client> clients = connect(tokens, roomIds);
+    if (clients.isEmpty()) {
+      System.out.println("no STOMP session could connect, giving up");
+      return;
+    }
+    for (Client c : clients) subscriberCount[c.room]++;
+
+    long start = System.nanoTime();
+    measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+    long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+    send(clients, start, end);
+    awaitDeliveries(TimeUnit.SECONDS.toNanos(10));
+
+    // report first: the server answers DISCONNECT with a "Session closed." ERROR frame that is not a failure
+    report();
+    for (Client c : clients) c.session.disconnect();
+  }
+
+  // ---------- setup ----------
+
+  /** Registers (ignoring "already exists") and logs in every synthetic user; returns their JWTs. */
+  private List<String> login() throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(16, options.users));
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < options.users; i++) {
+      String username = "load-user-" + i;
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          Map<String, String> credentials = Map.of("username", username, "password", "load-password");
+          post("/api/auth/register", credentials, null);
+          HttpResponse<String> res = post("/api/auth/login", credentials, null);
+          if (res.statusCode() == 200) return json.readTree(res.body()).path("token").asText(null);
+        } catch (Exception e) {
+          // counted below
+        }
+        loginErrors.increment();
+        return null;
+      }, pool));
+    }
+    List<String> tokens = new ArrayList<>();
+    for (CompletableFuture<String> f : futures) {
+      String token = f.join();
+      if (token != null) tokens.add(token);
+    }
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+    return tokens;
+  }
+
+  private long[] createRooms(String token) throws Exception {
+    String run = Long.toString(System.currentTimeMillis(), 36);
+    long[] ids = new long[options.rooms];
+    for (int i = 0; i < ids.length; i++) {
+      HttpResponse<String> res = post("/api/rooms", Map.of("name", "load-" + run + "-" + i), token);
+      if (res.statusCode() != 200) {
+        throw new IllegalStateException("Creating room failed: HTTP " + res.statusCode() + " " + res.body());
+      }
+      ids[i] = json.readTree(res.body()).path("id").asLong();
+    }
+    return ids;
+  }
+
+  private List<Client> connect(List<String> tokens, long[] roomIds) {
+    WebSocketStompClient stomp = new WebSocketStompClient(new StandardWebSocketClient());
+    stomp.setMessageConverter(new MappingJackson2MessageConverter());
+    String wsUrl = baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+
+    List<CompletableFuture<Client>> futures = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      int room = options.scenario == Scenario.HOT ? 0 : i % roomIds.length;
+      StompHeaders connectHeaders = new StompHeaders();
+      connectHeaders.add("Authorization", "Bearer " + tokens.get(i));
+      futures.add(stomp.connectAsync(wsUrl, new WebSocketHttpHeaders(), connectHeaders, new ErrorCounter())
+          .thenApply(session -> {
+            session.subscribe("/topic/room." + roomIds[room], new DeliveryRecorder());
+            return new Client(session, room, "/app/chat/" + roomIds[room]);
+          }));
+    }
+    List<Client> clients = new ArrayList<>();
+    for (CompletableFuture<Client> f : futures) {
+      try {
+        clients.add(f.get(30, TimeUnit.SECONDS));
+      } catch (Exception e) {
+        connectErrors.increment();
+      }
+    }
+    return clients;
+  }
+
+  // ---------- traffic ----------
+
+  /**
+   * One pacing thread per slice of clients, each sending rate/threads msg/s round-robin over its clients.
+   * The scheduled send time travels in the message content and is what latency is measured from.
+   */
+  private void send(List<Client> clients, long start, long end) throws InterruptedException {
+    int threads = Math.min(options.senderThreads, clients.size());
+    double intervalNanos = TimeUnit.SECONDS.toNanos(1) * (double) threads / options.rate;
+    List<Thread> senders = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      List<Client> mine = new ArrayList<>();
+      for (int i = t; i < clients.size(); i += threads) mine.add(clients.get(i));
+      long offset = (long) (intervalNanos * t / threads);
+      Thread sender = new Thread(() -> {
+        for (long n = 0; ; n++) {
+          long due = start + offset + (long) (n * intervalNanos);
+          if (due >= end) return;
+          long wait = due - System.nanoTime();
+          if (wait > 0) LockSupport.parkNanos(wait);
+          Client c = mine.get((int) (n % mine.size()));
+          try {
+            c.session.send(c.sendDestination, Map.of("content", CONTENT_PREFIX + due));
+            if (due >= measureFrom) {
+              sent.increment();
+              expected.add(subscriberCount[c.room]);
+            }
+          } catch (RuntimeException e) {
+            if (due >= measureFrom) sendErrors.increment();
+          }
+        }
+      }, "load-sender-" + t);
+      sender.start();
+      senders.add(sender);
+    }
+    for (Thread sender : senders) sender.join();
+  }
+
+  private void awaitDeliveries(long timeoutNanos) throws InterruptedException {
+    long deadline = System.nanoTime() + timeoutNanos;
+    while (delivered.sum() < expected.sum() && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+  }
+
+  private void report() {
+    double seconds = options.durationSeconds;
+    long missing = Math.max(0, expected.sum() - delivered.sum());
+    System.out.println();
+    System.out.printf("sent        %10d   %10.1f msg/s%n", sent.sum(), sent.sum() / seconds);
+    System.out.printf("delivered   %10d   %10.1f deliveries/s   expected %d, missing %d%n",
+        delivered.sum(), delivered.sum() / seconds, expected.sum(), missing);
+    System.out.printf("latency ms  p50 %.2f   p99 %.2f   p999 %.2f   max %.2f%n",
+        latency.percentile(50) / 1000.0, latency.percentile(99) / 1000.0,
+        latency.percentile(99.9) / 1000.0, latency.max() / 1000.0);
+    System.out.printf("errors      login %d   connect %d   send %d   stomp %d   transport %d%n",
+        loginErrors.sum(), connectErrors.sum(), sendErrors.sum(), stompErrors.sum(), transportErrors.sum());
+  }
+
+  private HttpResponse<String> post(String path, Object body, String token) throws Exception {
+    HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .timeout(Duration.ofSeconds(30))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body)));
+    if (token != null) req.header("Authorization", "Bearer " + token);
+    return http.send(req.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private record Client(StompSession session, int room, String sendDestination) {}
+
+  private final class ErrorCounter extends StompSessionHandlerAdapter {
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                byte[] payload, Throwable exception) {
+      stompErrors.increment();
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+      // ERROR frames end up here
+      stompErrors.increment();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+      transportErrors.increment();
+    }
+  }
+
+  private final class DeliveryRecorder implements StompFrameHandler {
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+      return JsonNode.class;
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+      long now = System.nanoTime();
+      String content = ((JsonNode) payload).path("content").asText("");
+      if (!content.startsWith(CONTENT_PREFIX)) return;
+      long due = Long.parseLong(content.substring(CONTENT_PREFIX.length()));
+      if (due < measureFrom) return;
+      delivered.increment();
+      latency.record(TimeUnit.NANOSECONDS.toMicros(now - due));
+    }
+  }
+
+  enum Scenario { HOT, QUIET }
+
+  /** key=value arguments; anything starting with -- is passed to the in-process backend. */
+  static final class Options {
+    Scenario scenario = Scenario.HOT;
+    int users = 100;
+    int rooms;
+    int rate = 100;
+    int warmupSeconds = 5;
+    int durationSeconds = 30;
+    int senderThreads = 4;
+    String target;
+    final List<String> appArgs = new ArrayList<>();
+
+    static Options parse(String[] args) {
+      Options o = new Options();
+      Map<String, String> values = new LinkedHashMap<>();
+      for (String arg : args) {
+        if (arg.startsWith("--")) {
+          o.appArgs.add(arg);
+          continue;
+        }
+        int eq = arg.indexOf('=');
+        if (eq <= 0) throw new IllegalArgumentException("Expected key=value, got: " + arg);
+        values.put(arg.substring(0, eq), arg.substring(eq + 1));
+      }
+      values.forEach((key, value) -> {
+        switch (key) {
+          case "scenario" -> o.scenario = Scenario.valueOf(value.toUpperCase());
+          case "users" -> o.users = positive(key, value);
+          case "rooms" -> o.rooms = positive(key, value);
+          case "rate" -> o.rate = positive(key, value);
+          case "warmup" -> o.warmupSeconds = Integer.parseInt(value);
+          case "duration" -> o.durationSeconds = positive(key, value);
+          case "senders" -> o.senderThreads = positive(key, value);
+          case "target" -> o.target = value.replaceAll("/+$", "");
+          default -> throw new IllegalArgumentException("Unknown option: " + key);
+        }
+      });
+      if (o.scenario == Scenario.HOT) {
+        o.rooms = 1;
+      } else if (o.rooms == 0) {
+        o.rooms = Math.max(1, o.users / 2);
+      }
+      return o;
+    }
+
+    private static int positive(String key, String value) {
+      int n = Integer.parseInt(value);
+      if (n <= 0) throw new IllegalArgumentException(key + " must be > 0");
+      return n;
+    }
+  }
+}